@@ -0,0 +1,80 @@
+package org.Spring.benchmarks;
+
+import org.Spring.entities.User;
+import org.Spring.service.BookingStore;
+import org.Spring.service.UserBookingService;
+import org.Spring.utils.PasswordVerifier;
+import org.Spring.utils.UserServiceUtil;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Login (lookup plus one bcrypt verify) and signup (one bcrypt hash plus
+ * a journal record) against user bases of different sizes, at bcrypt
+ * cost 10 so results do not depend on the startup calibration.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class AuthBenchmark {
+
+    private static final int BCRYPT_COST = 10;
+
+    @Param({"100", "10000", "1000000"})
+    public int users;
+
+    private Path dir;
+    private BookingStore store;
+    private PasswordVerifier passwordVerifier;
+    private UserBookingService service;
+    private int next;
+    private int signups;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        UserServiceUtil.setCost(BCRYPT_COST);
+        dir = Datasets.write(Files.createTempDirectory("auth-bench"), Datasets.trains(10, 42), Datasets.users(users));
+        store = BookingStore.open(dir, false);
+        passwordVerifier = new PasswordVerifier(1, 16, 60_000);
+        service = new UserBookingService(store, passwordVerifier);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        passwordVerifier.shutdown();
+        store.close();
+        Datasets.delete(dir);
+    }
+
+    @Benchmark
+    public String authenticate() {
+        String token = service.login(Datasets.userName(next++ % users), Datasets.PASSWORD).orElseThrow();
+        service.logout(token);
+        return token;
+    }
+
+    @Benchmark
+    public boolean signUp() throws IOException {
+        int n = signups++;
+        return service.signUp(new User("newcomer" + n, Datasets.PASSWORD, null, null, "n-" + n)).value();
+    }
+}
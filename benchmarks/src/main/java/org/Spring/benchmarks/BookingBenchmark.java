@@ -0,0 +1,120 @@
+package org.Spring.benchmarks;
+
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.service.BookingStore;
+import org.Spring.service.UserBookingService;
+import org.Spring.utils.PasswordVerifier;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Threads;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Booking through the journal, alone and with eight threads fighting over
+ * the same train and day. Each iteration starts from a fresh store so
+ * ticket lists and the journal do not grow across iterations.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.Throughput)
+@OutputTimeUnit(TimeUnit.SECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class BookingBenchmark {
+
+    // Power of two, so a user is picked with a mask
+    private static final int USERS = 64;
+    private static final int TRAINS = 100;
+
+    private Path dir;
+    private BookingStore store;
+    private PasswordVerifier passwordVerifier;
+    private UserBookingService service;
+    private String[] tokens;
+    private Train train;
+    private String source;
+    private String destination;
+    private final AtomicLong bookings = new AtomicLong();
+
+    @Setup(Level.Iteration)
+    public void setUp() throws IOException {
+        List<Train> trains = Datasets.trains(TRAINS, 42);
+        dir = Datasets.write(Files.createTempDirectory("booking-bench"), trains, Datasets.users(USERS));
+        store = BookingStore.open(dir, false);
+        passwordVerifier = new PasswordVerifier(1, 1, 1_000);
+        service = new UserBookingService(store, passwordVerifier);
+
+        // Sessions are opened directly: logging in is measured by AuthBenchmark
+        tokens = new String[USERS];
+        for (int i = 0; i < USERS; i++) {
+            User user = store.userRepository().findByName(Datasets.userName(i)).orElseThrow();
+            tokens[i] = store.sessions().open(user);
+        }
+
+        train = trains.get(0);
+        source = train.getStations().get(0);
+        destination = train.getStations().get(train.getStations().size() - 1);
+        bookings.set(0);
+    }
+
+    @TearDown(Level.Iteration)
+    public void tearDown() throws IOException {
+        passwordVerifier.shutdown();
+        store.close();
+        Datasets.delete(dir);
+    }
+
+    /**
+     * A named seat that is always free: the next one in order, moving to the
+     * next day once the train is full.
+     */
+    @Benchmark
+    @Threads(1)
+    public Optional<Ticket> bookTrainSeat() throws IOException {
+        long n = bookings.getAndIncrement();
+        int seat = (int) (n % Datasets.capacity());
+        return service.bookSeat(
+                tokens[(int) n & (USERS - 1)],
+                train,
+                seat / Datasets.SEATS_PER_ROW,
+                seat % Datasets.SEATS_PER_ROW,
+                source,
+                destination,
+                day(n)
+        ).value();
+    }
+
+    /**
+     * Eight threads taking any free seat on the same train and day.
+     */
+    @Benchmark
+    @Threads(8)
+    public Optional<Ticket> bookAnySeatContended() throws IOException {
+        long n = bookings.getAndIncrement();
+        return service.bookAnySeat(tokens[(int) n & (USERS - 1)], train, source, destination, day(n)).value();
+    }
+
+    private static LocalDate day(long booking) {
+        return Datasets.FIRST_DAY.plusDays(booking / Datasets.capacity());
+    }
+}
@@ -0,0 +1,149 @@
+package org.Spring.benchmarks;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.persistence.JsonArrayFiles;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.stream.Stream;
+
+/**
+ * Generated databases of a given size, written in the application's own
+ * file formats. Generation is seeded, so every run sees the same data.
+ */
+final class Datasets {
+
+    static final LocalDate FIRST_DAY = LocalDate.of(2030, 1, 1);
+    static final String PASSWORD = "password";
+
+    static final int ROWS = 8;
+    static final int SEATS_PER_ROW = 10;
+    private static final int MIN_STOPS = 4;
+    private static final int MAX_STOPS = 16;
+
+    // Hashing a million passwords would take hours; every user shares one hash
+    private static final String PASSWORD_HASH =
+            BCrypt.withDefaults().hashToString(10, PASSWORD.toCharArray());
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .build();
+
+    // Prevent instantiation
+    private Datasets() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    static int capacity() {
+        return ROWS * SEATS_PER_ROW;
+    }
+
+    /**
+     * Trains over {@code count / 4} stations (at least 20), each calling at
+     * 4-16 of them in order with times through the day.
+     */
+    static List<Train> trains(int count, long seed) {
+        Random random = new Random(seed);
+        int stationCount = Math.max(20, count / 4);
+
+        List<Train> trains = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            int stops = MIN_STOPS + random.nextInt(Math.min(MAX_STOPS, stationCount) - MIN_STOPS + 1);
+            int[] picked = random.ints(0, stationCount).distinct().limit(stops).toArray();
+
+            List<String> stations = new ArrayList<>(stops);
+            Map<String, String> times = new LinkedHashMap<>();
+            int minute = random.nextInt(24 * 60);
+            for (int station : picked) {
+                String name = station(station);
+                stations.add(name);
+                times.put(name, String.format("%02d:%02d:00", (minute / 60) % 24, minute % 60));
+                minute += 20 + random.nextInt(160);
+            }
+
+            int[] widths = new int[ROWS];
+            Arrays.fill(widths, SEATS_PER_ROW);
+            trains.add(new Train("train_" + i, String.valueOf(10_000 + i), new SeatMap(widths), times, stations));
+        }
+        return trains;
+    }
+
+    static List<User> users(int count) {
+        List<User> users = new ArrayList<>(count);
+        for (int i = 0; i < count; i++) {
+            users.add(new User(userName(i), null, PASSWORD_HASH, new ArrayList<>(), "u-" + i));
+        }
+        return users;
+    }
+
+    static String userName(int i) {
+        return "user" + i;
+    }
+
+    /**
+     * {@code count} source/destination pairs that some train serves in that order.
+     */
+    static String[][] routes(List<Train> trains, int count, long seed) {
+        Random random = new Random(seed);
+        String[][] routes = new String[count][];
+        for (int i = 0; i < count; i++) {
+            List<String> stations = trains.get(random.nextInt(trains.size())).getStations();
+            int from = random.nextInt(stations.size() - 1);
+            int to = from + 1 + random.nextInt(stations.size() - from - 1);
+            routes[i] = new String[]{stations.get(from), stations.get(to)};
+        }
+        return routes;
+    }
+
+    /**
+     * Writes train.json and a users.json that the store splits into partitions on first open.
+     */
+    static Path write(Path dir, List<Train> trains, List<User> users) throws IOException {
+        Files.createDirectories(dir);
+        writeArray(dir.resolve("train.json"), trains);
+        writeArray(dir.resolve("users.json"), users);
+        return dir;
+    }
+
+    static void writeArray(Path file, List<?> values) throws IOException {
+        try (JsonArrayFiles.Writer writer = JsonArrayFiles.write(MAPPER, file.toFile())) {
+            for (Object value : values) {
+                writer.append(value);
+            }
+        }
+    }
+
+    static void delete(Path dir) {
+        if (dir == null || !Files.exists(dir)) return;
+        try (Stream<Path> paths = Files.walk(dir)) {
+            paths.sorted(Comparator.reverseOrder()).forEach(path -> {
+                try {
+                    Files.delete(path);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    private static String station(int index) {
+        return "station" + index;
+    }
+}
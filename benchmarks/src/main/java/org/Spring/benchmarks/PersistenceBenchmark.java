@@ -0,0 +1,133 @@
+package org.Spring.benchmarks;
+
+import org.Spring.persistence.SnapshotFormat;
+import org.Spring.service.TrainCatalog;
+import org.Spring.service.UserRepository;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Loading and saving the train catalog and the user partitions.
+ */
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 2, time = 5)
+@Measurement(iterations = 5, time = 5)
+@Fork(1)
+public class PersistenceBenchmark {
+
+    // Enough lookups to load every partition, however many users there are
+    private static final int PARTITION_PROBES = 4096;
+
+    @State(Scope.Benchmark)
+    public static class Trains {
+
+        @Param({"10", "1000", "100000"})
+        public int trains;
+
+        @Param({"JSON", "BINARY"})
+        public SnapshotFormat format;
+
+        private Path dir;
+        private File trainFile;
+        private TrainCatalog catalog;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Datasets.write(Files.createTempDirectory("train-bench"), Datasets.trains(trains, 42), List.of());
+            trainFile = dir.resolve("train.json").toFile();
+            catalog = new TrainCatalog(trainFile, null, format);
+            catalog.writeSnapshot();
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Datasets.delete(dir);
+        }
+    }
+
+    @State(Scope.Benchmark)
+    public static class Users {
+
+        @Param({"100", "10000", "1000000"})
+        public int users;
+
+        private Path dir;
+        private String[] probes;
+        private UserRepository repository;
+
+        @Setup(Level.Trial)
+        public void setUp() throws IOException {
+            dir = Datasets.write(Files.createTempDirectory("user-bench"), List.of(), Datasets.users(users));
+            // Split users.json into partitions once, as the first start does
+            repository = open();
+
+            int step = Math.max(1, users / PARTITION_PROBES);
+            probes = new String[(users + step - 1) / step];
+            for (int i = 0; i < probes.length; i++) {
+                probes[i] = Datasets.userName(i * step);
+            }
+            loadAll(repository);
+        }
+
+        @TearDown(Level.Trial)
+        public void tearDown() {
+            Datasets.delete(dir);
+        }
+
+        UserRepository open() throws IOException {
+            return new UserRepository(
+                    dir.resolve("users"),
+                    dir.resolve("users.json").toFile(),
+                    null,
+                    UserRepository.PARTITIONS
+            );
+        }
+
+        int loadAll(UserRepository repository) {
+            int found = 0;
+            for (String name : probes) {
+                if (repository.findByName(name).isPresent()) found++;
+            }
+            return found;
+        }
+    }
+
+    @Benchmark
+    public TrainCatalog loadTrains(Trains state) throws IOException {
+        return new TrainCatalog(state.trainFile, null, state.format);
+    }
+
+    @Benchmark
+    public void saveTrains(Trains state) throws IOException {
+        state.catalog.writeSnapshot();
+    }
+
+    @Benchmark
+    public int loadUsers(Users state) throws IOException {
+        return state.loadAll(state.open());
+    }
+
+    @Benchmark
+    public void saveUsers(Users state) throws IOException {
+        state.repository.exportJson();
+    }
+}
@@ -0,0 +1,71 @@
+package org.Spring.benchmarks;
+
+import org.Spring.entities.Train;
+import org.Spring.entities.TrainAvailability;
+import org.Spring.service.BookingStore;
+import org.Spring.service.TrainService;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Level;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.TearDown;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * {@link TrainService#searchTrains(String, String, java.time.LocalDate)} over
+ * catalogs of different sizes, for routes some train actually serves.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 3, time = 2)
+@Measurement(iterations = 5, time = 2)
+@Fork(1)
+public class SearchBenchmark {
+
+    // Power of two, so the next query is picked with a mask
+    private static final int QUERIES = 1024;
+
+    @Param({"10", "1000", "100000"})
+    public int trains;
+
+    private Path dir;
+    private BookingStore store;
+    private TrainService trainService;
+    private String[][] routes;
+    private int next;
+
+    @Setup(Level.Trial)
+    public void setUp() throws IOException {
+        List<Train> catalog = Datasets.trains(trains, 42);
+        dir = Datasets.write(Files.createTempDirectory("search-bench"), catalog, List.of());
+        store = BookingStore.open(dir, false);
+        trainService = new TrainService(store.trainCatalog(), store.seatInventory());
+        routes = Datasets.routes(catalog, QUERIES, 7);
+    }
+
+    @TearDown(Level.Trial)
+    public void tearDown() throws IOException {
+        store.close();
+        Datasets.delete(dir);
+    }
+
+    @Benchmark
+    public List<TrainAvailability> searchTrains() {
+        String[] route = routes[next++ & (QUERIES - 1)];
+        return trainService.searchTrains(route[0], route[1], Datasets.FIRST_DAY);
+    }
+}
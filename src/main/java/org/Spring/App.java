@@ -1,19 +1,31 @@
 package org.Spring;
 
+import org.Spring.entities.Itinerary;
+import org.Spring.entities.SeatMap;
 import org.Spring.entities.Ticket;
 import org.Spring.entities.Train;
+import org.Spring.entities.TrainAvailability;
 import org.Spring.entities.User;
+import org.Spring.service.TrainSearchFilter;
 import org.Spring.service.UserBookingService;
 
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.List;
 import java.util.Map;
+import java.util.Optional;
 import java.util.Scanner;
 import java.util.UUID;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
 
 public class App {
 
+    // How long a change may take to reach the journal file before we give up waiting
+    private static final long SAVE_TIMEOUT_SECONDS = 10;
+
     public static void main(String[] args) {
 
         System.out.println("🚆 Train Booking System");
@@ -30,7 +42,13 @@ public class App {
             return;
         }
 
+        // Session of whoever logged in last at this console
+        String token = null;
+
         Train selectedTrain = null;
+        String selectedSource = null;
+        String selectedDestination = null;
+        LocalDate selectedDate = null;
 
         while (true) {
             System.out.println("""
@@ -42,7 +60,9 @@ public class App {
                     4. Search Trains
                     5. Book a Seat
                     6. Cancel Booking
-                    7. Exit
+                    7. Book for a Group
+                    8. Plan a Journey (with changes)
+                    9. Exit
                     """);
 
             int option = scanner.nextInt();
@@ -66,7 +86,7 @@ public class App {
                                 UUID.randomUUID().toString()
                         );
 
-                        boolean signedUp = userBookingService.signUp(user);
+                        boolean signedUp = userBookingService.signUp(user).await(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
                         System.out.println(
                                 signedUp ? "✅ Signup successful" : "❌ Username already exists"
                         );
@@ -79,20 +99,22 @@ public class App {
                         System.out.print("Password: ");
                         String password = scanner.nextLine();
 
-                        User loginUser = new User(username, password, null, null, null);
-
-                        boolean loggedIn = userBookingService.login(loginUser);
+                        Optional<String> session = userBookingService.login(username, password);
+                        if (session.isPresent()) {
+                            if (token != null) userBookingService.logout(token);
+                            token = session.get();
+                        }
                         System.out.println(
-                                loggedIn ? "✅ Login successful" : "❌ Invalid credentials"
+                                session.isPresent() ? "✅ Login successful" : "❌ Invalid credentials"
                         );
                     }
 
                     case 3 -> {
-                        List<Ticket> tickets = userBookingService.fetchBookings();
+                        List<Ticket> tickets = userBookingService.fetchBookings(token);
                         if (tickets.isEmpty()) {
                             System.out.println("No bookings found");
                         } else {
-                            tickets.forEach(t -> System.out.println(t.getTicketInfo()));
+                            tickets.forEach(t -> System.out.println(userBookingService.describeTicket(t)));
                         }
                     }
 
@@ -103,8 +125,29 @@ public class App {
                         System.out.print("Destination: ");
                         String destination = scanner.nextLine().trim().toLowerCase();
 
-                        List<Train> trains =
-                                userBookingService.searchTrains(source, destination);
+                        System.out.print("Travel date (YYYY-MM-DD): ");
+                        LocalDate date = LocalDate.parse(scanner.nextLine().trim());
+
+                        System.out.print("Depart after (HH:MM, blank for any): ");
+                        LocalTime departAfter = parseOrNull(scanner.nextLine(), LocalTime::parse);
+
+                        System.out.print("Depart before (HH:MM, blank for any): ");
+                        LocalTime departBefore = parseOrNull(scanner.nextLine(), LocalTime::parse);
+
+                        System.out.print("Arrive by (YYYY-MM-DDTHH:MM, blank for any): ");
+                        LocalDateTime arriveBy = parseOrNull(scanner.nextLine(), LocalDateTime::parse);
+
+                        System.out.print("Sort by (1) departure or (2) duration: ");
+                        TrainSearchFilter.SortBy sortBy = scanner.nextLine().trim().equals("2")
+                                ? TrainSearchFilter.SortBy.DURATION
+                                : TrainSearchFilter.SortBy.DEPARTURE;
+
+                        List<TrainAvailability> trains = userBookingService.searchTrains(
+                                source,
+                                destination,
+                                date,
+                                new TrainSearchFilter(departAfter, departBefore, arriveBy, sortBy)
+                        );
 
                         if (trains.isEmpty()) {
                             System.out.println("❌ No trains found");
@@ -112,15 +155,24 @@ public class App {
                         }
 
                         for (int i = 0; i < trains.size(); i++) {
-                            Train t = trains.get(i);
-                            System.out.println((i + 1) + ". Train No: " + t.getTrainNo());
+                            TrainAvailability result = trains.get(i);
+                            Train t = result.getTrain();
+                            System.out.println((i + 1) + ". Train No: " + t.getTrainNo()
+                                    + " | " + result.getDeparture() + " -> " + result.getArrival()
+                                    + (result.isSoldOut()
+                                            ? " | Sold out"
+                                            : " | Seats available: " + result.getAvailableSeats()));
                             for (Map.Entry<String, String> e : t.getStationTimes().entrySet()) {
                                 System.out.println("   " + e.getKey() + " -> " + e.getValue());
                             }
                         }
 
                         System.out.print("Select train (1-" + trains.size() + "): ");
-                        selectedTrain = trains.get(scanner.nextInt() - 1);
+                        TrainAvailability selected = trains.get(scanner.nextInt() - 1);
+                        selectedTrain = selected.getTrain();
+                        selectedSource = source;
+                        selectedDestination = destination;
+                        selectedDate = selected.getDateOfTravel();
                         scanner.nextLine();
                     }
 
@@ -130,31 +182,40 @@ public class App {
                             break;
                         }
 
-                        List<List<Integer>> seats = selectedTrain.getSeats();
-                        for (List<Integer> row : seats) {
-                            row.forEach(s -> System.out.print(s + " "));
-                            System.out.println();
-                        }
+                        LocalDate date = selectedDate;
+
+                        SeatMap seats = userBookingService.seatAvailability(
+                                selectedTrain, selectedSource, selectedDestination, date);
+                        System.out.print(seats.render());
+                        System.out.println("Free seats: " + seats.freeCount());
 
-                        System.out.print("Row: ");
-                        int row = scanner.nextInt();
+                        System.out.print("Row (or 'any' to get a seat assigned): ");
+                        String rowText = scanner.nextLine().trim();
+
+                        if (rowText.equalsIgnoreCase("any")) {
+                            Optional<Ticket> ticket = userBookingService.bookAnySeat(
+                                    token, selectedTrain, selectedSource, selectedDestination, date)
+                                    .await(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+                            System.out.println(ticket
+                                    .map(t -> "✅ Seat booked: " + userBookingService.describeTicket(t))
+                                    .orElse("❌ Train is full for this journey"));
+                            break;
+                        }
+                        int row = Integer.parseInt(rowText);
 
                         System.out.print("Seat: ");
                         int seat = scanner.nextInt();
                         scanner.nextLine();
 
-                        System.out.print("Travel date (YYYY-MM-DD): ");
-                        LocalDate date = LocalDate.parse(scanner.nextLine());
-
-                        boolean booked = userBookingService.bookTrainSeat(
+                        boolean booked = userBookingService.bookSeat(
+                                token,
                                 selectedTrain,
                                 row,
                                 seat,
-                                selectedTrain.getStations().get(0),
-                                selectedTrain.getStations()
-                                        .get(selectedTrain.getStations().size() - 1),
+                                selectedSource,
+                                selectedDestination,
                                 date
-                        );
+                        ).await(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS).isPresent();
 
                         System.out.println(
                                 booked ? "✅ Seat booked successfully" : "❌ Seat not available"
@@ -164,13 +225,77 @@ public class App {
                     case 6 -> {
                         System.out.print("Enter Ticket ID to cancel: ");
                         String ticketId = scanner.nextLine();
-                        boolean cancelled = userBookingService.cancelBooking(ticketId);
+                        boolean cancelled = userBookingService.cancelBooking(token, ticketId)
+                                .await(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
                         System.out.println(
                                 cancelled ? "✅ Ticket cancelled" : "❌ Ticket not found"
                         );
                     }
 
                     case 7 -> {
+                        if (selectedTrain == null) {
+                            System.out.println("❌ Please search and select a train first");
+                            break;
+                        }
+
+                        LocalDate date = selectedDate;
+
+                        System.out.print("Passengers: ");
+                        int passengers = scanner.nextInt();
+                        scanner.nextLine();
+
+                        List<Ticket> tickets = userBookingService.bookGroup(
+                                token,
+                                selectedTrain,
+                                passengers,
+                                selectedSource,
+                                selectedDestination,
+                                date
+                        ).await(SAVE_TIMEOUT_SECONDS, TimeUnit.SECONDS);
+
+                        if (tickets.isEmpty()) {
+                            System.out.println("❌ Not enough seats for the whole group");
+                        } else {
+                            System.out.println("✅ Booked " + tickets.size() + " seats");
+                            tickets.forEach(t -> System.out.println(userBookingService.describeTicket(t)));
+                        }
+                    }
+
+                    case 8 -> {
+                        System.out.print("Source: ");
+                        String source = scanner.nextLine().trim().toLowerCase();
+
+                        System.out.print("Destination: ");
+                        String destination = scanner.nextLine().trim().toLowerCase();
+
+                        System.out.print("Leave after (YYYY-MM-DDTHH:MM): ");
+                        LocalDateTime leaveAfter = LocalDateTime.parse(scanner.nextLine().trim());
+
+                        System.out.print("Max changes: ");
+                        int maxTransfers = scanner.nextInt();
+                        scanner.nextLine();
+
+                        List<Itinerary> itineraries = userBookingService.planJourney(
+                                source, destination, leaveAfter, maxTransfers);
+
+                        if (itineraries.isEmpty()) {
+                            System.out.println("❌ No connections found");
+                            break;
+                        }
+
+                        for (int i = 0; i < itineraries.size(); i++) {
+                            Itinerary itinerary = itineraries.get(i);
+                            System.out.println((i + 1) + ". Arrive " + itinerary.getArrival()
+                                    + " | Changes: " + itinerary.getTransfers());
+                            for (Itinerary.Leg leg : itinerary.getLegs()) {
+                                System.out.println("   Train " + leg.getTrainNo() + ": "
+                                        + leg.getSource() + " " + leg.getDeparture()
+                                        + " -> " + leg.getDestination() + " " + leg.getArrival());
+                            }
+                        }
+                    }
+
+                    case 9 -> {
                         System.out.println("👋 Goodbye!");
                         return;
                     }
@@ -183,4 +308,8 @@ public class App {
             }
         }
     }
+
+    private static <T> T parseOrNull(String text, Function<String, T> parser) {
+        return text.isBlank() ? null : parser.apply(text.trim());
+    }
 }
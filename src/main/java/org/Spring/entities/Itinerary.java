@@ -0,0 +1,128 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * A journey of one or more train legs, changing trains between them.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class Itinerary {
+
+    private List<Leg> legs;
+
+    // Required by Jackson
+    public Itinerary() {
+    }
+
+    public Itinerary(List<Leg> legs) {
+        this.legs = List.copyOf(legs);
+    }
+
+    /* =========================
+       Business Methods
+       ========================= */
+
+    @JsonIgnore
+    public LocalDateTime getDeparture() {
+        return legs.get(0).getDeparture();
+    }
+
+    @JsonIgnore
+    public LocalDateTime getArrival() {
+        return legs.get(legs.size() - 1).getArrival();
+    }
+
+    @JsonIgnore
+    public int getTransfers() {
+        return legs.size() - 1;
+    }
+
+    @JsonIgnore
+    public Duration getDuration() {
+        return Duration.between(getDeparture(), getArrival());
+    }
+
+    /* =========================
+       Getters (NO setters)
+       ========================= */
+
+    public List<Leg> getLegs() {
+        return legs;
+    }
+
+    /**
+     * One ride on one train. {@code dateOfTravel} is the day the train leaves
+     * its first station, the date its seats are booked under.
+     */
+    @JsonIgnoreProperties(ignoreUnknown = true)
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    public static class Leg {
+
+        private String trainId;
+        private String trainNo;
+        private String source;
+        private String destination;
+        private LocalDate dateOfTravel;
+        private LocalDateTime departure;
+        private LocalDateTime arrival;
+
+        // Required by Jackson
+        public Leg() {
+        }
+
+        public Leg(
+                String trainId,
+                String trainNo,
+                String source,
+                String destination,
+                LocalDate dateOfTravel,
+                LocalDateTime departure,
+                LocalDateTime arrival
+        ) {
+            this.trainId = trainId;
+            this.trainNo = trainNo;
+            this.source = source;
+            this.destination = destination;
+            this.dateOfTravel = dateOfTravel;
+            this.departure = departure;
+            this.arrival = arrival;
+        }
+
+        public String getTrainId() {
+            return trainId;
+        }
+
+        public String getTrainNo() {
+            return trainNo;
+        }
+
+        public String getSource() {
+            return source;
+        }
+
+        public String getDestination() {
+            return destination;
+        }
+
+        public LocalDate getDateOfTravel() {
+            return dateOfTravel;
+        }
+
+        public LocalDateTime getDeparture() {
+            return departure;
+        }
+
+        public LocalDateTime getArrival() {
+            return arrival;
+        }
+    }
+}
@@ -0,0 +1,142 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import java.util.List;
+
+/**
+ * One change recorded in the booking journal.
+ * Only the fields relevant to the event type are set.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonInclude(JsonInclude.Include.NON_NULL)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class JournalEvent {
+
+    public enum Type {
+        BOOKED,
+        GROUP_BOOKED,
+        CANCELLED,
+        TRAIN_UPDATED,
+        USER_SIGNED_UP,
+        PASSWORD_CHANGED
+    }
+
+    private Type type;
+    private String userId;
+    private String userName;
+    private String ticketId;
+    private Ticket ticket;
+    private List<Ticket> tickets;
+    private Train train;
+    private User user;
+    private String hashedPassword;
+
+    // Required by Jackson
+    public JournalEvent() {
+    }
+
+    private JournalEvent(Type type) {
+        this.type = type;
+    }
+
+    /* =========================
+       Factory Methods
+       ========================= */
+
+    public static JournalEvent booked(User user, Ticket ticket) {
+        JournalEvent event = new JournalEvent(Type.BOOKED);
+        event.userId = user.getUserId();
+        event.userName = user.getName();
+        event.ticketId = ticket.getTicketId();
+        event.ticket = ticket;
+        return event;
+    }
+
+    /**
+     * All tickets of a group booking in one record, so replay restores all or none.
+     */
+    public static JournalEvent groupBooked(User user, List<Ticket> tickets) {
+        JournalEvent event = new JournalEvent(Type.GROUP_BOOKED);
+        event.userId = user.getUserId();
+        event.userName = user.getName();
+        event.tickets = List.copyOf(tickets);
+        return event;
+    }
+
+    public static JournalEvent cancelled(User user, String ticketId) {
+        JournalEvent event = new JournalEvent(Type.CANCELLED);
+        event.userId = user.getUserId();
+        event.userName = user.getName();
+        event.ticketId = ticketId;
+        return event;
+    }
+
+    public static JournalEvent trainUpdated(Train train) {
+        JournalEvent event = new JournalEvent(Type.TRAIN_UPDATED);
+        event.train = train;
+        return event;
+    }
+
+    public static JournalEvent userSignedUp(User user) {
+        JournalEvent event = new JournalEvent(Type.USER_SIGNED_UP);
+        event.userId = user.getUserId();
+        event.userName = user.getName();
+        event.user = user;
+        return event;
+    }
+
+    public static JournalEvent passwordChanged(User user, String hashedPassword) {
+        JournalEvent event = new JournalEvent(Type.PASSWORD_CHANGED);
+        event.userId = user.getUserId();
+        event.userName = user.getName();
+        event.hashedPassword = hashedPassword;
+        return event;
+    }
+
+    /* =========================
+       Getters (NO setters)
+       ========================= */
+
+    public Type getType() {
+        return type;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    /**
+     * Users are partitioned by name, so events carry it to find the partition.
+     */
+    public String getUserName() {
+        return userName;
+    }
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public Ticket getTicket() {
+        return ticket;
+    }
+
+    public List<Ticket> getTickets() {
+        return tickets;
+    }
+
+    public Train getTrain() {
+        return train;
+    }
+
+    public User getUser() {
+        return user;
+    }
+
+    public String getHashedPassword() {
+        return hashedPassword;
+    }
+}
@@ -0,0 +1,268 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.DeserializationContext;
+import com.fasterxml.jackson.databind.SerializerProvider;
+import com.fasterxml.jackson.databind.annotation.JsonDeserialize;
+import com.fasterxml.jackson.databind.annotation.JsonSerialize;
+import com.fasterxml.jackson.databind.deser.std.StdDeserializer;
+import com.fasterxml.jackson.databind.ser.std.StdSerializer;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+
+/**
+ * Primitive seat map: one bitset (long words) per coach/row,
+ * a set bit means the seat is booked.
+ * Stored in JSON as the original nested 0/1 arrays.
+ */
+@JsonSerialize(using = SeatMap.Serializer.class)
+@JsonDeserialize(using = SeatMap.Deserializer.class)
+public final class SeatMap {
+
+    private final int[] widths;
+    private final long[][] occupied;
+
+    public SeatMap(int[] widths) {
+        this.widths = widths.clone();
+        this.occupied = new long[widths.length][];
+        for (int row = 0; row < widths.length; row++) {
+            occupied[row] = new long[wordCount(widths[row])];
+        }
+    }
+
+    /* =========================
+       Factory Methods
+       ========================= */
+
+    public static SeatMap of(List<List<Integer>> seats) {
+        int[] widths = new int[seats.size()];
+        for (int row = 0; row < widths.length; row++) {
+            widths[row] = seats.get(row).size();
+        }
+
+        SeatMap map = new SeatMap(widths);
+        for (int row = 0; row < widths.length; row++) {
+            List<Integer> seatRow = seats.get(row);
+            for (int seat = 0; seat < seatRow.size(); seat++) {
+                if (seatRow.get(seat) != 0) {
+                    map.book(row, seat);
+                }
+            }
+        }
+        return map;
+    }
+
+    /**
+     * Rebuilds a map from the raw words of {@link #rowBits(int)}.
+     */
+    public static SeatMap ofBits(int[] widths, long[][] bits) {
+        SeatMap map = new SeatMap(widths);
+        for (int row = 0; row < widths.length; row++) {
+            System.arraycopy(bits[row], 0, map.occupied[row], 0, map.occupied[row].length);
+        }
+        return map;
+    }
+
+    public List<List<Integer>> toLists() {
+        List<List<Integer>> rows = new ArrayList<>(widths.length);
+        for (int row = 0; row < widths.length; row++) {
+            List<Integer> seatRow = new ArrayList<>(widths[row]);
+            for (int seat = 0; seat < widths[row]; seat++) {
+                seatRow.add(isFree(row, seat) ? 0 : 1);
+            }
+            rows.add(seatRow);
+        }
+        return rows;
+    }
+
+    /* =========================
+       Layout
+       ========================= */
+
+    public int rows() {
+        return widths.length;
+    }
+
+    public int seatsInRow(int row) {
+        return widths[row];
+    }
+
+    public int capacity() {
+        int total = 0;
+        for (int width : widths) total += width;
+        return total;
+    }
+
+    /**
+     * Raw bitset words of one row (bit set = booked), for binary snapshots.
+     */
+    public long[] rowBits(int row) {
+        return occupied[row].clone();
+    }
+
+    public boolean isValid(int row, int seat) {
+        return row >= 0 && row < widths.length
+                && seat >= 0 && seat < widths[row];
+    }
+
+    /* =========================
+       Seat State
+       ========================= */
+
+    public boolean isFree(int row, int seat) {
+        return isValid(row, seat)
+                && (occupied[row][seat >>> 6] & (1L << seat)) == 0;
+    }
+
+    /**
+     * Marks the seat booked; returns false if it was invalid or already booked.
+     */
+    public boolean book(int row, int seat) {
+        if (!isFree(row, seat)) return false;
+        occupied[row][seat >>> 6] |= 1L << seat;
+        return true;
+    }
+
+    public boolean release(int row, int seat) {
+        if (!isValid(row, seat) || isFree(row, seat)) return false;
+        occupied[row][seat >>> 6] &= ~(1L << seat);
+        return true;
+    }
+
+    /**
+     * First free seat in the row, or -1 when the row is full.
+     */
+    public int firstFree(int row) {
+        long[] words = occupied[row];
+        for (int w = 0; w < words.length; w++) {
+            long free = ~words[w];
+            if (free != 0) {
+                int seat = (w << 6) + Long.numberOfTrailingZeros(free);
+                return seat < widths[row] ? seat : -1;
+            }
+        }
+        return -1;
+    }
+
+    public int freeCount(int row) {
+        int booked = 0;
+        for (long word : occupied[row]) booked += Long.bitCount(word);
+        return widths[row] - booked;
+    }
+
+    public int freeCount() {
+        int free = 0;
+        for (int row = 0; row < widths.length; row++) free += freeCount(row);
+        return free;
+    }
+
+    /* =========================
+       Display
+       ========================= */
+
+    public String render() {
+        StringBuilder out = new StringBuilder(capacity() * 2 + widths.length);
+        for (int row = 0; row < widths.length; row++) {
+            for (int seat = 0; seat < widths[row]; seat++) {
+                out.append(isFree(row, seat) ? '0' : '1').append(' ');
+            }
+            out.append('\n');
+        }
+        return out.toString();
+    }
+
+    @Override
+    public boolean equals(Object o) {
+        if (this == o) return true;
+        if (!(o instanceof SeatMap other)) return false;
+        return Arrays.equals(widths, other.widths)
+                && Arrays.deepEquals(occupied, other.occupied);
+    }
+
+    @Override
+    public int hashCode() {
+        return 31 * Arrays.hashCode(widths) + Arrays.deepHashCode(occupied);
+    }
+
+    private static int wordCount(int width) {
+        return (width + 63) >>> 6;
+    }
+
+    /* =========================
+       Jackson
+       ========================= */
+
+    public static final class Serializer extends StdSerializer<SeatMap> {
+
+        public Serializer() {
+            super(SeatMap.class);
+        }
+
+        @Override
+        public void serialize(SeatMap map, JsonGenerator gen, SerializerProvider provider)
+                throws IOException {
+            gen.writeStartArray();
+            for (int row = 0; row < map.widths.length; row++) {
+                gen.writeStartArray();
+                for (int seat = 0; seat < map.widths[row]; seat++) {
+                    gen.writeNumber(map.isFree(row, seat) ? 0 : 1);
+                }
+                gen.writeEndArray();
+            }
+            gen.writeEndArray();
+        }
+    }
+
+    public static final class Deserializer extends StdDeserializer<SeatMap> {
+
+        public Deserializer() {
+            super(SeatMap.class);
+        }
+
+        @Override
+        public SeatMap deserialize(JsonParser p, DeserializationContext ctxt) throws IOException {
+            if (!p.isExpectedStartArrayToken()) {
+                return (SeatMap) ctxt.handleUnexpectedToken(SeatMap.class, p);
+            }
+
+            List<long[]> rows = new ArrayList<>();
+            int[] widths = new int[8];
+
+            while (p.nextToken() != JsonToken.END_ARRAY) {
+                if (!p.isExpectedStartArrayToken()) {
+                    return (SeatMap) ctxt.handleUnexpectedToken(SeatMap.class, p);
+                }
+
+                long[] words = new long[1];
+                int width = 0;
+                while (p.nextToken() != JsonToken.END_ARRAY) {
+                    if (width >>> 6 == words.length) {
+                        words = Arrays.copyOf(words, words.length * 2);
+                    }
+                    if (p.getIntValue() != 0) {
+                        words[width >>> 6] |= 1L << width;
+                    }
+                    width++;
+                }
+
+                if (rows.size() == widths.length) {
+                    widths = Arrays.copyOf(widths, widths.length * 2);
+                }
+                widths[rows.size()] = width;
+                rows.add(words);
+            }
+
+            SeatMap map = new SeatMap(Arrays.copyOf(widths, rows.size()));
+            for (int row = 0; row < rows.size(); row++) {
+                long[] words = rows.get(row);
+                System.arraycopy(words, 0, map.occupied[row], 0, map.occupied[row].length);
+            }
+            return map;
+        }
+    }
+}
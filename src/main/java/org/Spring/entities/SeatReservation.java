@@ -0,0 +1,85 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import java.time.LocalDate;
+
+/**
+ * One seat held on one train, date and segment of stops [fromStop, toStop).
+ * This is the record the seat inventory is persisted and rebuilt from.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class SeatReservation {
+
+    private String ticketId;
+    private String userId;
+    private String trainId;
+    private LocalDate dateOfTravel;
+    private int row;
+    private int seat;
+    private int fromStop;
+    private int toStop;
+
+    // Required by Jackson
+    public SeatReservation() {
+    }
+
+    public SeatReservation(
+            String ticketId,
+            String userId,
+            String trainId,
+            LocalDate dateOfTravel,
+            int row,
+            int seat,
+            int fromStop,
+            int toStop
+    ) {
+        this.ticketId = ticketId;
+        this.userId = userId;
+        this.trainId = trainId;
+        this.dateOfTravel = dateOfTravel;
+        this.row = row;
+        this.seat = seat;
+        this.fromStop = fromStop;
+        this.toStop = toStop;
+    }
+
+    /* =========================
+       Getters (NO setters)
+       ========================= */
+
+    public String getTicketId() {
+        return ticketId;
+    }
+
+    public String getUserId() {
+        return userId;
+    }
+
+    public String getTrainId() {
+        return trainId;
+    }
+
+    public LocalDate getDateOfTravel() {
+        return dateOfTravel;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getFromStop() {
+        return fromStop;
+    }
+
+    public int getToStop() {
+        return toStop;
+    }
+}
@@ -1,22 +1,42 @@
 package org.Spring.entities;
 
+import com.fasterxml.jackson.annotation.JsonIgnore;
 import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.annotation.JsonSetter;
+import com.fasterxml.jackson.databind.JsonNode;
 import com.fasterxml.jackson.databind.PropertyNamingStrategies;
 import com.fasterxml.jackson.databind.annotation.JsonNaming;
 
 import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.UUID;
 
+/**
+ * A booked seat. Only references the train by id; train details are
+ * looked up from the catalog when the ticket is displayed.
+ */
 @JsonIgnoreProperties(ignoreUnknown = true)
 @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
 public class Ticket {
 
+    // Row and seat of a ticket booked before seats were recorded
+    public static final int NO_SEAT = -1;
+
     private String ticketId;
     private String userId;
     private String source;
     private String destination;
     private LocalDate dateOfTravel;
-    private Train train;
+    private String trainId;
+    private int row;
+    private int seat;
+    private int fromStop;
+    private int toStop;
+
+    // Route of an embedded legacy train, until source and destination are both read
+    @JsonIgnore
+    private List<String> legacyStations;
 
     // Required by Jackson
     public Ticket() {
@@ -28,14 +48,22 @@ public class Ticket {
             String source,
             String destination,
             LocalDate dateOfTravel,
-            Train train
+            String trainId,
+            int row,
+            int seat,
+            int fromStop,
+            int toStop
     ) {
         this.ticketId = ticketId;
         this.userId = userId;
         this.source = source;
         this.destination = destination;
         this.dateOfTravel = dateOfTravel;
-        this.train = train;
+        this.trainId = trainId;
+        this.row = row;
+        this.seat = seat;
+        this.fromStop = fromStop;
+        this.toStop = toStop;
     }
 
     /* =========================
@@ -47,7 +75,9 @@ public class Ticket {
             Train train,
             String source,
             String destination,
-            LocalDate dateOfTravel
+            LocalDate dateOfTravel,
+            int row,
+            int seat
     ) {
         return new Ticket(
                 UUID.randomUUID().toString(),
@@ -55,7 +85,29 @@ public class Ticket {
                 source,
                 destination,
                 dateOfTravel,
-                train
+                train.getTrainId(),
+                row,
+                seat,
+                train.stopIndex(source),
+                train.stopIndex(destination)
+        );
+    }
+
+    /**
+     * Ticket for a seat the inventory already picked and holds.
+     */
+    public static Ticket forReservation(SeatReservation reservation, String source, String destination) {
+        return new Ticket(
+                reservation.getTicketId(),
+                reservation.getUserId(),
+                source,
+                destination,
+                reservation.getDateOfTravel(),
+                reservation.getTrainId(),
+                reservation.getRow(),
+                reservation.getSeat(),
+                reservation.getFromStop(),
+                reservation.getToStop()
         );
     }
 
@@ -63,18 +115,91 @@ public class Ticket {
        Business Method
        ========================= */
 
+    @JsonIgnore
     public String getTicketInfo() {
         return String.format(
-                "Ticket ID: %s | User: %s | %s → %s | Date: %s | Train: %s",
+                "Ticket ID: %s | User: %s | %s → %s | Date: %s | Train: %s | Seat: %d-%d",
                 ticketId,
                 userId,
                 source,
                 destination,
                 dateOfTravel,
-                train.getTrainId()
+                trainId,
+                row,
+                seat
         );
     }
 
+    /**
+     * The seat this ticket holds, in inventory terms.
+     */
+    public SeatReservation toReservation() {
+        return new SeatReservation(
+                ticketId,
+                userId,
+                trainId,
+                dateOfTravel,
+                row,
+                seat,
+                fromStop,
+                toStop
+        );
+    }
+
+    /**
+     * False for tickets from before seats were recorded: they hold a journey
+     * but no particular seat, and the seat inventory never held one for them.
+     */
+    @JsonIgnore
+    public boolean hasSeat() {
+        return row != NO_SEAT && seat != NO_SEAT;
+    }
+
+    /**
+     * Older files embed a full Train snapshot in every ticket; keep only its
+     * id, and work the stops out from its route. Those tickets never recorded
+     * a seat, so they get {@link #NO_SEAT} rather than seat 0-0.
+     */
+    @JsonSetter("train")
+    private void setLegacyTrain(JsonNode train) {
+        if (train == null || train.isNull()) return;
+        if (trainId == null && train.hasNonNull("train_id")) {
+            trainId = train.get("train_id").asText();
+        }
+        row = NO_SEAT;
+        seat = NO_SEAT;
+        legacyStations = new ArrayList<>();
+        train.path("stations").forEach(station -> legacyStations.add(station.asText()));
+        resolveLegacyStops();
+    }
+
+    @JsonSetter("source")
+    private void setSource(String source) {
+        this.source = source;
+        resolveLegacyStops();
+    }
+
+    @JsonSetter("destination")
+    private void setDestination(String destination) {
+        this.destination = destination;
+        resolveLegacyStops();
+    }
+
+    // Fields come in any order; runs again as each of the three arrives
+    private void resolveLegacyStops() {
+        if (legacyStations == null) return;
+        fromStop = legacyStopIndex(source);
+        toStop = legacyStopIndex(destination);
+    }
+
+    private int legacyStopIndex(String station) {
+        if (station == null) return -1;
+        for (int i = 0; i < legacyStations.size(); i++) {
+            if (legacyStations.get(i).equalsIgnoreCase(station.trim())) return i;
+        }
+        return -1;
+    }
+
     /* =========================
        Getters (NO setters)
        ========================= */
@@ -99,7 +224,23 @@ public class Ticket {
         return dateOfTravel;
     }
 
-    public Train getTrain() {
-        return train;
+    public String getTrainId() {
+        return trainId;
+    }
+
+    public int getRow() {
+        return row;
+    }
+
+    public int getSeat() {
+        return seat;
+    }
+
+    public int getFromStop() {
+        return fromStop;
+    }
+
+    public int getToStop() {
+        return toStop;
     }
 }
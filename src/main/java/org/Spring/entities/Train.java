@@ -22,7 +22,7 @@ public class Train {
 
     private String trainNo;
 
-    private List<List<Integer>> seats;
+    private SeatMap seats;
 
     private Map<String, String> stationTimes;
 
@@ -30,7 +30,7 @@ public class Train {
 
     public Train(){}
 
-    public Train(String trainId, String trainNo, List<List<Integer>> seats, Map<String, String> stationTimes, List<String> stations){
+    public Train(String trainId, String trainNo, SeatMap seats, Map<String, String> stationTimes, List<String> stations){
         this.trainId = trainId;
         this.trainNo = trainNo;
         this.seats = seats;
@@ -42,11 +42,11 @@ public class Train {
         return stations;
     }
 
-    public List<List<Integer>> getSeats() {
+    public SeatMap getSeats() {
         return seats;
     }
 
-    public void setSeats(List<List<Integer>> seats){
+    public void setSeats(SeatMap seats){
         this.seats = seats;
     }
 
@@ -78,6 +78,17 @@ public class Train {
         this.stations = stations;
     }
 
+    /**
+     * Position of the station in the stop order, or -1 if the train does not stop there.
+     */
+    public int stopIndex(String station){
+        if (stations == null || station == null) return -1;
+        for (int i = 0; i < stations.size(); i++) {
+            if (stations.get(i).equalsIgnoreCase(station.trim())) return i;
+        }
+        return -1;
+    }
+
     public String getTrainInfo(){
         return String.format("Train ID: %s Train No: %s", trainId, trainNo);
     }
@@ -0,0 +1,92 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import com.fasterxml.jackson.annotation.JsonIgnoreProperties;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+
+import java.time.Duration;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+
+/**
+ * A search result: a train with the seats still free on the searched
+ * date and segment.
+ */
+@JsonIgnoreProperties(ignoreUnknown = true)
+@JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+public class TrainAvailability {
+
+    private Train train;
+    private LocalDate dateOfTravel;
+    private int availableSeats;
+    private LocalDateTime departure;
+    private LocalDateTime arrival;
+
+    // Required by Jackson
+    public TrainAvailability() {
+    }
+
+    public TrainAvailability(Train train, LocalDate dateOfTravel, int availableSeats) {
+        this(train, dateOfTravel, availableSeats, null, null);
+    }
+
+    /**
+     * @param dateOfTravel the day the train leaves its first station
+     * @param departure    when it leaves the searched source
+     * @param arrival      when it reaches the searched destination
+     */
+    public TrainAvailability(
+            Train train,
+            LocalDate dateOfTravel,
+            int availableSeats,
+            LocalDateTime departure,
+            LocalDateTime arrival
+    ) {
+        this.train = train;
+        this.dateOfTravel = dateOfTravel;
+        this.availableSeats = availableSeats;
+        this.departure = departure;
+        this.arrival = arrival;
+    }
+
+    /* =========================
+       Business Method
+       ========================= */
+
+    public boolean isSoldOut() {
+        return availableSeats == 0;
+    }
+
+    /**
+     * Travel time on the searched segment, or null when times are unknown.
+     */
+    @JsonIgnore
+    public Duration getDuration() {
+        return departure == null || arrival == null ? null : Duration.between(departure, arrival);
+    }
+
+    /* =========================
+       Getters (NO setters)
+       ========================= */
+
+    public Train getTrain() {
+        return train;
+    }
+
+    public LocalDate getDateOfTravel() {
+        return dateOfTravel;
+    }
+
+    public int getAvailableSeats() {
+        return availableSeats;
+    }
+
+    public LocalDateTime getDeparture() {
+        return departure;
+    }
+
+    public LocalDateTime getArrival() {
+        return arrival;
+    }
+}
@@ -0,0 +1,140 @@
+package org.Spring.metrics;
+
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Lock-free histogram of nanosecond latencies with log-linear buckets,
+ * in the style of HdrHistogram: values below 128 ns are exact, above that
+ * every power of two is split into 64 buckets, so a reported percentile is
+ * within 1/64 (about 1.6%) of the true value. Values are capped at 2^40 ns
+ * (about 18 minutes).
+ *
+ * Recording is a handful of atomic increments into preallocated arrays and
+ * never allocates; reading copies the counters.
+ */
+public final class LatencyHistogram {
+
+    private static final int EXACT_BITS = 7;
+    private static final int EXACT = 1 << EXACT_BITS;           // 128 exact values
+    private static final int SUB_BUCKETS = EXACT >>> 1;         // 64 per power of two
+    private static final int MAX_BITS = 40;
+    private static final long MAX_VALUE = (1L << MAX_BITS) - 1;
+    private static final int BUCKETS = EXACT + (MAX_BITS - EXACT_BITS) * SUB_BUCKETS;
+
+    private final AtomicLongArray counts = new AtomicLongArray(BUCKETS);
+    private final LongAdder total = new LongAdder();
+    private final LongAdder sum = new LongAdder();
+    private final AtomicLong max = new AtomicLong();
+
+    /* =========================
+       Recording
+       ========================= */
+
+    public void record(long nanos) {
+        long value = Math.min(Math.max(nanos, 0), MAX_VALUE);
+        counts.incrementAndGet(bucketOf(value));
+        total.increment();
+        sum.add(value);
+
+        long seen = max.get();
+        while (value > seen && !max.compareAndSet(seen, value)) {
+            seen = max.get();
+        }
+    }
+
+    public void reset() {
+        for (int i = 0; i < BUCKETS; i++) {
+            counts.set(i, 0);
+        }
+        total.reset();
+        sum.reset();
+        max.set(0);
+    }
+
+    /* =========================
+       Reading
+       ========================= */
+
+    /**
+     * A consistent-enough copy for reporting; recordings that race with it
+     * may or may not be included.
+     */
+    public Snapshot snapshot() {
+        long[] copy = new long[BUCKETS];
+        long count = 0;
+        for (int i = 0; i < BUCKETS; i++) {
+            copy[i] = counts.get(i);
+            count += copy[i];
+        }
+        return new Snapshot(copy, count, sum.sum(), max.get());
+    }
+
+    public long count() {
+        return total.sum();
+    }
+
+    /**
+     * Percentiles and totals of a histogram at one point in time, in nanoseconds.
+     */
+    public static final class Snapshot {
+
+        private final long[] counts;
+        private final long count;
+        private final long sum;
+        private final long max;
+
+        private Snapshot(long[] counts, long count, long sum, long max) {
+            this.counts = counts;
+            this.count = count;
+            this.sum = sum;
+            this.max = max;
+        }
+
+        public long count() {
+            return count;
+        }
+
+        public double mean() {
+            return count == 0 ? 0 : (double) sum / count;
+        }
+
+        public long max() {
+            return max;
+        }
+
+        /**
+         * Smallest recorded value that {@code percentile}% of values do not exceed
+         * (bucket upper bound, never above the maximum).
+         */
+        public long percentile(double percentile) {
+            if (count == 0) return 0;
+            long rank = Math.max(1, (long) Math.ceil(count * percentile / 100.0));
+            long seen = 0;
+            for (int i = 0; i < counts.length; i++) {
+                seen += counts[i];
+                if (seen >= rank) return Math.min(upperBoundOf(i), max);
+            }
+            return max;
+        }
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    static int bucketOf(long value) {
+        if (value < EXACT) return (int) value;
+        int shift = 64 - Long.numberOfLeadingZeros(value) - EXACT_BITS;
+        int mantissa = (int) (value >>> shift);                 // 64..127
+        return EXACT + (shift - 1) * SUB_BUCKETS + (mantissa - SUB_BUCKETS);
+    }
+
+    static long upperBoundOf(int bucket) {
+        if (bucket < EXACT) return bucket;
+        int shift = (bucket - EXACT) / SUB_BUCKETS + 1;
+        long mantissa = (bucket - EXACT) % SUB_BUCKETS + SUB_BUCKETS;
+        return ((mantissa + 1) << shift) - 1;
+    }
+}
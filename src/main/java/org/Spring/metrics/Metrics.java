@@ -0,0 +1,240 @@
+package org.Spring.metrics;
+
+import javax.management.JMException;
+import javax.management.MBeanServer;
+import javax.management.ObjectName;
+import java.lang.management.ManagementFactory;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Process-wide latency histograms and outcome counters per {@link Operation}.
+ *
+ * <pre>
+ *   long start = Metrics.start();
+ *   ...
+ *   Metrics.record(Operation.BOOK, start, booked);   // or failed(...) on an exception
+ * </pre>
+ * Recording takes no locks and allocates nothing while tracing is below DEBUG.
+ * Read the numbers with {@link #dump()} or over JMX (org.Spring:type=Metrics),
+ * unless -Dirctc.metrics.jmx=false.
+ */
+public final class Metrics {
+
+    private static final Operation[] OPERATIONS = Operation.values();
+    private static final OperationMetrics[] BY_OPERATION = new OperationMetrics[OPERATIONS.length];
+
+    static {
+        for (Operation operation : OPERATIONS) {
+            BY_OPERATION[operation.ordinal()] = new OperationMetrics();
+        }
+        if (Boolean.parseBoolean(System.getProperty("irctc.metrics.jmx", "true"))) {
+            registerMBeans();
+        }
+    }
+
+    // Prevent instantiation
+    private Metrics() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /* =========================
+       Recording
+       ========================= */
+
+    public static long start() {
+        return System.nanoTime();
+    }
+
+    /**
+     * @param accepted false when the operation ran but was refused
+     *                 (seat taken, wrong password, name in use, ...)
+     */
+    public static void record(Operation operation, long startNanos, boolean accepted) {
+        long nanos = System.nanoTime() - startNanos;
+        OperationMetrics metrics = BY_OPERATION[operation.ordinal()];
+        metrics.latency.record(nanos);
+        if (!accepted) metrics.rejected.increment();
+
+        if (Trace.isEnabled(Trace.Level.DEBUG)) {
+            Trace.log(Trace.Level.DEBUG, operation.label(),
+                    "outcome", accepted ? "ok" : "rejected",
+                    "micros", TimeUnit.NANOSECONDS.toMicros(nanos));
+        }
+    }
+
+    public static void succeeded(Operation operation, long startNanos) {
+        record(operation, startNanos, true);
+    }
+
+    public static void failed(Operation operation, long startNanos, Throwable cause) {
+        long nanos = System.nanoTime() - startNanos;
+        OperationMetrics metrics = BY_OPERATION[operation.ordinal()];
+        metrics.latency.record(nanos);
+        metrics.failed.increment();
+
+        if (Trace.isEnabled(Trace.Level.ERROR)) {
+            Trace.log(Trace.Level.ERROR, operation.label(),
+                    "outcome", "failed",
+                    "micros", TimeUnit.NANOSECONDS.toMicros(nanos),
+                    "error", cause);
+        }
+    }
+
+    /* =========================
+       Reading
+       ========================= */
+
+    public static long calls(Operation operation) {
+        return BY_OPERATION[operation.ordinal()].latency.count();
+    }
+
+    public static long rejections(Operation operation) {
+        return BY_OPERATION[operation.ordinal()].rejected.sum();
+    }
+
+    public static long failures(Operation operation) {
+        return BY_OPERATION[operation.ordinal()].failed.sum();
+    }
+
+    public static LatencyHistogram.Snapshot latency(Operation operation) {
+        return BY_OPERATION[operation.ordinal()].latency.snapshot();
+    }
+
+    /**
+     * One line per operation, latencies in microseconds.
+     */
+    public static String dump() {
+        StringBuilder text = new StringBuilder(String.format("%-8s %10s %10s %8s %10s %10s %10s %10s %10s%n",
+                "op", "calls", "rejected", "failed", "mean_us", "p50_us", "p99_us", "p999_us", "max_us"));
+        for (Operation operation : OPERATIONS) {
+            OperationMetrics metrics = BY_OPERATION[operation.ordinal()];
+            LatencyHistogram.Snapshot latency = metrics.latency.snapshot();
+            text.append(String.format("%-8s %10d %10d %8d %10.1f %10d %10d %10d %10d%n",
+                    operation.label(),
+                    latency.count(),
+                    metrics.rejected.sum(),
+                    metrics.failed.sum(),
+                    latency.mean() / 1_000.0,
+                    micros(latency.percentile(50)),
+                    micros(latency.percentile(99)),
+                    micros(latency.percentile(99.9)),
+                    micros(latency.max())));
+        }
+        return text.toString();
+    }
+
+    public static void reset() {
+        for (OperationMetrics metrics : BY_OPERATION) {
+            metrics.latency.reset();
+            metrics.rejected.reset();
+            metrics.failed.reset();
+        }
+    }
+
+    /* =========================
+       JMX
+       ========================= */
+
+    private static void registerMBeans() {
+        try {
+            MBeanServer server = ManagementFactory.getPlatformMBeanServer();
+            server.registerMBean(new Controls(), new ObjectName("org.Spring:type=Metrics"));
+            for (Operation operation : OPERATIONS) {
+                server.registerMBean(
+                        new OperationView(operation),
+                        new ObjectName("org.Spring:type=Metrics,operation=" + operation.label())
+                );
+            }
+        } catch (JMException | SecurityException ex) {
+            // Metrics still work, they just cannot be read over JMX
+            Trace.log(Trace.Level.ERROR, "metrics-jmx", "error", ex);
+        }
+    }
+
+    private static final class Controls implements MetricsMXBean {
+
+        @Override
+        public String getTraceLevel() {
+            return Trace.getLevel().name();
+        }
+
+        @Override
+        public void setTraceLevel(String level) {
+            Trace.setLevel(Trace.parse(level));
+        }
+
+        @Override
+        public String dump() {
+            return Metrics.dump();
+        }
+
+        @Override
+        public void reset() {
+            Metrics.reset();
+        }
+    }
+
+    private static final class OperationView implements OperationMXBean {
+
+        private final Operation operation;
+
+        OperationView(Operation operation) {
+            this.operation = operation;
+        }
+
+        @Override
+        public long getCalls() {
+            return calls(operation);
+        }
+
+        @Override
+        public long getRejected() {
+            return rejections(operation);
+        }
+
+        @Override
+        public long getFailed() {
+            return failures(operation);
+        }
+
+        @Override
+        public double getMeanMicros() {
+            return latency(operation).mean() / 1_000.0;
+        }
+
+        @Override
+        public long getP50Micros() {
+            return micros(latency(operation).percentile(50));
+        }
+
+        @Override
+        public long getP99Micros() {
+            return micros(latency(operation).percentile(99));
+        }
+
+        @Override
+        public long getP999Micros() {
+            return micros(latency(operation).percentile(99.9));
+        }
+
+        @Override
+        public long getMaxMicros() {
+            return micros(latency(operation).max());
+        }
+    }
+
+    private static final class OperationMetrics {
+        private final LatencyHistogram latency = new LatencyHistogram();
+        private final LongAdder rejected = new LongAdder();
+        private final LongAdder failed = new LongAdder();
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private static long micros(long nanos) {
+        return TimeUnit.NANOSECONDS.toMicros(nanos);
+    }
+}
@@ -0,0 +1,18 @@
+package org.Spring.metrics;
+
+/**
+ * JMX controls registered as org.Spring:type=Metrics.
+ */
+public interface MetricsMXBean {
+
+    String getTraceLevel();
+
+    /**
+     * One of OFF, ERROR, INFO, DEBUG.
+     */
+    void setTraceLevel(String level);
+
+    String dump();
+
+    void reset();
+}
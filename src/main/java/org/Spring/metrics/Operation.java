@@ -0,0 +1,23 @@
+package org.Spring.metrics;
+
+import java.util.Locale;
+
+/**
+ * Operations whose latency and outcome are measured.
+ */
+public enum Operation {
+    SEARCH,
+    BOOK,
+    CANCEL,
+    LOGIN,
+    SIGNUP,
+    LOAD,
+    SAVE;
+
+    /**
+     * Lower-case name used in dumps, traces and JMX object names.
+     */
+    public String label() {
+        return name().toLowerCase(Locale.ROOT);
+    }
+}
@@ -0,0 +1,24 @@
+package org.Spring.metrics;
+
+/**
+ * JMX view of one {@link Operation}, registered as
+ * org.Spring:type=Metrics,operation=&lt;label&gt;. Latencies are in microseconds.
+ */
+public interface OperationMXBean {
+
+    long getCalls();
+
+    long getRejected();
+
+    long getFailed();
+
+    double getMeanMicros();
+
+    long getP50Micros();
+
+    long getP99Micros();
+
+    long getP999Micros();
+
+    long getMaxMicros();
+}
@@ -0,0 +1,93 @@
+package org.Spring.metrics;
+
+import java.io.PrintStream;
+import java.time.Instant;
+import java.util.Locale;
+
+/**
+ * Structured trace lines ("time level event key=value ...") on stderr,
+ * filtered by a level that can be changed while running: with
+ * -Dirctc.trace.level, {@link #setLevel} or the Metrics MXBean.
+ *
+ * Callers on hot paths check {@link #isEnabled} first so nothing is
+ * formatted or allocated while the level is off.
+ */
+public final class Trace {
+
+    public enum Level {
+        OFF,
+        ERROR,
+        INFO,
+        DEBUG
+    }
+
+    private static volatile Level level = parse(System.getProperty("irctc.trace.level", "ERROR"));
+    private static volatile PrintStream out = System.err;
+
+    // Prevent instantiation
+    private Trace() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    public static boolean isEnabled(Level wanted) {
+        return wanted != Level.OFF && wanted.ordinal() <= level.ordinal();
+    }
+
+    public static Level getLevel() {
+        return level;
+    }
+
+    public static void setLevel(Level newLevel) {
+        level = newLevel;
+    }
+
+    /**
+     * @throws IllegalArgumentException for an unknown level name
+     */
+    public static Level parse(String name) {
+        return Level.valueOf(name.trim().toUpperCase(Locale.ROOT));
+    }
+
+    /**
+     * Writes one line if the level is enabled.
+     *
+     * @param fields alternating keys and values
+     */
+    public static void log(Level at, String event, Object... fields) {
+        if (!isEnabled(at)) return;
+
+        StringBuilder line = new StringBuilder(64)
+                .append(Instant.now())
+                .append(' ').append(at)
+                .append(' ').append(event);
+        for (int i = 0; i + 1 < fields.length; i += 2) {
+            line.append(' ').append(fields[i]).append('=');
+            appendValue(line, fields[i + 1]);
+        }
+        out.println(line);
+    }
+
+    /**
+     * Where trace lines go; tests capture them with this.
+     */
+    static void setOutput(PrintStream stream) {
+        out = stream;
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private static void appendValue(StringBuilder line, Object value) {
+        String text = String.valueOf(value);
+        if (text.isEmpty() || text.indexOf(' ') >= 0 || text.indexOf('"') >= 0) {
+            line.append('"').append(text.replace("\"", "\\\"")).append('"');
+        } else {
+            line.append(text);
+        }
+    }
+}
@@ -0,0 +1,69 @@
+package org.Spring.persistence;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+
+/**
+ * Crash-safe replacement of whole files: write a temporary sibling, fsync it,
+ * rename it over the target and fsync the directory. A reader (or a restart)
+ * sees either the old file or the new one, never a half-written mix.
+ */
+public final class AtomicFiles {
+
+    // Prevent instantiation
+    private AtomicFiles() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Where to write the next version of the target before {@link #replace}.
+     */
+    public static Path temporarySibling(Path target) {
+        return target.resolveSibling(target.getFileName() + ".tmp");
+    }
+
+    /**
+     * Makes the fully written temporary file durable and moves it over the target.
+     */
+    public static void replace(Path temp, Path target) throws IOException {
+        try (FileChannel channel = FileChannel.open(temp, StandardOpenOption.WRITE)) {
+            channel.force(true);
+        }
+        Files.move(temp, target, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Makes every file of a fully written temporary directory durable and
+     * moves the directory into place as the target, which must not exist yet.
+     */
+    public static void publishDirectory(Path temp, Path target) throws IOException {
+        try (var files = Files.list(temp)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                try (FileChannel channel = FileChannel.open(file, StandardOpenOption.WRITE)) {
+                    channel.force(true);
+                }
+            }
+        }
+        syncDirectory(temp);
+        Files.move(temp, target, StandardCopyOption.ATOMIC_MOVE);
+        syncDirectory(target.toAbsolutePath().getParent());
+    }
+
+    /**
+     * Persists the rename itself. Best effort: not every platform lets a
+     * directory be opened for fsync.
+     */
+    private static void syncDirectory(Path directory) {
+        if (directory == null) return;
+        try (FileChannel channel = FileChannel.open(directory, StandardOpenOption.READ)) {
+            channel.force(true);
+        } catch (IOException ex) {
+            // Windows and some file systems refuse; the rename still happened
+        }
+    }
+}
@@ -0,0 +1,391 @@
+package org.Spring.persistence;
+
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+
+import java.io.BufferedOutputStream;
+import java.io.DataOutputStream;
+import java.io.File;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Consumer;
+
+/**
+ * Compact binary snapshot files, read back through a memory-mapped buffer.
+ *
+ * Layout (big-endian):
+ * <pre>
+ *   header   int magic "IRCB", short version, byte record type, byte 0,
+ *            int record count, int string count, long string table offset
+ *   records  fields in a fixed order; strings are indexes into the table (-1 = null),
+ *            ticket ids are inline (int byte length, UTF-8 bytes), seat maps are their
+ *            raw bitset words
+ *   strings  per string: int byte length, UTF-8 bytes
+ * </pre>
+ * Every distinct string (station, train id, user id, time) is stored once;
+ * ticket ids never repeat, so they skip the table.
+ * A file is written to a temporary sibling and swapped in by {@link AtomicFiles}.
+ */
+public final class BinarySnapshot {
+
+    private static final int MAGIC = 0x49524342;
+    private static final short VERSION = 1;
+    private static final int HEADER_BYTES = 24;
+
+    private static final int NULL = -1;
+
+    public static final RecordType<Train> TRAINS =
+            new RecordType<>(1, BinarySnapshot::writeTrain, BinarySnapshot::readTrain);
+    public static final RecordType<SeatReservation> RESERVATIONS =
+            new RecordType<>(2, BinarySnapshot::writeReservation, BinarySnapshot::readReservation);
+    public static final RecordType<User> USERS =
+            new RecordType<>(3, BinarySnapshot::writeUser, BinarySnapshot::readUser);
+
+    // Prevent instantiation
+    private BinarySnapshot() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    /**
+     * Replaces the file with a snapshot of the records.
+     *
+     * @return the number of records written
+     */
+    public static <T> int write(File file, RecordType<T> type, Iterable<? extends T> records) throws IOException {
+        Path target = file.toPath();
+        Path temp = AtomicFiles.temporarySibling(target);
+
+        int count = 0;
+        try (FileChannel channel = FileChannel.open(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.TRUNCATE_EXISTING,
+                StandardOpenOption.WRITE
+        )) {
+            channel.position(HEADER_BYTES);
+            // Not closed: that would close the channel before the header is written
+            DataOutputStream data = new DataOutputStream(
+                    new BufferedOutputStream(Channels.newOutputStream(channel), 1 << 16));
+
+            Output out = new Output(data);
+            for (T record : records) {
+                type.encoder.write(record, out);
+                count++;
+            }
+            data.flush();
+
+            long stringsAt = channel.position();
+            for (String value : out.strings.keySet()) {
+                byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+                data.writeInt(bytes.length);
+                data.write(bytes);
+            }
+            data.flush();
+
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES)
+                    .putInt(MAGIC)
+                    .putShort(VERSION)
+                    .put(type.id)
+                    .put((byte) 0)
+                    .putInt(count)
+                    .putInt(out.strings.size())
+                    .putLong(stringsAt)
+                    .flip();
+            channel.write(header, 0);
+        }
+
+        AtomicFiles.replace(temp, target);
+        return count;
+    }
+
+    /**
+     * Maps the file and hands every record to the consumer.
+     *
+     * @return the number of records read
+     */
+    public static <T> int read(File file, RecordType<T> type, Consumer<? super T> consumer) throws IOException {
+        try (FileChannel channel = FileChannel.open(file.toPath(), StandardOpenOption.READ)) {
+            long size = channel.size();
+            if (size < HEADER_BYTES || size > Integer.MAX_VALUE) {
+                throw new IOException("Not a readable snapshot (" + size + " bytes): " + file);
+            }
+            MappedByteBuffer buffer = channel.map(FileChannel.MapMode.READ_ONLY, 0, size);
+
+            if (buffer.getInt(0) != MAGIC) {
+                throw new IOException("Not a snapshot file: " + file);
+            }
+            short version = buffer.getShort(4);
+            if (version != VERSION) {
+                throw new IOException("Unsupported snapshot version " + version + " in " + file);
+            }
+            if (buffer.get(6) != type.id) {
+                throw new IOException("Snapshot " + file + " holds record type " + buffer.get(6)
+                        + ", expected " + type.id);
+            }
+            int records = buffer.getInt(8);
+            int strings = buffer.getInt(12);
+            long stringsAt = buffer.getLong(16);
+
+            String[] table = new String[strings];
+            buffer.position((int) stringsAt);
+            for (int i = 0; i < strings; i++) {
+                byte[] bytes = new byte[buffer.getInt()];
+                buffer.get(bytes);
+                table[i] = new String(bytes, StandardCharsets.UTF_8);
+            }
+
+            buffer.position(HEADER_BYTES);
+            Input in = new Input(buffer, table);
+            for (int i = 0; i < records; i++) {
+                consumer.accept(type.decoder.read(in));
+            }
+            return records;
+        }
+    }
+
+    /* =========================
+       Record Types
+       ========================= */
+
+    private static void writeTrain(Train train, Output out) throws IOException {
+        out.string(train.getTrainId());
+        out.string(train.getTrainNo());
+
+        SeatMap seats = train.getSeats();
+        out.data.writeInt(seats == null ? NULL : seats.rows());
+        if (seats != null) {
+            for (int row = 0; row < seats.rows(); row++) {
+                out.data.writeInt(seats.seatsInRow(row));
+                for (long word : seats.rowBits(row)) {
+                    out.data.writeLong(word);
+                }
+            }
+        }
+
+        List<String> stations = train.getStations();
+        out.data.writeInt(stations == null ? NULL : stations.size());
+        if (stations != null) {
+            for (String station : stations) out.string(station);
+        }
+
+        Map<String, String> times = train.getStationTimes();
+        out.data.writeInt(times == null ? NULL : times.size());
+        if (times != null) {
+            for (Map.Entry<String, String> time : times.entrySet()) {
+                out.string(time.getKey());
+                out.string(time.getValue());
+            }
+        }
+    }
+
+    private static Train readTrain(Input in) {
+        String trainId = in.string();
+        String trainNo = in.string();
+
+        SeatMap seats = null;
+        int rows = in.buffer.getInt();
+        if (rows != NULL) {
+            int[] widths = new int[rows];
+            long[][] bits = new long[rows][];
+            for (int row = 0; row < rows; row++) {
+                widths[row] = in.buffer.getInt();
+                bits[row] = new long[(widths[row] + 63) >>> 6];
+                for (int w = 0; w < bits[row].length; w++) {
+                    bits[row][w] = in.buffer.getLong();
+                }
+            }
+            seats = SeatMap.ofBits(widths, bits);
+        }
+
+        List<String> stations = null;
+        int stops = in.buffer.getInt();
+        if (stops != NULL) {
+            stations = new ArrayList<>(stops);
+            for (int i = 0; i < stops; i++) stations.add(in.string());
+        }
+
+        Map<String, String> times = null;
+        int timed = in.buffer.getInt();
+        if (timed != NULL) {
+            times = new LinkedHashMap<>();
+            for (int i = 0; i < timed; i++) times.put(in.string(), in.string());
+        }
+
+        return new Train(trainId, trainNo, seats, times, stations);
+    }
+
+    private static void writeReservation(SeatReservation reservation, Output out) throws IOException {
+        out.inline(reservation.getTicketId());
+        out.string(reservation.getUserId());
+        out.string(reservation.getTrainId());
+        out.date(reservation.getDateOfTravel());
+        out.data.writeInt(reservation.getRow());
+        out.data.writeInt(reservation.getSeat());
+        out.data.writeInt(reservation.getFromStop());
+        out.data.writeInt(reservation.getToStop());
+    }
+
+    private static SeatReservation readReservation(Input in) {
+        return new SeatReservation(
+                in.inline(),
+                in.string(),
+                in.string(),
+                in.date(),
+                in.buffer.getInt(),
+                in.buffer.getInt(),
+                in.buffer.getInt(),
+                in.buffer.getInt()
+        );
+    }
+
+    private static void writeUser(User user, Output out) throws IOException {
+        out.string(user.getName());
+        out.string(user.getPassword());
+        out.string(user.getHashedPassword());
+        out.string(user.getUserId());
+
+        List<Ticket> tickets = user.getTicketsBooked();
+        out.data.writeInt(tickets == null ? NULL : tickets.size());
+        if (tickets != null) {
+            for (Ticket ticket : tickets) {
+                out.string(ticket.getSource());
+                out.string(ticket.getDestination());
+                writeReservation(ticket.toReservation(), out);
+            }
+        }
+    }
+
+    private static User readUser(Input in) {
+        String name = in.string();
+        String password = in.string();
+        String hashedPassword = in.string();
+        String userId = in.string();
+
+        List<Ticket> tickets = null;
+        int count = in.buffer.getInt();
+        if (count != NULL) {
+            tickets = new ArrayList<>(count);
+            for (int i = 0; i < count; i++) {
+                String source = in.string();
+                String destination = in.string();
+                tickets.add(Ticket.forReservation(readReservation(in), source, destination));
+            }
+        }
+        return new User(name, password, hashedPassword, tickets, userId);
+    }
+
+    /* =========================
+       Encoding
+       ========================= */
+
+    /**
+     * How one kind of record is laid out in a snapshot.
+     */
+    public static final class RecordType<T> {
+
+        private final byte id;
+        private final Encoder<T> encoder;
+        private final Decoder<T> decoder;
+
+        private RecordType(int id, Encoder<T> encoder, Decoder<T> decoder) {
+            this.id = (byte) id;
+            this.encoder = encoder;
+            this.decoder = decoder;
+        }
+    }
+
+    @FunctionalInterface
+    private interface Encoder<T> {
+        void write(T record, Output out) throws IOException;
+    }
+
+    @FunctionalInterface
+    private interface Decoder<T> {
+        T read(Input in);
+    }
+
+    private static final class Output {
+
+        private final DataOutputStream data;
+        // string -> index, in first-use order
+        private final Map<String, Integer> strings = new LinkedHashMap<>();
+
+        Output(DataOutputStream data) {
+            this.data = data;
+        }
+
+        void string(String value) throws IOException {
+            if (value == null) {
+                data.writeInt(NULL);
+                return;
+            }
+            Integer index = strings.get(value);
+            if (index == null) {
+                index = strings.size();
+                strings.put(value, index);
+            }
+            data.writeInt(index);
+        }
+
+        void inline(String value) throws IOException {
+            if (value == null) {
+                data.writeInt(NULL);
+                return;
+            }
+            byte[] bytes = value.getBytes(StandardCharsets.UTF_8);
+            data.writeInt(bytes.length);
+            data.write(bytes);
+        }
+
+        void date(LocalDate date) throws IOException {
+            data.writeLong(date == null ? Long.MIN_VALUE : date.toEpochDay());
+        }
+    }
+
+    private static final class Input {
+
+        private final ByteBuffer buffer;
+        private final String[] strings;
+
+        Input(ByteBuffer buffer, String[] strings) {
+            this.buffer = buffer;
+            this.strings = strings;
+        }
+
+        String string() {
+            int index = buffer.getInt();
+            return index == NULL ? null : strings[index];
+        }
+
+        String inline() {
+            int length = buffer.getInt();
+            if (length == NULL) return null;
+            byte[] bytes = new byte[length];
+            buffer.get(bytes);
+            return new String(bytes, StandardCharsets.UTF_8);
+        }
+
+        LocalDate date() {
+            long epochDay = buffer.getLong();
+            return epochDay == Long.MIN_VALUE ? null : LocalDate.ofEpochDay(epochDay);
+        }
+    }
+}
@@ -0,0 +1,541 @@
+package org.Spring.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.JournalEvent;
+import org.Spring.metrics.Trace;
+
+import java.io.ByteArrayOutputStream;
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only write-ahead journal of booking events.
+ *
+ * Record layout: [int length][int crc32][length bytes of JSON event].
+ * A torn or corrupt tail (crash mid-append) is dropped on replay.
+ * With group fsync on, concurrent appenders share one force() call.
+ *
+ * With a commit interval the journal is write-behind: append only buffers
+ * the record and returns a future, and a background thread writes (and
+ * forces) everything buffered in one go every interval. Callers then never
+ * wait on the disk, and can wait on the future before acknowledging.
+ *
+ * A change that updates memory and appends its record holds
+ * {@link #changeLock()} across both, so compaction never sees one without the other.
+ */
+public final class BookingJournal implements Closeable {
+
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final ObjectMapper objectMapper;
+    private final Path file;
+    // Swapped by compaction; guarded by syncLock, and appendLock for direct appends
+    private FileChannel channel;
+    private final boolean fsync;
+    private final ScheduledExecutorService committer;
+
+    // Shared by changes, taken exclusively by compaction
+    private final ReadWriteLock changes = new ReentrantReadWriteLock();
+    private final Object appendLock = new Object();
+    private final Object syncLock = new Object();
+    private final Object compactLock = new Object();
+    private long writtenPosition;
+    private long syncedPosition;
+
+    // Write-behind state, guarded by appendLock
+    private ByteArrayOutputStream buffered = new ByteArrayOutputStream();
+    private final ArrayDeque<Waiter> waiters = new ArrayDeque<>();
+    private long appendedPosition;
+    private long durablePosition;
+    private boolean closed;
+    // Bumped each time compaction drops records, guarded by appendLock
+    private long generation;
+
+    // Tests set this to make every commit fail as a full disk would
+    volatile boolean failCommits;
+
+    /* =========================
+       Construction
+       ========================= */
+
+    /**
+     * A journal that writes every record on the appending thread.
+     */
+    public BookingJournal(Path file, boolean fsync) throws IOException {
+        this(file, fsync, 0);
+    }
+
+    /**
+     * @param commitMillis how often buffered records are written as one batch;
+     *                     0 writes on the appending thread instead
+     */
+    public BookingJournal(Path file, boolean fsync, long commitMillis) throws IOException {
+        this.objectMapper = createMapper();
+        this.file = file;
+        this.fsync = fsync;
+        this.channel = FileChannel.open(
+                file,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.READ,
+                StandardOpenOption.WRITE
+        );
+        this.writtenPosition = validLength();
+        this.syncedPosition = writtenPosition;
+        this.appendedPosition = writtenPosition;
+        this.durablePosition = writtenPosition;
+
+        // Drop any torn tail so new records follow the last good one
+        channel.truncate(writtenPosition);
+        channel.position(writtenPosition);
+
+        if (commitMillis > 0) {
+            this.committer = Executors.newSingleThreadScheduledExecutor(r -> {
+                Thread thread = new Thread(r, "journal-commit");
+                thread.setDaemon(true);
+                return thread;
+            });
+            committer.scheduleWithFixedDelay(this::commit, commitMillis, commitMillis, TimeUnit.MILLISECONDS);
+        } else {
+            this.committer = null;
+        }
+    }
+
+    /* =========================
+       Append
+       ========================= */
+
+    /**
+     * Adds the event to the journal.
+     *
+     * @return completes once the record is on disk (forced, with fsync on);
+     * already complete unless the journal is write-behind
+     */
+    public CompletableFuture<Void> append(JournalEvent event) throws IOException {
+        byte[] payload = objectMapper.writeValueAsBytes(event);
+
+        CRC32 crc = new CRC32();
+        crc.update(payload);
+
+        ByteBuffer record = ByteBuffer.allocate(HEADER_BYTES + payload.length);
+        record.putInt(payload.length);
+        record.putInt((int) crc.getValue());
+        record.put(payload);
+        record.flip();
+
+        if (committer != null) {
+            synchronized (appendLock) {
+                if (closed) throw new IOException("Journal is closed: " + file);
+                buffered.write(record.array(), 0, record.limit());
+                appendedPosition += record.limit();
+                return durableAt(appendedPosition);
+            }
+        }
+
+        long end;
+        synchronized (appendLock) {
+            while (record.hasRemaining()) {
+                channel.write(record);
+            }
+            writtenPosition += record.limit();
+            appendedPosition = writtenPosition;
+            end = writtenPosition;
+        }
+
+        if (fsync) {
+            syncTo(end);
+        }
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Held by a change from its in-memory update until its record is
+     * appended. Changes share it; compaction waits for them to finish.
+     */
+    public Lock changeLock() {
+        return changes.readLock();
+    }
+
+    /**
+     * Completes once everything appended so far is on disk.
+     */
+    public CompletableFuture<Void> whenDurable() {
+        if (committer == null) return CompletableFuture.completedFuture(null);
+        synchronized (appendLock) {
+            return durableAt(appendedPosition);
+        }
+    }
+
+    /**
+     * Group commit: whoever gets the lock forces everything written so far,
+     * the threads queued behind it usually find their record already synced.
+     */
+    private void syncTo(long position) throws IOException {
+        synchronized (syncLock) {
+            if (syncedPosition >= position) return;
+
+            long target;
+            synchronized (appendLock) {
+                target = writtenPosition;
+            }
+            channel.force(false);
+            syncedPosition = target;
+        }
+    }
+
+    /* =========================
+       Write-behind
+       ========================= */
+
+    /**
+     * Writes every buffered record with one write and at most one force,
+     * then completes the futures it covered. On failure the batch goes back
+     * in front of the buffer and the next run retries it, for as long as it
+     * takes: the futures stay pending meanwhile, since the records may yet
+     * land. Only {@link #close()} gives up on them.
+     */
+    private void commit() {
+        List<Waiter> done = new ArrayList<>();
+        synchronized (syncLock) {
+            byte[] batch;
+            synchronized (appendLock) {
+                if (buffered.size() == 0) return;
+                batch = buffered.toByteArray();
+                buffered.reset();
+            }
+
+            try {
+                if (failCommits) throw new IOException("Commit failure injected");
+                ByteBuffer buffer = ByteBuffer.wrap(batch);
+                while (buffer.hasRemaining()) {
+                    channel.write(buffer);
+                }
+                if (fsync) {
+                    channel.force(false);
+                }
+            } catch (IOException ex) {
+                Trace.log(Trace.Level.ERROR, "journal-commit", "bytes", batch.length, "error", ex);
+                restore(batch);
+                return;
+            }
+
+            synchronized (appendLock) {
+                writtenPosition += batch.length;
+                syncedPosition = writtenPosition;
+                durablePosition = writtenPosition;
+                while (!waiters.isEmpty() && waiters.peek().position <= durablePosition) {
+                    done.add(waiters.poll());
+                }
+            }
+        }
+        // Outside the locks: callers' continuations may run here
+        done.forEach(waiter -> waiter.future.complete(null));
+    }
+
+    /**
+     * Cuts whatever part of a failed batch reached the file and puts the batch back.
+     */
+    private void restore(byte[] batch) {
+        try {
+            channel.truncate(writtenPosition);
+            channel.position(writtenPosition);
+        } catch (IOException ex) {
+            Trace.log(Trace.Level.ERROR, "journal-commit", "truncate", writtenPosition, "error", ex);
+        }
+        synchronized (appendLock) {
+            ByteArrayOutputStream merged = new ByteArrayOutputStream(batch.length + buffered.size());
+            merged.writeBytes(batch);
+            merged.writeBytes(buffered.toByteArray());
+            buffered = merged;
+        }
+    }
+
+    // Caller holds appendLock
+    private CompletableFuture<Void> durableAt(long position) {
+        if (position <= durablePosition) return CompletableFuture.completedFuture(null);
+        CompletableFuture<Void> future = new CompletableFuture<>();
+        waiters.add(new Waiter(position, future));
+        return future;
+    }
+
+    private record Waiter(long position, CompletableFuture<Void> future) {
+    }
+
+    /* =========================
+       Replay
+       ========================= */
+
+    /**
+     * Hands every appended record to the handler in order, those still
+     * buffered for the next commit included. Holds off the commits and
+     * compaction's file swap meanwhile, so the file cannot change under the read.
+     */
+    public void replay(Consumer<JournalEvent> handler) throws IOException {
+        synchronized (syncLock) {
+            long end;
+            byte[] pending;
+            synchronized (appendLock) {
+                end = writtenPosition;
+                pending = buffered.toByteArray();
+            }
+
+            long position = 0;
+            ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+            while (position + HEADER_BYTES <= end) {
+                header.clear();
+                readFully(header, position);
+                header.flip();
+                int length = header.getInt();
+                // Checksums were verified when the journal was opened
+
+                ByteBuffer payload = ByteBuffer.allocate(length);
+                readFully(payload, position + HEADER_BYTES);
+
+                handler.accept(objectMapper.readValue(payload.array(), JournalEvent.class));
+                position += HEADER_BYTES + length;
+            }
+
+            // Memory already holds these changes; a reload must not drop them
+            ByteBuffer tail = ByteBuffer.wrap(pending);
+            while (tail.remaining() >= HEADER_BYTES) {
+                int length = tail.getInt();
+                tail.getInt();
+                handler.accept(objectMapper.readValue(pending, tail.position(), length, JournalEvent.class));
+                tail.position(tail.position() + length);
+            }
+        }
+    }
+
+    /**
+     * How many times compaction has dropped records into the snapshots. A
+     * reader that loads a snapshot and then replays the journal must start
+     * again if this moved in between, or it misses the records dropped.
+     */
+    public long generation() {
+        synchronized (appendLock) {
+            return generation;
+        }
+    }
+
+    /* =========================
+       Compaction
+       ========================= */
+
+    /**
+     * Folds the journal into snapshots without holding up appends for the
+     * disk work: the capture runs while no change is in flight and marks the
+     * cut, the writer it returns runs with changes flowing again, and only the
+     * records before the cut are then dropped. Records appended meanwhile stay.
+     */
+    public void compact(SnapshotCapture capture) throws IOException {
+        synchronized (compactLock) {
+            long cut;
+            SnapshotWriter snapshot;
+            changes.writeLock().lock();
+            try {
+                synchronized (appendLock) {
+                    cut = appendedPosition;
+                }
+                snapshot = capture.capture();
+            } finally {
+                changes.writeLock().unlock();
+            }
+
+            // The snapshot must not hold a change the journal could still lose
+            flushTo(cut);
+            snapshot.write();
+            discardBefore(cut);
+        }
+    }
+
+    /**
+     * Makes every record before the position durable now, without waiting
+     * for the next commit.
+     */
+    private void flushTo(long position) throws IOException {
+        if (committer == null) {
+            if (fsync) syncTo(position);
+            return;
+        }
+        commit();
+        synchronized (appendLock) {
+            if (durablePosition < position) throw new IOException("Journal commit failed: " + file);
+        }
+    }
+
+    /**
+     * Replaces the file with its records from the cut on. Only the tail
+     * written since the capture is copied; appends keep buffering meanwhile.
+     */
+    private void discardBefore(long cut) throws IOException {
+        if (cut == 0) return;
+        synchronized (syncLock) {
+            if (committer != null) {
+                dropPrefix(cut);
+            } else {
+                // Direct appends write the file themselves
+                synchronized (appendLock) {
+                    dropPrefix(cut);
+                }
+            }
+        }
+    }
+
+    // Caller holds syncLock, and appendLock for direct appends
+    private void dropPrefix(long cut) throws IOException {
+        long end = writtenPosition;
+        Path temp = AtomicFiles.temporarySibling(file);
+        try (FileChannel tail = FileChannel.open(
+                temp,
+                StandardOpenOption.CREATE,
+                StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING
+        )) {
+            long position = cut;
+            while (position < end) {
+                position += channel.transferTo(position, end - position, tail);
+            }
+        }
+        AtomicFiles.replace(temp, file);
+
+        FileChannel replaced = channel;
+        FileChannel reopened = FileChannel.open(file, StandardOpenOption.READ, StandardOpenOption.WRITE);
+        reopened.position(end - cut);
+        synchronized (appendLock) {
+            channel = reopened;
+            writtenPosition -= cut;
+            // replace() forced the copied tail
+            syncedPosition = writtenPosition;
+            appendedPosition -= cut;
+            durablePosition = Math.max(0, durablePosition - cut);
+            generation++;
+            for (int i = waiters.size(); i > 0; i--) {
+                Waiter waiter = waiters.poll();
+                waiters.add(new Waiter(waiter.position - cut, waiter.future));
+            }
+        }
+        replaced.close();
+    }
+
+    /**
+     * Bytes in the journal, buffered ones included; a compaction leaves
+     * whatever was appended while it ran.
+     */
+    public long size() {
+        synchronized (appendLock) {
+            return appendedPosition;
+        }
+    }
+
+    public Path file() {
+        return file;
+    }
+
+    /**
+     * Flushes buffered records and closes the file. Futures of records that
+     * could not be written complete exceptionally.
+     */
+    @Override
+    public void close() throws IOException {
+        if (committer != null) {
+            committer.shutdown();
+            synchronized (appendLock) {
+                closed = true;
+            }
+            commit();
+        }
+
+        List<Waiter> lost;
+        synchronized (syncLock) {
+            synchronized (appendLock) {
+                lost = new ArrayList<>(waiters);
+                waiters.clear();
+                if (channel.isOpen()) {
+                    channel.force(false);
+                    channel.close();
+                }
+            }
+        }
+        if (!lost.isEmpty()) {
+            IOException failure = new IOException("Journal closed with unwritten records: " + file);
+            lost.forEach(waiter -> waiter.future.completeExceptionally(failure));
+            throw failure;
+        }
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    /**
+     * Length of the prefix made of complete records with matching checksums.
+     */
+    private long validLength() throws IOException {
+        long size = channel.size();
+        long position = 0;
+        ByteBuffer header = ByteBuffer.allocate(HEADER_BYTES);
+
+        while (position + HEADER_BYTES <= size) {
+            header.clear();
+            readFully(header, position);
+            header.flip();
+            int length = header.getInt();
+            int checksum = header.getInt();
+
+            if (length < 0 || position + HEADER_BYTES + length > size) break;
+
+            ByteBuffer payload = ByteBuffer.allocate(length);
+            readFully(payload, position + HEADER_BYTES);
+
+            CRC32 crc = new CRC32();
+            crc.update(payload.array());
+            if ((int) crc.getValue() != checksum) break;
+
+            position += HEADER_BYTES + length;
+        }
+        return position;
+    }
+
+    private void readFully(ByteBuffer buffer, long position) throws IOException {
+        while (buffer.hasRemaining()) {
+            int read = channel.read(buffer, position);
+            if (read < 0) throw new IOException("Unexpected end of journal " + file);
+            position += read;
+        }
+    }
+
+    private ObjectMapper createMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .build();
+    }
+
+    @FunctionalInterface
+    public interface SnapshotCapture {
+        /**
+         * Copies the state to snapshot; runs while no change is in flight, so keep it to memory.
+         */
+        SnapshotWriter capture();
+    }
+
+    @FunctionalInterface
+    public interface SnapshotWriter {
+        void write() throws IOException;
+    }
+}
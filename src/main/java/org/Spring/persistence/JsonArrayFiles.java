@@ -0,0 +1,90 @@
+package org.Spring.persistence;
+
+import com.fasterxml.jackson.core.JsonEncoding;
+import com.fasterxml.jackson.core.JsonGenerator;
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.core.JsonParser;
+import com.fasterxml.jackson.core.JsonToken;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.ObjectWriter;
+import com.fasterxml.jackson.databind.SerializationFeature;
+
+import java.io.Closeable;
+import java.io.File;
+import java.io.IOException;
+import java.util.function.Consumer;
+
+/**
+ * Streams files holding one top-level JSON array, one element at a time.
+ *
+ * Readers get each record as soon as it is parsed, so loading never holds
+ * the whole file as a list or tree; writers emit records as they are handed
+ * over. The file format is unchanged (pretty-printed JSON array).
+ */
+public final class JsonArrayFiles {
+
+    // Prevent instantiation
+    private JsonArrayFiles() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * Parses the array in the file and hands every element to the consumer.
+     * A missing or empty file has no elements.
+     *
+     * @return the number of elements read
+     */
+    public static <T> int read(ObjectMapper mapper, File file, Class<T> type, Consumer<? super T> consumer)
+            throws IOException {
+        if (!file.exists()) return 0;
+
+        try (JsonParser parser = mapper.getFactory().createParser(file)) {
+            JsonToken token = parser.nextToken();
+            if (token == null) return 0;
+            if (token != JsonToken.START_ARRAY) {
+                throw new JsonParseException(parser, "Expected a JSON array in " + file);
+            }
+
+            int count = 0;
+            while ((token = parser.nextToken()) == JsonToken.START_OBJECT) {
+                consumer.accept(mapper.readValue(parser, type));
+                count++;
+            }
+            if (token != JsonToken.END_ARRAY) {
+                throw new JsonParseException(parser, "Expected an object or end of array in " + file);
+            }
+            return count;
+        }
+    }
+
+    public static Writer write(ObjectMapper mapper, File file) throws IOException {
+        return new Writer(mapper, file);
+    }
+
+    /**
+     * Writes one JSON array element by element; closing ends the array.
+     */
+    public static final class Writer implements Closeable {
+
+        private final ObjectWriter writer;
+        private final JsonGenerator generator;
+
+        private Writer(ObjectMapper mapper, File file) throws IOException {
+            // Flushed once on close, not after every element
+            this.writer = mapper.writer().without(SerializationFeature.FLUSH_AFTER_WRITE_VALUE);
+            this.generator = mapper.getFactory().createGenerator(file, JsonEncoding.UTF8);
+            generator.useDefaultPrettyPrinter();
+            generator.writeStartArray();
+        }
+
+        public void append(Object value) throws IOException {
+            writer.writeValue(generator, value);
+        }
+
+        @Override
+        public void close() throws IOException {
+            generator.writeEndArray();
+            generator.close();
+        }
+    }
+}
@@ -0,0 +1,96 @@
+package org.Spring.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.Spring.metrics.Metrics;
+import org.Spring.metrics.Operation;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.util.function.Consumer;
+
+/**
+ * On-disk format of snapshot files (trains, bookings, user partitions).
+ *
+ * JSON stays the format people read, edit and import; BINARY is the fast
+ * {@link BinarySnapshot} twin next to it (train.json -> train.bin). Loading
+ * always takes the newer of the two, so a hand-edited JSON file still wins
+ * over an older binary snapshot. Every file read or written is timed as
+ * {@link Operation#LOAD} or {@link Operation#SAVE}.
+ */
+public enum SnapshotFormat {
+    JSON,
+    BINARY;
+
+    /**
+     * From -Dirctc.snapshot.format=json|binary, JSON by default.
+     */
+    public static SnapshotFormat configured() {
+        return valueOf(System.getProperty("irctc.snapshot.format", "json").trim().toUpperCase());
+    }
+
+    public static File binaryTwin(File jsonFile) {
+        String name = jsonFile.getName();
+        int dot = name.lastIndexOf('.');
+        return new File(jsonFile.getParentFile(), (dot < 0 ? name : name.substring(0, dot)) + ".bin");
+    }
+
+    /**
+     * Reads whichever of the JSON file and its binary twin is newer.
+     *
+     * @return the number of records read
+     */
+    public static <T> int read(
+            ObjectMapper mapper,
+            File jsonFile,
+            Class<T> type,
+            BinarySnapshot.RecordType<T> binaryType,
+            Consumer<? super T> consumer
+    ) throws IOException {
+        File binary = binaryTwin(jsonFile);
+        boolean binaryIsNewer = binary.exists()
+                && (!jsonFile.exists() || binary.lastModified() >= jsonFile.lastModified());
+
+        long start = Metrics.start();
+        try {
+            int records = binaryIsNewer
+                    ? BinarySnapshot.read(binary, binaryType, consumer)
+                    : JsonArrayFiles.read(mapper, jsonFile, type, consumer);
+            Metrics.succeeded(Operation.LOAD, start);
+            return records;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.LOAD, start, ex);
+            throw ex;
+        }
+    }
+
+    /**
+     * Writes the records as this format's copy of the snapshot, replacing
+     * the previous copy atomically.
+     */
+    public <T> void write(
+            ObjectMapper mapper,
+            File jsonFile,
+            BinarySnapshot.RecordType<T> binaryType,
+            Iterable<? extends T> records
+    ) throws IOException {
+        long start = Metrics.start();
+        try {
+            if (this == BINARY) {
+                BinarySnapshot.write(binaryTwin(jsonFile), binaryType, records);
+            } else {
+                Path temp = AtomicFiles.temporarySibling(jsonFile.toPath());
+                try (JsonArrayFiles.Writer writer = JsonArrayFiles.write(mapper, temp.toFile())) {
+                    for (T record : records) {
+                        writer.append(record);
+                    }
+                }
+                AtomicFiles.replace(temp, jsonFile.toPath());
+            }
+            Metrics.succeeded(Operation.SAVE, start);
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.SAVE, start, ex);
+            throw ex;
+        }
+    }
+}
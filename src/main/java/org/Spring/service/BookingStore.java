@@ -0,0 +1,278 @@
+package org.Spring.service;
+
+import org.Spring.metrics.Trace;
+import org.Spring.persistence.BookingJournal;
+import org.Spring.persistence.SnapshotFormat;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+/**
+ * Wires the shared repositories of one local database directory:
+ * train.json, bookings.json and the users/ partitions as the last snapshot,
+ * plus journal.log with every change made since. A legacy users.json is
+ * only read once, to seed users/.
+ *
+ * A background job folds the journal back into the snapshots
+ * once it grows past {@link #COMPACT_THRESHOLD_BYTES}, or as soon as unsaved
+ * user partitions fill the user cache. Snapshots are JSON,
+ * or compact binary twins (train.bin, ...) with -Dirctc.snapshot.format=binary.
+ * Journal records are written behind, in one batch every
+ * {@link #JOURNAL_COMMIT_MILLIS}; every change returns a {@link Durable} to wait on.
+ */
+public final class BookingStore implements Closeable {
+
+    private static final String LOCAL_DB_DIR = "src/main/java/org/Spring/localdb";
+
+    private static final int MAX_CACHED_USER_PARTITIONS = 64;
+
+    private static final long COMPACT_THRESHOLD_BYTES = 1L << 20;
+    private static final long COMPACT_CHECK_SECONDS = 30;
+    // How long close() lets a running compaction finish
+    private static final long CLOSE_WAIT_SECONDS = 60;
+
+    // Group commit interval of the journal, 0 to write on the request thread (irctc.journal.commitMillis)
+    private static final long JOURNAL_COMMIT_MILLIS = Long.getLong("irctc.journal.commitMillis", 5);
+
+    // Sessions end after this long without a request (irctc.session.idleMinutes)
+    private static final long SESSION_IDLE_MILLIS =
+            TimeUnit.MINUTES.toMillis(Long.getLong("irctc.session.idleMinutes", 30));
+    private static final long SESSION_SWEEP_MILLIS = TimeUnit.MINUTES.toMillis(1);
+
+    // Load independent files on separate cores (irctc.load.parallel=false to disable)
+    private static final boolean PARALLEL_LOAD =
+            Boolean.parseBoolean(System.getProperty("irctc.load.parallel", "true"));
+
+    private static volatile BookingStore shared;
+
+    private final BookingJournal journal;
+    private final TrainCatalog trainCatalog;
+    private final SeatInventory seatInventory;
+    private final Waitlist waitlist;
+    private final UserRepository userRepository;
+    private final SessionRegistry sessions = new SessionRegistry(SESSION_IDLE_MILLIS, SESSION_SWEEP_MILLIS);
+    private final ScheduledExecutorService compactor;
+    // Set while an early compaction is queued, so a burst of requests queues one
+    private final AtomicBoolean compactRequested = new AtomicBoolean();
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public static BookingStore shared() throws IOException {
+        BookingStore store = shared;
+        if (store == null) {
+            synchronized (BookingStore.class) {
+                store = shared;
+                if (store == null) {
+                    store = open(Path.of(LOCAL_DB_DIR), false);
+                    BookingStore toClose = store;
+                    Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+                        try {
+                            toClose.close();
+                        } catch (IOException ex) {
+                            Trace.log(Trace.Level.ERROR, "store-close", "error", ex);
+                        }
+                    }, "booking-store-shutdown"));
+                    shared = store;
+                }
+            }
+        }
+        return store;
+    }
+
+    /**
+     * Opens (or creates) a database directory.
+     *
+     * @param fsync force every journal batch to disk before its futures complete
+     */
+    public static BookingStore open(Path dir, boolean fsync) throws IOException {
+        return open(dir, fsync, SnapshotFormat.configured());
+    }
+
+    /**
+     * @param format how compaction writes snapshots; JSON copies can still be
+     *               written with {@link #exportJson()}
+     */
+    public static BookingStore open(Path dir, boolean fsync, SnapshotFormat format) throws IOException {
+        Files.createDirectories(dir);
+        return new BookingStore(dir, fsync, format);
+    }
+
+    private BookingStore(Path dir, boolean fsync, SnapshotFormat format) throws IOException {
+        this.journal = new BookingJournal(dir.resolve("journal.log"), fsync, JOURNAL_COMMIT_MILLIS);
+
+        // Users do not depend on trains: load them on another core meanwhile
+        CompletableFuture<UserRepository> users = PARALLEL_LOAD
+                ? CompletableFuture.supplyAsync(() -> openUsers(dir, format))
+                : CompletableFuture.completedFuture(openUsers(dir, format));
+
+        this.trainCatalog = new TrainCatalog(dir.resolve("train.json").toFile(), journal, format);
+        this.seatInventory = new SeatInventory(dir.resolve("bookings.json").toFile(), trainCatalog, journal, format);
+        this.waitlist = new Waitlist(seatInventory);
+        try {
+            this.userRepository = users.join();
+        } catch (CompletionException ex) {
+            if (ex.getCause() instanceof UncheckedIOException io) throw io.getCause();
+            throw ex;
+        }
+
+        this.compactor = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "journal-compactor");
+            thread.setDaemon(true);
+            return thread;
+        });
+        compactor.scheduleWithFixedDelay(
+                this::compactIfLarge,
+                COMPACT_CHECK_SECONDS,
+                COMPACT_CHECK_SECONDS,
+                TimeUnit.SECONDS
+        );
+        userRepository.onCacheOverflow(this::requestCompaction);
+    }
+
+    private UserRepository openUsers(Path dir, SnapshotFormat format) {
+        try {
+            return new UserRepository(
+                    dir.resolve("users"),
+                    dir.resolve("users.json").toFile(),
+                    journal,
+                    MAX_CACHED_USER_PARTITIONS,
+                    format
+            );
+        } catch (IOException ex) {
+            throw new UncheckedIOException(ex);
+        }
+    }
+
+    /* =========================
+       Accessors
+       ========================= */
+
+    public BookingJournal journal() {
+        return journal;
+    }
+
+    public TrainCatalog trainCatalog() {
+        return trainCatalog;
+    }
+
+    public SeatInventory seatInventory() {
+        return seatInventory;
+    }
+
+    public Waitlist waitlist() {
+        return waitlist;
+    }
+
+    public UserRepository userRepository() {
+        return userRepository;
+    }
+
+    public SessionRegistry sessions() {
+        return sessions;
+    }
+
+    /* =========================
+       Compaction
+       ========================= */
+
+    /**
+     * Rewrites the snapshots from a copy of memory taken between two changes
+     * and drops the journal records that copy covers. Bookings only pause
+     * for the copy, not for the writes.
+     */
+    public synchronized void compact() throws IOException {
+        journal.compact(() -> {
+            BookingJournal.SnapshotWriter trains = trainCatalog.captureSnapshot();
+            BookingJournal.SnapshotWriter seats = seatInventory.captureSnapshot();
+            BookingJournal.SnapshotWriter users = userRepository.captureSnapshot();
+            return () -> {
+                trains.write();
+                seats.write();
+                users.write();
+            };
+        });
+    }
+
+    /**
+     * Writes JSON copies of every snapshot for people to read or edit,
+     * whatever the snapshot format. Being newer, they are what loads next.
+     */
+    public synchronized void exportJson() throws IOException {
+        trainCatalog.writeSnapshot(SnapshotFormat.JSON);
+        seatInventory.writeSnapshot(SnapshotFormat.JSON);
+        userRepository.exportJson();
+    }
+
+    private void compactIfLarge() {
+        if (journal.size() >= COMPACT_THRESHOLD_BYTES) {
+            compactLogged();
+        }
+    }
+
+    /**
+     * Queues a compaction on the compactor without waiting for it; called
+     * from booking threads, which may hold the journal's change lock.
+     */
+    private void requestCompaction() {
+        if (!compactRequested.compareAndSet(false, true)) return;
+        try {
+            compactor.execute(() -> {
+                compactRequested.set(false);
+                compactLogged();
+            });
+        } catch (RejectedExecutionException ex) {
+            // Closing: close() compacts one last time itself
+            compactRequested.set(false);
+        }
+    }
+
+    private void compactLogged() {
+        try {
+            compact();
+        } catch (IOException ex) {
+            // Keep the journal, the next run retries
+            Trace.log(Trace.Level.ERROR, "compact", "journal_bytes", journal.size(), "error", ex);
+        }
+    }
+
+    /**
+     * Lets a running compaction finish, folds in what is left and closes the
+     * journal. The compactor is never interrupted: an interrupt during file
+     * I/O would close the journal's channel under it.
+     */
+    @Override
+    public void close() throws IOException {
+        compactor.shutdown();
+        boolean interrupted = false;
+        try {
+            if (!compactor.awaitTermination(CLOSE_WAIT_SECONDS, TimeUnit.SECONDS)) {
+                Trace.log(Trace.Level.ERROR, "store-close", "compaction_running_after_seconds", CLOSE_WAIT_SECONDS);
+            }
+        } catch (InterruptedException ex) {
+            // Restored once the files are closed, for the same reason
+            interrupted = true;
+        }
+
+        try {
+            sessions.close();
+            if (journal.size() > 0) {
+                compact();
+            }
+            journal.close();
+        } finally {
+            if (interrupted) Thread.currentThread().interrupt();
+        }
+    }
+}
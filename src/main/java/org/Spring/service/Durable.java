@@ -0,0 +1,58 @@
+package org.Spring.service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+/**
+ * The result of a change together with the moment it became permanent:
+ * {@link #durable()} completes once the change's own journal record is on
+ * disk, straight away when nothing changed. Tell a user a change happened
+ * only after it completes.
+ *
+ * A journal batch that fails to write is retried until it lands, so the
+ * future stays pending through a disk outage rather than failing; it fails
+ * only when the journal is closed with the record still unwritten.
+ */
+public record Durable<T>(T value, CompletableFuture<Void> durable) {
+
+    static <T> Durable<T> now(T value) {
+        return new Durable<>(value, CompletableFuture.completedFuture(null));
+    }
+
+    /**
+     * The value, once the change is on disk.
+     *
+     * @throws IOException when the record was lost, or is still not written after the timeout
+     */
+    public T await(long timeout, TimeUnit unit) throws IOException {
+        if (!awaitDurable(timeout, unit)) {
+            throw new IOException("Change not persisted after " + unit.toMillis(timeout) + " ms");
+        }
+        return value;
+    }
+
+    /**
+     * Waits up to the timeout for the change to reach disk.
+     *
+     * @return false when the record is still pending; the change stays made
+     *         and the journal keeps retrying the write
+     * @throws IOException when the record was lost
+     */
+    public boolean awaitDurable(long timeout, TimeUnit unit) throws IOException {
+        try {
+            durable.get(timeout, unit);
+            return true;
+        } catch (ExecutionException ex) {
+            throw new IOException("Change not persisted", ex.getCause());
+        } catch (TimeoutException ex) {
+            return false;
+        } catch (InterruptedException ex) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted waiting for the journal");
+        }
+    }
+}
@@ -0,0 +1,216 @@
+package org.Spring.service;
+
+import org.Spring.entities.Itinerary;
+import org.Spring.entities.Train;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Connection planner over the whole network, RAPTOR style: round k finds
+ * the earliest arrival at every station using k trains, by scanning only
+ * the trains that call at a station improved in round k - 1.
+ * Every train is assumed to run daily.
+ */
+public final class JourneyPlanner {
+
+    private static final int UNREACHED = Integer.MAX_VALUE;
+
+    private final TrainCatalog catalog;
+
+    public JourneyPlanner(TrainCatalog catalog) {
+        this.catalog = catalog;
+    }
+
+    /**
+     * Itineraries from source to destination leaving no earlier than
+     * {@code earliestDeparture}, with at most {@code maxTransfers} changes of
+     * at least {@code minConnectionMinutes} each. One itinerary per number of
+     * trains that arrives earlier than any with fewer, ranked by arrival.
+     */
+    public List<Itinerary> plan(
+            String source,
+            String destination,
+            LocalDateTime earliestDeparture,
+            int maxTransfers,
+            int minConnectionMinutes
+    ) {
+        Timetable timetable = catalog.timetable();
+        int from = timetable.stationId(source);
+        int to = timetable.stationId(destination);
+        if (from < 0 || to < 0 || from == to || maxTransfers < 0) {
+            return List.of();
+        }
+
+        Search search = new Search(timetable, maxTransfers + 1);
+        search.run(from, to, minuteOfDay(earliestDeparture), minConnectionMinutes);
+
+        List<Itinerary> itineraries = new ArrayList<>();
+        for (int round = 1; round <= search.completedRounds; round++) {
+            if (search.arrival[round][to] < search.arrival[round - 1][to]) {
+                itineraries.add(search.itinerary(to, round, earliestDeparture.toLocalDate().atStartOfDay()));
+            }
+        }
+        itineraries.sort(Comparator.comparing(Itinerary::getArrival)
+                .thenComparingInt(Itinerary::getTransfers));
+        return itineraries;
+    }
+
+    private static int minuteOfDay(LocalDateTime time) {
+        return time.getHour() * 60 + time.getMinute();
+    }
+
+    /**
+     * State of one query. Minutes count from midnight of the query date;
+     * the labels of round k start as a copy of round k - 1.
+     */
+    private static final class Search {
+
+        private final Timetable timetable;
+        private final int rounds;
+        private int completedRounds;
+
+        private final int[][] arrival;
+        private final int[][] viaTrain;
+        private final int[][] boardedAt;
+        private final int[][] alightedAt;
+        private final int[][] runDay;
+        private final int[][] setInRound;
+
+        Search(Timetable timetable, int rounds) {
+            this.timetable = timetable;
+            this.rounds = rounds;
+
+            int stations = timetable.stations();
+            this.arrival = new int[rounds + 1][stations];
+            this.viaTrain = new int[rounds + 1][stations];
+            this.boardedAt = new int[rounds + 1][stations];
+            this.alightedAt = new int[rounds + 1][stations];
+            this.runDay = new int[rounds + 1][stations];
+            this.setInRound = new int[rounds + 1][stations];
+            Arrays.fill(arrival[0], UNREACHED);
+        }
+
+        void run(int from, int to, int startMinute, int minConnection) {
+            int[] best = new int[timetable.stations()];
+            Arrays.fill(best, UNREACHED);
+            arrival[0][from] = startMinute;
+            best[from] = startMinute;
+
+            int[] firstStop = new int[timetable.trains.length];
+            Arrays.fill(firstStop, Integer.MAX_VALUE);
+            int[] queue = new int[timetable.trains.length];
+
+            BitSet marked = new BitSet();
+            marked.set(from);
+
+            // Stops early once a round improves nothing
+            for (int round = 1; round <= rounds && !marked.isEmpty(); round++) {
+                copyRound(round);
+
+                // Trains calling at a marked station, from the earliest such stop
+                int queued = 0;
+                for (int station = marked.nextSetBit(0); station >= 0; station = marked.nextSetBit(station + 1)) {
+                    int[] trains = timetable.trainsAt[station];
+                    for (int i = 0; i < trains.length; i++) {
+                        int train = trains[i];
+                        if (firstStop[train] == Integer.MAX_VALUE) queue[queued++] = train;
+                        firstStop[train] = Math.min(firstStop[train], timetable.positionsAt[station][i]);
+                    }
+                }
+                marked.clear();
+
+                int transfer = round == 1 ? 0 : minConnection;
+                for (int q = 0; q < queued; q++) {
+                    int train = queue[q];
+                    scanTrain(train, firstStop[train], round, transfer, best, to, marked);
+                    firstStop[train] = Integer.MAX_VALUE;
+                }
+                completedRounds = round;
+            }
+        }
+
+        private void scanTrain(int train, int startPos, int round, int transfer, int[] best, int to, BitSet marked) {
+            int[] stations = timetable.stopStations[train];
+            int[] minutes = timetable.stopMinutes[train];
+
+            int day = 0;
+            int boarded = -1;
+            for (int pos = startPos; pos < stations.length; pos++) {
+                int station = stations[pos];
+
+                if (boarded >= 0) {
+                    int arrive = day * Timetable.MINUTES_PER_DAY + minutes[pos];
+                    // Never worth keeping if it cannot beat the destination
+                    if (arrive < best[station] && arrive < best[to]) {
+                        arrival[round][station] = arrive;
+                        best[station] = arrive;
+                        viaTrain[round][station] = train;
+                        boardedAt[round][station] = boarded;
+                        alightedAt[round][station] = pos;
+                        runDay[round][station] = day;
+                        setInRound[round][station] = round;
+                        marked.set(station);
+                    }
+                }
+
+                int previous = arrival[round - 1][station];
+                if (previous == UNREACHED) continue;
+
+                // Earliest run of this train that leaves here after we are ready
+                int ready = previous + transfer;
+                int runs = Math.floorDiv(ready - minutes[pos] + Timetable.MINUTES_PER_DAY - 1, Timetable.MINUTES_PER_DAY);
+                if (boarded < 0 || runs < day) {
+                    day = runs;
+                    boarded = pos;
+                }
+            }
+        }
+
+        private void copyRound(int round) {
+            System.arraycopy(arrival[round - 1], 0, arrival[round], 0, arrival[round].length);
+            System.arraycopy(viaTrain[round - 1], 0, viaTrain[round], 0, viaTrain[round].length);
+            System.arraycopy(boardedAt[round - 1], 0, boardedAt[round], 0, boardedAt[round].length);
+            System.arraycopy(alightedAt[round - 1], 0, alightedAt[round], 0, alightedAt[round].length);
+            System.arraycopy(runDay[round - 1], 0, runDay[round], 0, runDay[round].length);
+            System.arraycopy(setInRound[round - 1], 0, setInRound[round], 0, setInRound[round].length);
+        }
+
+        /**
+         * Walks the labels back from the destination, one train per round.
+         */
+        Itinerary itinerary(int destination, int round, LocalDateTime midnight) {
+            List<Itinerary.Leg> legs = new ArrayList<>();
+            int station = destination;
+            while (setInRound[round][station] > 0) {
+                round = setInRound[round][station];
+                int train = viaTrain[round][station];
+                int board = boardedAt[round][station];
+                int alight = alightedAt[round][station];
+                int day = runDay[round][station];
+
+                Train t = timetable.trains[train];
+                int[] minutes = timetable.stopMinutes[train];
+                int[] stations = timetable.stopStations[train];
+                legs.add(0, new Itinerary.Leg(
+                        t.getTrainId(),
+                        t.getTrainNo(),
+                        timetable.stationName(stations[board]),
+                        timetable.stationName(stations[alight]),
+                        midnight.toLocalDate().plusDays(day),
+                        midnight.plusMinutes((long) day * Timetable.MINUTES_PER_DAY + minutes[board]),
+                        midnight.plusMinutes((long) day * Timetable.MINUTES_PER_DAY + minutes[alight])
+                ));
+
+                station = stations[board];
+                round--;
+                if (round == 0) break;
+            }
+            return new Itinerary(legs);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package org.Spring.service;
+
+/**
+ * Thrown by booking operations when there is no logged-in user, or the
+ * session token is unknown or has expired.
+ */
+public class NotLoggedInException extends IllegalStateException {
+
+    public NotLoggedInException(String message) {
+        super(message);
+    }
+}
@@ -0,0 +1,693 @@
+package org.Spring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.JournalEvent;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Train;
+import org.Spring.persistence.BookingJournal;
+import org.Spring.persistence.BinarySnapshot;
+import org.Spring.persistence.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicIntegerArray;
+import java.util.concurrent.atomic.AtomicLongArray;
+
+/**
+ * Seat inventory keyed by (trainId, date).
+ * Every seat holds a bitmask of occupied legs, where leg i runs from
+ * stop i to stop i + 1 of Train.stations. A segment [from, to) is free
+ * on a seat when its leg mask does not intersect the seat's mask.
+ *
+ * Thread-safe: seat words are claimed with CAS, so bookings on different
+ * seats, trains or dates never contend on a lock.
+ *
+ * Every held reservation is also indexed by ticket id, so a ticket is found
+ * (PNR status) or released without knowing its train, date or owner. The
+ * index is filled as bookings load and the journal replays; there is no
+ * separate rebuild pass.
+ */
+public final class SeatInventory {
+
+    // Seats marked 1 in train.json are blocked on every leg and date
+    private static final long ALL_LEGS = -1L;
+    // One bit per leg: the catalog refuses longer routes
+    public static final int MAX_STOPS = Long.SIZE + 1;
+
+    private static final int GROUP_ATTEMPTS = 8;
+
+    private final ObjectMapper objectMapper;
+    private final File bookingsFile;
+    private final TrainCatalog catalog;
+    private final SnapshotFormat format;
+    private final ConcurrentMap<Key, TrainDay> days = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, SeatReservation> byTicketId = new ConcurrentHashMap<>();
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public SeatInventory(File bookingsFile, TrainCatalog catalog) throws IOException {
+        this(bookingsFile, catalog, null);
+    }
+
+    public SeatInventory(File bookingsFile, TrainCatalog catalog, BookingJournal journal) throws IOException {
+        this(bookingsFile, catalog, journal, SnapshotFormat.JSON);
+    }
+
+    public SeatInventory(File bookingsFile, TrainCatalog catalog, BookingJournal journal, SnapshotFormat format)
+            throws IOException {
+        this.objectMapper = createMapper();
+        this.bookingsFile = bookingsFile;
+        this.catalog = catalog;
+        this.format = format;
+        loadBookings();
+
+        if (journal != null) {
+            journal.replay(this::apply);
+        }
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    /**
+     * Mask with one bit per leg travelled between the two stop indices.
+     */
+    public static long legMask(int fromStop, int toStop) {
+        if (fromStop < 0 || toStop <= fromStop || toStop >= MAX_STOPS) {
+            throw new IllegalArgumentException(
+                    "Invalid segment " + fromStop + " -> " + toStop);
+        }
+        int legs = toStop - fromStop;
+        long span = legs == Long.SIZE ? ALL_LEGS : (1L << legs) - 1;
+        return span << fromStop;
+    }
+
+    public boolean isAvailable(Train train, LocalDate date, int row, int seat, int fromStop, int toStop) {
+        TrainDay day = day(train, date);
+        int index = day.index(row, seat);
+        return index >= 0 && day.isFree(index, legMask(fromStop, toStop));
+    }
+
+    /**
+     * Seats free for the whole segment on the date. Read from counters the
+     * bookings keep up to date, in O(log² stops) for any number of seats.
+     */
+    public int availableSeats(Train train, LocalDate date, int fromStop, int toStop) {
+        if (train.getSeats() == null || train.getStations() == null
+                || fromStop < 0 || toStop <= fromStop || toStop >= train.getStations().size()) {
+            return 0;
+        }
+
+        // Nothing booked on that date yet: every open seat is free on every
+        // segment, which is what a new day would answer
+        TrainDay day = days.get(new Key(train.getTrainId(), date));
+        return day == null ? train.getSeats().freeCount() : day.freeFor(fromStop, toStop);
+    }
+
+    /**
+     * Seat grid for one date and segment: a seat shows as booked
+     * when any leg of the segment is already taken.
+     */
+    public SeatMap availability(Train train, LocalDate date, int fromStop, int toStop) {
+        long mask = legMask(fromStop, toStop);
+        TrainDay day = day(train, date);
+
+        SeatMap view = new SeatMap(day.widths());
+        for (int row = 0; row < view.rows(); row++) {
+            for (int seat = 0; seat < view.seatsInRow(row); seat++) {
+                if (!day.isFree(day.index(row, seat), mask)) {
+                    view.book(row, seat);
+                }
+            }
+        }
+        return view;
+    }
+
+    /**
+     * Holds the reservation's seat for its segment and date, in memory only.
+     * Returns false when the seat is invalid or any leg is already taken.
+     */
+    public boolean reserve(SeatReservation reservation) {
+        Train train = catalog.findByTrainId(reservation.getTrainId()).orElse(null);
+        if (train == null || train.getSeats() == null) return false;
+        if (train.getStations() == null
+                || reservation.getFromStop() < 0
+                || reservation.getToStop() <= reservation.getFromStop()
+                || reservation.getToStop() >= train.getStations().size()) return false;
+
+        long mask = legMask(reservation.getFromStop(), reservation.getToStop());
+        TrainDay day = day(train, reservation.getDateOfTravel());
+
+        int index = day.index(reservation.getRow(), reservation.getSeat());
+        if (index < 0 || !day.reserve(index, mask)) {
+            return false;
+        }
+        byTicketId.put(reservation.getTicketId(), reservation);
+        return true;
+    }
+
+    /**
+     * Reserves {@code count} seats on one train, date and segment as a unit:
+     * either every seat is held or none is. Prefers the tightest run of
+     * adjacent free seats in one row, then a single row, then any seats.
+     * Returns the new reservations (with fresh ticket ids), or an empty list.
+     */
+    public List<SeatReservation> reserveGroup(
+            Train train,
+            LocalDate date,
+            int fromStop,
+            int toStop,
+            String userId,
+            int count
+    ) {
+        if (count <= 0 || train.getSeats() == null || train.getStations() == null
+                || fromStop < 0 || toStop <= fromStop || toStop >= train.getStations().size()) {
+            return List.of();
+        }
+
+        long mask = legMask(fromStop, toStop);
+        TrainDay day = day(train, date);
+        if (day.freeFor(fromStop, toStop) < count) return List.of();
+
+        // Another booker may win a seat between the scan and the CAS; rescan then
+        for (int attempt = 0; attempt < GROUP_ATTEMPTS; attempt++) {
+            int[] seats = day.pickGroup(mask, count);
+            if (seats == null) return List.of();
+
+            int claimed = 0;
+            while (claimed < seats.length && day.reserve(seats[claimed], mask)) {
+                claimed++;
+            }
+
+            if (claimed == seats.length) {
+                List<SeatReservation> group = new ArrayList<>(count);
+                for (int index : seats) {
+                    group.add(track(day.hold(index, train, date, fromStop, toStop, userId)));
+                }
+                return group;
+            }
+
+            for (int i = 0; i < claimed; i++) {
+                day.release(seats[i], mask);
+            }
+        }
+        return List.of();
+    }
+
+    /**
+     * Reserves whichever seat is free for the segment, so callers never
+     * have to guess and retry. Seats nobody has booked yet are found from
+     * per-coach counters and bitmaps; seats already sold on other legs are
+     * only scanned for once no empty seat is left.
+     */
+    public Optional<SeatReservation> reserveAny(
+            Train train,
+            LocalDate date,
+            int fromStop,
+            int toStop,
+            String userId
+    ) {
+        if (train.getSeats() == null || train.getStations() == null
+                || fromStop < 0 || toStop <= fromStop || toStop >= train.getStations().size()) {
+            return Optional.empty();
+        }
+
+        long mask = legMask(fromStop, toStop);
+        TrainDay day = day(train, date);
+
+        while (day.freeFor(fromStop, toStop) > 0) {
+            int index = day.pickAny(mask);
+            if (index < 0) return Optional.empty();
+            // Lost the race for this seat: pick again, the counters moved on
+            if (day.reserve(index, mask)) {
+                return Optional.of(track(day.hold(index, train, date, fromStop, toStop, userId)));
+            }
+        }
+        return Optional.empty();
+    }
+
+    /**
+     * Seats per row (coach) not booked on any leg of the date.
+     */
+    public int[] emptySeatsPerRow(Train train, LocalDate date) {
+        TrainDay day = day(train, date);
+        int[] counts = new int[day.rowOffsets.length - 1];
+        for (int row = 0; row < counts.length; row++) {
+            counts[row] = day.emptyPerRow.get(row);
+        }
+        return counts;
+    }
+
+    /**
+     * Frees the reservation's legs again. Returns false if it was not held.
+     */
+    public boolean release(SeatReservation reservation) {
+        return release(reservation.getTicketId()).isPresent();
+    }
+
+    /**
+     * Frees the seat held for the ticket, whichever train and date it is on.
+     *
+     * @return what was held, or empty if the ticket holds no seat
+     */
+    public Optional<SeatReservation> release(String ticketId) {
+        SeatReservation held = ticketId == null ? null : byTicketId.remove(ticketId);
+        if (held == null) return Optional.empty();
+
+        TrainDay day = days.get(new Key(held.getTrainId(), held.getDateOfTravel()));
+        day.release(day.index(held.getRow(), held.getSeat()), legMask(held.getFromStop(), held.getToStop()));
+        return Optional.of(held);
+    }
+
+    /**
+     * The seat held for a ticket, in O(1).
+     */
+    public Optional<SeatReservation> find(String ticketId) {
+        return ticketId == null ? Optional.empty() : Optional.ofNullable(byTicketId.get(ticketId));
+    }
+
+    public int heldTickets() {
+        return byTicketId.size();
+    }
+
+    /* =========================
+       Persistence
+       ========================= */
+
+    /**
+     * Writes every held reservation to bookings.json (or bookings.bin).
+     */
+    public void writeSnapshot() throws IOException {
+        writeSnapshot(format);
+    }
+
+    /**
+     * Copies the held reservations for compaction; the returned writer
+     * saves the copy while bookings go on.
+     */
+    public BookingJournal.SnapshotWriter captureSnapshot() {
+        List<SeatReservation> held = new ArrayList<>(byTicketId.values());
+        return () -> format.write(objectMapper, bookingsFile, BinarySnapshot.RESERVATIONS, held);
+    }
+
+    public synchronized void writeSnapshot(SnapshotFormat snapshotFormat) throws IOException {
+        Iterable<SeatReservation> all = byTicketId.values();
+        snapshotFormat.write(objectMapper, bookingsFile, BinarySnapshot.RESERVATIONS, all);
+    }
+
+    private void loadBookings() throws IOException {
+        // Straight into the leg masks, one reservation at a time
+        SnapshotFormat.read(objectMapper, bookingsFile, SeatReservation.class, BinarySnapshot.RESERVATIONS, this::restore);
+    }
+
+    /**
+     * Replays one journal event; a reservation already held is skipped.
+     */
+    private void apply(JournalEvent event) {
+        if (event.getType() == JournalEvent.Type.BOOKED && event.getTicket() != null) {
+            restore(event.getTicket().toReservation());
+        } else if (event.getType() == JournalEvent.Type.GROUP_BOOKED && event.getTickets() != null) {
+            event.getTickets().forEach(ticket -> restore(ticket.toReservation()));
+        } else if (event.getType() == JournalEvent.Type.CANCELLED) {
+            release(event.getTicketId());
+        }
+    }
+
+    private void restore(SeatReservation reservation) {
+        if (byTicketId.containsKey(reservation.getTicketId())) return;
+        reserve(reservation);
+    }
+
+    private SeatReservation track(SeatReservation reservation) {
+        byTicketId.put(reservation.getTicketId(), reservation);
+        return reservation;
+    }
+
+    private ObjectMapper createMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .build();
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private TrainDay day(Train train, LocalDate date) {
+        return days.computeIfAbsent(
+                new Key(train.getTrainId(), date),
+                k -> new TrainDay(
+                        train.getSeats(),
+                        train.getStations() == null ? 0 : train.getStations().size()
+                )
+        );
+    }
+
+    private record Key(String trainId, LocalDate date) {
+        Key {
+            trainId = trainId.toLowerCase();
+        }
+    }
+
+    /**
+     * Leg masks for every seat of one train on one date,
+     * flattened row by row.
+     */
+    private static final class TrainDay {
+
+        private final int[] rowOffsets;
+        private final AtomicLongArray legs;
+
+        // Seats with no leg taken: a bit per seat plus counts per row and in total.
+        // Kept exact by reserve/release; the bits are only a hint, the leg CAS decides.
+        private final AtomicLongArray emptyBits;
+        private final AtomicIntegerArray emptyPerRow;
+        private final AtomicInteger empty = new AtomicInteger();
+
+        // Free runs of legs over all seats; moved by every leg CAS
+        private final int legCount;
+        private final FreeRuns runs;
+
+        TrainDay(SeatMap layout, int stops) {
+            this.rowOffsets = new int[layout.rows() + 1];
+            for (int row = 0; row < layout.rows(); row++) {
+                rowOffsets[row + 1] = rowOffsets[row] + layout.seatsInRow(row);
+            }
+
+            this.legs = new AtomicLongArray(rowOffsets[layout.rows()]);
+            this.emptyBits = new AtomicLongArray((legs.length() + Long.SIZE - 1) / Long.SIZE);
+            this.emptyPerRow = new AtomicIntegerArray(layout.rows());
+            for (int row = 0; row < layout.rows(); row++) {
+                for (int seat = 0; seat < layout.seatsInRow(row); seat++) {
+                    int index = rowOffsets[row] + seat;
+                    if (!layout.isFree(row, seat)) {
+                        legs.set(index, ALL_LEGS);
+                    } else {
+                        markEmpty(index, row);
+                    }
+                }
+            }
+
+            // Every open seat starts as one run over the whole route
+            this.legCount = Math.max(0, stops - 1);
+            this.runs = new FreeRuns(legCount);
+            if (legCount > 0 && empty.get() > 0) {
+                runs.add(0, legCount, empty.get());
+            }
+        }
+
+        /**
+         * Seats free for the segment, from the counters. A hint like the
+         * other counters: the leg CAS decides.
+         */
+        int freeFor(int fromStop, int toStop) {
+            // The route grew after this day was built; its seats do not cover the new stops
+            if (toStop > legCount) return 0;
+            return runs.covering(fromStop, toStop);
+        }
+
+        /**
+         * Claiming legs splits the free run they lie in: at most one run
+         * goes and two shorter ones come.
+         */
+        private void claimRuns(long before, long claimed) {
+            claimed &= routeLegs();
+            if (claimed == 0) return;
+            int first = Long.numberOfTrailingZeros(claimed);
+            int end = Long.SIZE - Long.numberOfLeadingZeros(claimed);
+            int runStart = runStart(before, first);
+            int runEnd = runEnd(before, first);
+
+            runs.add(runStart, runEnd, -1);
+            if (runStart < first) runs.add(runStart, first, 1);
+            if (end < runEnd) runs.add(end, runEnd, 1);
+        }
+
+        /**
+         * Freeing legs merges them with the free runs on either side.
+         */
+        private void releaseRuns(long after, long freed) {
+            freed &= routeLegs();
+            if (freed == 0) return;
+            int first = Long.numberOfTrailingZeros(freed);
+            int end = Long.SIZE - Long.numberOfLeadingZeros(freed);
+            int runStart = runStart(after, first);
+            int runEnd = runEnd(after, first);
+
+            runs.add(runStart, runEnd, 1);
+            if (runStart < first) runs.add(runStart, first, -1);
+            if (end < runEnd) runs.add(end, runEnd, -1);
+        }
+
+        // First leg of the free run around leg: just past the last taken leg below it
+        private static int runStart(long word, int leg) {
+            long below = word & ((1L << leg) - 1);
+            return below == 0 ? 0 : Long.SIZE - Long.numberOfLeadingZeros(below);
+        }
+
+        // End (exclusive) of the free run around leg: the next taken leg, or the route's end
+        private int runEnd(long word, int leg) {
+            long above = word & (-1L << leg);
+            return above == 0 ? legCount : Math.min(legCount, Long.numberOfTrailingZeros(above));
+        }
+
+        private long routeLegs() {
+            return legCount == Long.SIZE ? ALL_LEGS : (1L << legCount) - 1;
+        }
+
+        int index(int row, int seat) {
+            if (row < 0 || row >= rowOffsets.length - 1) return -1;
+            if (seat < 0 || seat >= rowOffsets[row + 1] - rowOffsets[row]) return -1;
+            return rowOffsets[row] + seat;
+        }
+
+        int rowOf(int index) {
+            int row = Arrays.binarySearch(rowOffsets, index);
+            // Empty rows share an offset; the seat belongs to the last of them
+            if (row >= 0) {
+                while (row + 1 < rowOffsets.length - 1 && rowOffsets[row + 1] == index) row++;
+                return row;
+            }
+            return -row - 2;
+        }
+
+        /**
+         * Flat seat indexes for a group, or null if fewer than count are free.
+         */
+        int[] pickGroup(long mask, int count) {
+            int rows = rowOffsets.length - 1;
+            int bestRunStart = -1;
+            int bestRunLength = Integer.MAX_VALUE;
+            int bestRow = -1;
+            int bestRowFree = Integer.MAX_VALUE;
+            int totalFree = 0;
+
+            for (int row = 0; row < rows; row++) {
+                int rowFree = 0;
+                int runStart = -1;
+                for (int index = rowOffsets[row]; index <= rowOffsets[row + 1]; index++) {
+                    boolean free = index < rowOffsets[row + 1] && isFree(index, mask);
+                    if (free) {
+                        rowFree++;
+                        if (runStart < 0) runStart = index;
+                        continue;
+                    }
+                    // A run just ended: keep the tightest one that still fits
+                    int runLength = runStart < 0 ? 0 : index - runStart;
+                    if (runLength >= count && runLength < bestRunLength) {
+                        bestRunStart = runStart;
+                        bestRunLength = runLength;
+                    }
+                    runStart = -1;
+                }
+                if (rowFree >= count && rowFree < bestRowFree) {
+                    bestRow = row;
+                    bestRowFree = rowFree;
+                }
+                totalFree += rowFree;
+            }
+
+            if (totalFree < count) return null;
+
+            int[] seats = new int[count];
+            if (bestRunStart >= 0) {
+                for (int i = 0; i < count; i++) seats[i] = bestRunStart + i;
+                return seats;
+            }
+
+            // Same row (coach) if possible, otherwise the first free seats in order
+            int from = bestRow >= 0 ? rowOffsets[bestRow] : 0;
+            int to = bestRow >= 0 ? rowOffsets[bestRow + 1] : legs.length();
+            int picked = 0;
+            for (int index = from; index < to && picked < count; index++) {
+                if (isFree(index, mask)) seats[picked++] = index;
+            }
+            return picked == count ? seats : null;
+        }
+
+        /**
+         * A seat that looks free for the mask, or -1 when none is.
+         * Coaches without empty seats are skipped by their counter.
+         */
+        int pickAny(long mask) {
+            if (empty.get() > 0) {
+                for (int row = 0; row < emptyPerRow.length(); row++) {
+                    if (emptyPerRow.get(row) == 0) continue;
+                    int index = nextEmpty(rowOffsets[row], rowOffsets[row + 1]);
+                    if (index >= 0) return index;
+                }
+            }
+            // Only part-booked seats are left; one may still fit this segment
+            for (int index = 0; index < legs.length(); index++) {
+                if (isFree(index, mask)) return index;
+            }
+            return -1;
+        }
+
+        /**
+         * Records a reservation for a seat whose legs were just claimed.
+         */
+        SeatReservation hold(int index, Train train, LocalDate date, int fromStop, int toStop, String userId) {
+            int row = rowOf(index);
+            SeatReservation reservation = new SeatReservation(
+                    UUID.randomUUID().toString(),
+                    userId,
+                    train.getTrainId(),
+                    date,
+                    row,
+                    index - rowOffsets[row],
+                    fromStop,
+                    toStop
+            );
+            return reservation;
+        }
+
+        private int nextEmpty(int from, int to) {
+            for (int word = from / Long.SIZE; word * Long.SIZE < to; word++) {
+                long bits = emptyBits.get(word);
+                // Ignore seats of neighbouring rows sharing this word
+                if (word == from / Long.SIZE) bits &= -1L << (from % Long.SIZE);
+                if (bits != 0) {
+                    int index = word * Long.SIZE + Long.numberOfTrailingZeros(bits);
+                    return index < to ? index : -1;
+                }
+            }
+            return -1;
+        }
+
+        private void markEmpty(int index, int row) {
+            long bit = 1L << (index % Long.SIZE);
+            emptyBits.getAndUpdate(index / Long.SIZE, word -> word | bit);
+            emptyPerRow.incrementAndGet(row);
+            empty.incrementAndGet();
+        }
+
+        private void markUsed(int index, int row) {
+            long bit = ~(1L << (index % Long.SIZE));
+            emptyBits.getAndUpdate(index / Long.SIZE, word -> word & bit);
+            emptyPerRow.decrementAndGet(row);
+            empty.decrementAndGet();
+        }
+
+        int[] widths() {
+            int[] widths = new int[rowOffsets.length - 1];
+            for (int row = 0; row < widths.length; row++) {
+                widths[row] = rowOffsets[row + 1] - rowOffsets[row];
+            }
+            return widths;
+        }
+
+        boolean isFree(int index, long mask) {
+            return (legs.get(index) & mask) == 0;
+        }
+
+        boolean reserve(int index, long mask) {
+            while (true) {
+                long current = legs.get(index);
+                if ((current & mask) != 0) return false;
+                if (legs.compareAndSet(index, current, current | mask)) {
+                    if (current == 0) markUsed(index, rowOf(index));
+                    claimRuns(current, mask);
+                    return true;
+                }
+            }
+        }
+
+        void release(int index, long mask) {
+            while (true) {
+                long current = legs.get(index);
+                long next = current & ~mask;
+                if (legs.compareAndSet(index, current, next)) {
+                    if (current != 0 && next == 0) markEmpty(index, rowOf(index));
+                    // One contiguous piece at a time, should a release find only part of its legs taken
+                    long word = current;
+                    long freed = current & mask;
+                    while (freed != 0) {
+                        long piece = freed & ~(freed + (freed & -freed));
+                        word &= ~piece;
+                        releaseRuns(word, piece);
+                        freed &= ~piece;
+                    }
+                    return;
+                }
+            }
+        }
+    }
+
+    /**
+     * Free runs of legs over the seats of one train-day, counted by first leg
+     * and end leg. A seat is free for [from, to) exactly when one of its runs
+     * starts at or before from and ends at or after to, so that count is the
+     * segment's free seats. A 2D Fenwick tree keeps it: moving a run or
+     * asking for a segment costs O(log² legs), whatever the number of seats.
+     */
+    private static final class FreeRuns {
+
+        private final int legs;
+        // 1-based, (legs + 1)^2; start on one axis, legs - end on the other
+        private final AtomicIntegerArray tree;
+
+        FreeRuns(int legs) {
+            this.legs = legs;
+            this.tree = new AtomicIntegerArray((legs + 1) * (legs + 1));
+        }
+
+        /**
+         * Counts {@code delta} more runs over legs [start, end).
+         */
+        void add(int start, int end, int delta) {
+            for (int i = start + 1; i <= legs; i += i & -i) {
+                for (int j = legs - end + 1; j <= legs; j += j & -j) {
+                    tree.addAndGet(i * (legs + 1) + j, delta);
+                }
+            }
+        }
+
+        /**
+         * Runs that cover the whole of [from, to).
+         */
+        int covering(int from, int to) {
+            int count = 0;
+            for (int i = from + 1; i > 0; i -= i & -i) {
+                for (int j = legs - to + 1; j > 0; j -= j & -j) {
+                    count += tree.get(i * (legs + 1) + j);
+                }
+            }
+            return count;
+        }
+    }
+}
@@ -0,0 +1,143 @@
+package org.Spring.service;
+
+import org.Spring.entities.User;
+
+import java.io.Closeable;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.Executors;
+import java.util.concurrent.ScheduledExecutorService;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Logged-in sessions by token. A session only keeps the user's name and id
+ * (the user itself stays in {@link UserRepository}), so one costs a map
+ * entry of a couple of hundred bytes.
+ *
+ * Sessions not used for {@code idleTimeoutMillis} expire; a background
+ * sweep removes them, and a lookup never returns an expired one even if
+ * the sweep has not run yet.
+ */
+public final class SessionRegistry implements Closeable {
+
+    private final Map<String, Session> sessions = new ConcurrentHashMap<>();
+    private final long idleTimeoutNanos;
+    private final LongSupplier clock;
+    private final ScheduledExecutorService sweeper;
+
+    /* =========================
+       Construction
+       ========================= */
+
+    /**
+     * Sweeps for idle sessions every {@code sweepMillis} on a daemon thread.
+     */
+    public SessionRegistry(long idleTimeoutMillis, long sweepMillis) {
+        this(idleTimeoutMillis, System::nanoTime);
+        sweeper.scheduleWithFixedDelay(this::evictIdle, sweepMillis, sweepMillis, TimeUnit.MILLISECONDS);
+    }
+
+    /**
+     * No background sweep; callers run {@link #evictIdle()} themselves.
+     *
+     * @param clock nanosecond time source
+     */
+    SessionRegistry(long idleTimeoutMillis, LongSupplier clock) {
+        this.idleTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(idleTimeoutMillis);
+        this.clock = clock;
+        this.sweeper = Executors.newSingleThreadScheduledExecutor(r -> {
+            Thread thread = new Thread(r, "session-sweeper");
+            thread.setDaemon(true);
+            return thread;
+        });
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    /**
+     * Starts a session for the user and returns its token.
+     */
+    public String open(User user) {
+        String token = UUID.randomUUID().toString();
+        sessions.put(token, new Session(user.getName(), user.getUserId(), clock.getAsLong()));
+        return token;
+    }
+
+    /**
+     * The live session for the token, marked as used now.
+     */
+    public Optional<Session> find(String token) {
+        if (token == null) return Optional.empty();
+
+        Session session = sessions.get(token);
+        if (session == null) return Optional.empty();
+
+        long now = clock.getAsLong();
+        if (now - session.lastAccess > idleTimeoutNanos) {
+            sessions.remove(token, session);
+            return Optional.empty();
+        }
+        session.lastAccess = now;
+        return Optional.of(session);
+    }
+
+    public boolean close(String token) {
+        return token != null && sessions.remove(token) != null;
+    }
+
+    /**
+     * Drops every session idle for longer than the timeout.
+     *
+     * @return how many were dropped
+     */
+    public int evictIdle() {
+        long now = clock.getAsLong();
+        int evicted = 0;
+        for (Map.Entry<String, Session> entry : sessions.entrySet()) {
+            if (now - entry.getValue().lastAccess > idleTimeoutNanos
+                    && sessions.remove(entry.getKey(), entry.getValue())) {
+                evicted++;
+            }
+        }
+        return evicted;
+    }
+
+    public int size() {
+        return sessions.size();
+    }
+
+    @Override
+    public void close() {
+        sweeper.shutdownNow();
+        sessions.clear();
+    }
+
+    /**
+     * Who a token belongs to.
+     */
+    public static final class Session {
+
+        private final String userName;
+        private final String userId;
+        private volatile long lastAccess;
+
+        private Session(String userName, String userId, long lastAccess) {
+            this.userName = userName;
+            this.userId = userId;
+            this.lastAccess = lastAccess;
+        }
+
+        public String getUserName() {
+            return userName;
+        }
+
+        public String getUserId() {
+            return userId;
+        }
+    }
+}
@@ -0,0 +1,130 @@
+package org.Spring.service;
+
+import org.Spring.entities.Train;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Inverted index from station to the trains that stop there.
+ * Station names are interned to int ids once; each station keeps
+ * a posting map of trainId -> stop position on that train.
+ */
+final class StationIndex {
+
+    private final Map<String, Integer> stationIds = new HashMap<>();
+    private final List<String> stationNames = new ArrayList<>();
+    private final List<Map<String, Integer>> postings = new ArrayList<>();
+    private final Map<String, Train> trainsById = new HashMap<>();
+
+    StationIndex(List<Train> trains) {
+        for (Train train : trains) {
+            add(train);
+        }
+    }
+
+    /* =========================
+       Queries
+       ========================= */
+
+    List<Train> search(String source, String destination) {
+        Map<String, Integer> from = postingsFor(source);
+        Map<String, Integer> to = postingsFor(destination);
+
+        if (from.isEmpty() || to.isEmpty()) {
+            return new ArrayList<>();
+        }
+
+        // Walk the smaller posting list, probe the larger one
+        boolean fromSmaller = from.size() <= to.size();
+        Map<String, Integer> small = fromSmaller ? from : to;
+        Map<String, Integer> large = fromSmaller ? to : from;
+
+        List<Train> result = new ArrayList<>();
+        for (Map.Entry<String, Integer> entry : small.entrySet()) {
+            Integer other = large.get(entry.getKey());
+            if (other == null) continue;
+
+            int sourceIndex = fromSmaller ? entry.getValue() : other;
+            int destinationIndex = fromSmaller ? other : entry.getValue();
+
+            if (sourceIndex < destinationIndex) {
+                result.add(trainsById.get(entry.getKey()));
+            }
+        }
+        return result;
+    }
+
+    Train train(String trainId) {
+        return trainId == null ? null : trainsById.get(key(trainId));
+    }
+
+    int stationId(String station) {
+        Integer id = stationIds.get(normalize(station));
+        return id == null ? -1 : id;
+    }
+
+    /* =========================
+       Maintenance
+       ========================= */
+
+    void add(Train train) {
+        String trainId = key(train.getTrainId());
+        trainsById.put(trainId, train);
+
+        List<String> stations = train.getStations();
+        if (stations == null) return;
+
+        for (int i = 0; i < stations.size(); i++) {
+            // First occurrence wins, same as List.indexOf did before
+            postings.get(intern(stations.get(i))).putIfAbsent(trainId, i);
+        }
+    }
+
+    void remove(Train train) {
+        String trainId = key(train.getTrainId());
+        trainsById.remove(trainId);
+
+        List<String> stations = train.getStations();
+        if (stations == null) return;
+
+        for (String station : stations) {
+            int id = stationId(station);
+            if (id >= 0) {
+                postings.get(id).remove(trainId);
+            }
+        }
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private Map<String, Integer> postingsFor(String station) {
+        int id = stationId(station);
+        return id < 0 ? Map.of() : postings.get(id);
+    }
+
+    private int intern(String station) {
+        String name = normalize(station);
+        Integer id = stationIds.get(name);
+        if (id != null) return id;
+
+        int newId = stationNames.size();
+        stationIds.put(name, newId);
+        stationNames.add(name);
+        postings.add(new LinkedHashMap<>());
+        return newId;
+    }
+
+    private static String normalize(String station) {
+        return station.trim().toLowerCase();
+    }
+
+    private static String key(String trainId) {
+        return trainId.toLowerCase();
+    }
+}
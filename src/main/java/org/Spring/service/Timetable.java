@@ -0,0 +1,236 @@
+package org.Spring.service;
+
+import org.Spring.entities.Train;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable, array-based view of the timetable for journey planning
+ * and time-window search.
+ * Built once per catalog version: stations are interned to ids and every
+ * train's stop times are parsed to minutes after midnight of the day it
+ * leaves its first station (so they only grow, even past midnight).
+ * Trains without a time for every stop are left out.
+ */
+final class Timetable {
+
+    static final int MINUTES_PER_DAY = 24 * 60;
+
+    private final Map<String, Integer> stationIds = new HashMap<>();
+    private final List<String> stationNames = new ArrayList<>();
+
+    // Per train: station id and minute of each stop
+    final Train[] trains;
+    final int[][] stopStations;
+    final int[][] stopMinutes;
+
+    // Per station: trains calling there and the stop position on each
+    final int[][] trainsAt;
+    final int[][] positionsAt;
+
+    // Per station: the same calls sorted by minute of day, for time-window search
+    private final int[][] departureMinutes;
+    private final int[][] departureTrains;
+    private final int[][] departurePositions;
+
+    Timetable(List<Train> catalog) {
+        List<Train> usable = new ArrayList<>();
+        List<int[]> stations = new ArrayList<>();
+        List<int[]> minutes = new ArrayList<>();
+
+        for (Train train : catalog) {
+            int[] times = elapsedMinutes(train);
+            if (times == null) continue;
+
+            int[] ids = new int[times.length];
+            for (int i = 0; i < ids.length; i++) {
+                ids[i] = intern(train.getStations().get(i));
+            }
+            usable.add(train);
+            stations.add(ids);
+            minutes.add(times);
+        }
+
+        this.trains = usable.toArray(new Train[0]);
+        this.stopStations = stations.toArray(new int[0][]);
+        this.stopMinutes = minutes.toArray(new int[0][]);
+
+        // Invert: count calls per station, then fill
+        int[] calls = new int[stationNames.size()];
+        for (int[] ids : stopStations) {
+            for (int id : ids) calls[id]++;
+        }
+        this.trainsAt = new int[calls.length][];
+        this.positionsAt = new int[calls.length][];
+        for (int id = 0; id < calls.length; id++) {
+            trainsAt[id] = new int[calls[id]];
+            positionsAt[id] = new int[calls[id]];
+            calls[id] = 0;
+        }
+        for (int t = 0; t < stopStations.length; t++) {
+            for (int pos = 0; pos < stopStations[t].length; pos++) {
+                int id = stopStations[t][pos];
+                trainsAt[id][calls[id]] = t;
+                positionsAt[id][calls[id]] = pos;
+                calls[id]++;
+            }
+        }
+
+        this.departureMinutes = new int[calls.length][];
+        this.departureTrains = new int[calls.length][];
+        this.departurePositions = new int[calls.length][];
+        for (int id = 0; id < calls.length; id++) {
+            sortDepartures(id);
+        }
+    }
+
+    /* =========================
+       Queries
+       ========================= */
+
+    int stationId(String station) {
+        if (station == null) return -1;
+        Integer id = stationIds.get(normalize(station));
+        return id == null ? -1 : id;
+    }
+
+    String stationName(int id) {
+        return stationNames.get(id);
+    }
+
+    int stations() {
+        return stationNames.size();
+    }
+
+    /**
+     * Trains leaving the station at a minute of day in [fromMinute, toMinute],
+     * found by binary search. The consumer gets train and stop position.
+     */
+    void departures(int station, int fromMinute, int toMinute, IntBiConsumer consumer) {
+        int[] minutes = departureMinutes[station];
+        for (int i = lowerBound(minutes, fromMinute); i < minutes.length && minutes[i] <= toMinute; i++) {
+            consumer.accept(departureTrains[station][i], departurePositions[station][i]);
+        }
+    }
+
+    /**
+     * Stop position of the station on the train after {@code afterPos}, or -1.
+     */
+    int positionAfter(int train, int afterPos, int station) {
+        int[] stations = stopStations[train];
+        for (int pos = afterPos + 1; pos < stations.length; pos++) {
+            if (stations[pos] == station) return pos;
+        }
+        return -1;
+    }
+
+    /**
+     * Stop times of the train in minutes after midnight of its first
+     * departure day, in stop order; null if any stop has no valid time.
+     * A time earlier than the previous stop's means the next day.
+     */
+    static int[] elapsedMinutes(Train train) {
+        List<String> stations = train.getStations();
+        Map<String, String> times = train.getStationTimes();
+        if (stations == null || stations.isEmpty() || times == null) return null;
+
+        int[] minutes = new int[stations.size()];
+        for (int i = 0; i < minutes.length; i++) {
+            String text = times.get(stations.get(i));
+            if (text == null) text = times.get(normalize(stations.get(i)));
+            if (text == null) return null;
+
+            int minuteOfDay = minuteOfDay(text);
+            if (minuteOfDay < 0) return null;
+
+            int elapsed = i == 0 ? minuteOfDay : minutes[i - 1] - Math.floorMod(minutes[i - 1], MINUTES_PER_DAY) + minuteOfDay;
+            if (i > 0 && elapsed < minutes[i - 1]) elapsed += MINUTES_PER_DAY;
+            minutes[i] = elapsed;
+        }
+        return minutes;
+    }
+
+    /**
+     * Minute of day of an "HH:mm" or "HH:mm:ss" time, or -1 if malformed.
+     * Hand-rolled: a national timetable has millions of these to parse.
+     */
+    static int minuteOfDay(String text) {
+        String time = text.trim();
+        if (time.length() != 5 && time.length() != 8) return -1;
+        if (time.charAt(2) != ':' || (time.length() == 8 && time.charAt(5) != ':')) return -1;
+
+        int hours = twoDigits(time, 0);
+        int minutes = twoDigits(time, 3);
+        int seconds = time.length() == 8 ? twoDigits(time, 6) : 0;
+        if (hours < 0 || hours > 23 || minutes < 0 || minutes > 59 || seconds < 0 || seconds > 59) {
+            return -1;
+        }
+        return hours * 60 + minutes;
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private void sortDepartures(int station) {
+        int calls = trainsAt[station].length;
+        long[] keyed = new long[calls];
+        for (int i = 0; i < calls; i++) {
+            int minute = Math.floorMod(stopMinutes[trainsAt[station][i]][positionsAt[station][i]], MINUTES_PER_DAY);
+            // Minute in the high half, call index in the low half: one primitive sort
+            keyed[i] = ((long) minute << 32) | i;
+        }
+        Arrays.sort(keyed);
+
+        departureMinutes[station] = new int[calls];
+        departureTrains[station] = new int[calls];
+        departurePositions[station] = new int[calls];
+        for (int i = 0; i < calls; i++) {
+            int call = (int) keyed[i];
+            departureMinutes[station][i] = (int) (keyed[i] >>> 32);
+            departureTrains[station][i] = trainsAt[station][call];
+            departurePositions[station][i] = positionsAt[station][call];
+        }
+    }
+
+    private static int lowerBound(int[] sorted, int value) {
+        int low = 0;
+        int high = sorted.length;
+        while (low < high) {
+            int mid = (low + high) >>> 1;
+            if (sorted[mid] < value) low = mid + 1;
+            else high = mid;
+        }
+        return low;
+    }
+
+    private static int twoDigits(String text, int at) {
+        int tens = text.charAt(at) - '0';
+        int ones = text.charAt(at + 1) - '0';
+        if (tens < 0 || tens > 9 || ones < 0 || ones > 9) return -1;
+        return tens * 10 + ones;
+    }
+
+    private int intern(String station) {
+        String name = normalize(station);
+        Integer id = stationIds.get(name);
+        if (id != null) return id;
+
+        stationIds.put(name, stationNames.size());
+        stationNames.add(name);
+        return stationNames.size() - 1;
+    }
+
+    private static String normalize(String station) {
+        return station.trim().toLowerCase();
+    }
+
+    @FunctionalInterface
+    interface IntBiConsumer {
+        void accept(int train, int position);
+    }
+}
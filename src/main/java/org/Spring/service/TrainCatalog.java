@@ -0,0 +1,315 @@
+package org.Spring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.JournalEvent;
+import org.Spring.entities.Train;
+import org.Spring.persistence.BookingJournal;
+import org.Spring.persistence.BinarySnapshot;
+import org.Spring.persistence.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.locks.Lock;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Supplier;
+
+/**
+ * Long-lived, in-memory train repository.
+ * train.json is streamed into the index once; afterwards reads are served from memory and
+ * the file is only re-read when its version (mtime + size) changes on disk.
+ * One instance is shared through {@link BookingStore}.
+ *
+ * Routes are limited to {@link SeatInventory#MAX_STOPS} stops, the most one
+ * seat's leg mask can track; longer trains are refused on load and on update.
+ */
+public final class TrainCatalog {
+
+    // How often reads may stat the file to detect external edits
+    private static final long VERSION_CHECK_INTERVAL_NANOS =
+            TimeUnit.SECONDS.toNanos(1);
+
+    private final ObjectMapper objectMapper;
+    private final File trainFile;
+    private final BookingJournal journal;
+    private final SnapshotFormat format;
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+
+    private List<Train> trains;
+    private StationIndex stationIndex;
+    // Built on first use after each change; readers may build it concurrently
+    private volatile Timetable timetable;
+    // Counts updates, so a reload can tell one slipped in while it read; guarded by lock
+    private long updates;
+    private volatile FileVersion loadedVersion;
+    private volatile long nextVersionCheck;
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public TrainCatalog(File trainFile) throws IOException {
+        this(trainFile, null);
+    }
+
+    public TrainCatalog(File trainFile, BookingJournal journal) throws IOException {
+        this(trainFile, journal, SnapshotFormat.JSON);
+    }
+
+    /**
+     * With a journal, train updates are appended to it and replayed over
+     * train.json on every load instead of rewriting the file.
+     *
+     * @param format how snapshots are written; the newer of train.json and
+     *               train.bin is loaded either way
+     */
+    public TrainCatalog(File trainFile, BookingJournal journal, SnapshotFormat format) throws IOException {
+        this.objectMapper = createMapper();
+        this.trainFile = trainFile;
+        this.journal = journal;
+        this.format = format;
+        reload();
+    }
+
+    /* =========================
+       Reads
+       ========================= */
+
+    public List<Train> searchTrains(String source, String destination) {
+        return read(() -> stationIndex.search(source, destination));
+    }
+
+    public Optional<Train> findByTrainId(String trainId) {
+        return read(() -> Optional.ofNullable(stationIndex.train(trainId)));
+    }
+
+    public List<Train> allTrains() {
+        return read(() -> List.copyOf(trains));
+    }
+
+    Timetable timetable() {
+        return read(() -> {
+            Timetable current = timetable;
+            if (current == null) {
+                current = new Timetable(trains);
+                timetable = current;
+            }
+            return current;
+        });
+    }
+
+    /* =========================
+       Writes
+       ========================= */
+
+    /**
+     * @throws IllegalArgumentException when the route has more stops than seats can track
+     */
+    public void saveOrUpdateTrain(Train train) throws IOException {
+        checkRoute(train);
+        if (journal == null) {
+            upsert(train);
+            writeSnapshot();
+            return;
+        }
+
+        // Compaction must see the update and its record together
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            upsert(train);
+            journal.append(JournalEvent.trainUpdated(train));
+            // Again once the record is there, for a reload that counted the update before its record
+            lock.writeLock().lock();
+            try {
+                updates++;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        } finally {
+            change.unlock();
+        }
+    }
+
+    private void upsert(Train train) {
+        lock.writeLock().lock();
+        try {
+            upsert(trains, stationIndex, train);
+            timetable = null;
+            updates++;
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    /**
+     * Writes the in-memory trains back to train.json (or train.bin).
+     */
+    public void writeSnapshot() throws IOException {
+        writeSnapshot(format);
+    }
+
+    public void writeSnapshot(SnapshotFormat snapshotFormat) throws IOException {
+        lock.readLock().lock();
+        try {
+            saveTrains(snapshotFormat, trains);
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Copies the train list for compaction; the returned writer saves the
+     * copy without holding the lock. Trains are replaced on update, never changed.
+     */
+    public BookingJournal.SnapshotWriter captureSnapshot() {
+        List<Train> copy;
+        lock.readLock().lock();
+        try {
+            copy = List.copyOf(trains);
+        } finally {
+            lock.readLock().unlock();
+        }
+        return () -> saveTrains(format, copy);
+    }
+
+    /* =========================
+       Persistence
+       ========================= */
+
+    /**
+     * Loads the snapshot and replays the journal over it without blocking
+     * readers, then swaps the result in. Starts again when an update or a
+     * compaction landed meanwhile, since the result could be missing it.
+     */
+    private void reload() throws IOException {
+        while (true) {
+            long seenUpdates;
+            lock.readLock().lock();
+            try {
+                seenUpdates = updates;
+            } finally {
+                lock.readLock().unlock();
+            }
+            long seenGeneration = journal == null ? 0 : journal.generation();
+
+            FileVersion version = FileVersion.of(trainFile);
+            List<Train> loaded = new ArrayList<>();
+            StationIndex index = new StationIndex(List.of());
+            // Each train goes into the index as soon as it is parsed
+            try {
+                SnapshotFormat.read(objectMapper, trainFile, Train.class, BinarySnapshot.TRAINS, train -> {
+                    checkRoute(train);
+                    loaded.add(train);
+                    index.add(train);
+                });
+                if (journal != null) {
+                    journal.replay(event -> {
+                        if (event.getType() == JournalEvent.Type.TRAIN_UPDATED) {
+                            checkRoute(event.getTrain());
+                            upsert(loaded, index, event.getTrain());
+                        }
+                    });
+                }
+            } catch (IllegalArgumentException ex) {
+                throw new IOException("Cannot load " + trainFile + ": " + ex.getMessage(), ex);
+            }
+
+            lock.writeLock().lock();
+            try {
+                if (updates != seenUpdates) continue;
+                if (journal != null && journal.generation() != seenGeneration) continue;
+
+                this.trains = loaded;
+                this.stationIndex = index;
+                this.timetable = null;
+                this.loadedVersion = version;
+                this.nextVersionCheck = System.nanoTime() + VERSION_CHECK_INTERVAL_NANOS;
+                return;
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+    }
+
+    private void saveTrains(SnapshotFormat snapshotFormat, List<Train> toSave) throws IOException {
+        snapshotFormat.write(objectMapper, trainFile, BinarySnapshot.TRAINS, toSave);
+        // Our own write must not look like an external change
+        loadedVersion = FileVersion.of(trainFile);
+    }
+
+    /* =========================
+       Version Check
+       ========================= */
+
+    private <T> T read(Supplier<T> query) {
+        refreshIfStale();
+        lock.readLock().lock();
+        try {
+            return query.get();
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    private void refreshIfStale() {
+        long now = System.nanoTime();
+        if (now - nextVersionCheck < 0) return;
+        nextVersionCheck = now + VERSION_CHECK_INTERVAL_NANOS;
+
+        if (!FileVersion.of(trainFile).equals(loadedVersion)) {
+            try {
+                reload();
+            } catch (IOException ex) {
+                throw new UncheckedIOException("Failed to reload " + trainFile, ex);
+            }
+        }
+    }
+
+    private static void checkRoute(Train train) {
+        int stops = train.getStations() == null ? 0 : train.getStations().size();
+        if (stops > SeatInventory.MAX_STOPS) {
+            throw new IllegalArgumentException("Train " + train.getTrainId() + " has " + stops
+                    + " stops, at most " + SeatInventory.MAX_STOPS + " are supported");
+        }
+    }
+
+    private static void upsert(List<Train> trains, StationIndex stationIndex, Train train) {
+        int index = findTrainIndex(trains, train.getTrainId());
+
+        if (index >= 0) {
+            stationIndex.remove(trains.get(index));
+            trains.set(index, train);
+        } else {
+            trains.add(train);
+        }
+        stationIndex.add(train);
+    }
+
+    private static int findTrainIndex(List<Train> trains, String trainId) {
+        for (int i = 0; i < trains.size(); i++) {
+            if (trains.get(i).getTrainId().equalsIgnoreCase(trainId)) {
+                return i;
+            }
+        }
+        return -1;
+    }
+
+    private ObjectMapper createMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .build();
+    }
+
+    private record FileVersion(long lastModified, long length) {
+        static FileVersion of(File file) {
+            return new FileVersion(file.lastModified(), file.length());
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package org.Spring.service;
+
+import java.time.LocalDateTime;
+import java.time.LocalTime;
+
+/**
+ * Time limits and ordering for a train search; a null limit means none.
+ * A departure window whose start is after its end runs past midnight
+ * into the next day.
+ */
+public record TrainSearchFilter(
+        LocalTime departAfter,
+        LocalTime departBefore,
+        LocalDateTime arriveBy,
+        SortBy sortBy
+) {
+
+    public enum SortBy {
+        DEPARTURE,
+        DURATION
+    }
+
+    public static TrainSearchFilter any() {
+        return new TrainSearchFilter(null, null, null, SortBy.DEPARTURE);
+    }
+}
@@ -1,33 +1,40 @@
 package org.Spring.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.Itinerary;
 import org.Spring.entities.Train;
+import org.Spring.entities.TrainAvailability;
+import org.Spring.metrics.Metrics;
+import org.Spring.metrics.Operation;
 
-import java.io.File;
 import java.io.IOException;
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.LocalTime;
 import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashSet;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 public class TrainService {
 
-    private static final String TRAIN_DB_PATH =
-            "src/main/java/org/Spring/localdb/train.json";
-
-    private final ObjectMapper objectMapper;
-    private final File trainFile;
-    private final List<Train> trains;
+    private final TrainCatalog catalog;
+    private final SeatInventory seatInventory;
+    private final JourneyPlanner journeyPlanner;
 
     /* =========================
-       Constructor
+       Constructors
        ========================= */
 
     public TrainService() throws IOException {
-        this.objectMapper = createMapper();
-        this.trainFile = new File(TRAIN_DB_PATH);
-        this.trains = loadTrains();
+        this(BookingStore.shared().trainCatalog(), BookingStore.shared().seatInventory());
+    }
+
+    public TrainService(TrainCatalog catalog, SeatInventory seatInventory) {
+        this.catalog = catalog;
+        this.seatInventory = seatInventory;
+        this.journeyPlanner = new JourneyPlanner(catalog);
     }
 
     /* =========================
@@ -35,99 +42,151 @@ public class TrainService {
        ========================= */
 
     public List<Train> searchTrains(String source, String destination) {
-
-        // 🔥 NORMALIZE INPUT ONCE
-        source = source.trim().toLowerCase();
-        destination = destination.trim().toLowerCase();
-
-        List<Train> result = new ArrayList<>();
-
-        for (Train train : trains) {
-
-            // 🔎 DEBUG (keep while testing)
-            System.out.println("Checking train " + train.getTrainNo());
-            System.out.println("Stations: " + train.getStations());
-
-            if (isValidRoute(train, source, destination)) {
-                result.add(train);
-            }
-        }
-
-        return result;
+        return catalog.searchTrains(source, destination);
     }
 
-    public void saveOrUpdateTrain(Train train) throws IOException {
-        int index = findTrainIndex(train.getTrainId());
-
-        if (index >= 0) {
-            trains.set(index, train);
-        } else {
-            trains.add(train);
+    /**
+     * Trains leaving source on the date, each with its free seat count for
+     * the segment: the same trains and run dates as the filtered search with
+     * {@link TrainSearchFilter#any()}. Trains without stop times have no
+     * departure clock, so their run date is taken to be the date given;
+     * they come last.
+     */
+    public List<TrainAvailability> searchTrains(String source, String destination, LocalDate departureDate) {
+        long start = Metrics.start();
+        List<TrainAvailability> results = new ArrayList<>(
+                departures(source, destination, departureDate, TrainSearchFilter.any()));
+
+        Set<String> timed = new HashSet<>();
+        for (TrainAvailability result : results) {
+            timed.add(result.getTrain().getTrainId().toLowerCase());
         }
-
-        saveTrains();
+        for (Train train : catalog.searchTrains(source, destination)) {
+            if (timed.contains(train.getTrainId().toLowerCase())) continue;
+            results.add(new TrainAvailability(
+                    train,
+                    departureDate,
+                    seatInventory.availableSeats(
+                            train,
+                            departureDate,
+                            train.stopIndex(source),
+                            train.stopIndex(destination)
+                    )
+            ));
+        }
+        Metrics.succeeded(Operation.SEARCH, start);
+        return results;
     }
 
-    public Optional<Train> findByTrainId(String trainId) {
-        return trains.stream()
-                .filter(t -> t.getTrainId().equalsIgnoreCase(trainId))
-                .findFirst();
+    /**
+     * Trains leaving source on the given date inside the filter's departure
+     * window, with their times and free seats. Each station's departures are
+     * kept sorted by minute of day, so the window is found by binary search.
+     * Trains missing a stop time cannot match and are left out.
+     */
+    public List<TrainAvailability> searchTrains(
+            String source,
+            String destination,
+            LocalDate departureDate,
+            TrainSearchFilter filter
+    ) {
+        long start = Metrics.start();
+        List<TrainAvailability> results = departures(source, destination, departureDate, filter);
+        Metrics.succeeded(Operation.SEARCH, start);
+        return results;
     }
 
-    /* =========================
-       Persistence
-       ========================= */
+    /**
+     * Journeys that may change trains, ranked by arrival time.
+     */
+    public List<Itinerary> planJourney(
+            String source,
+            String destination,
+            LocalDateTime earliestDeparture,
+            int maxTransfers,
+            int minConnectionMinutes
+    ) {
+        return journeyPlanner.plan(source, destination, earliestDeparture, maxTransfers, minConnectionMinutes);
+    }
 
-    private List<Train> loadTrains() throws IOException {
-        if (!trainFile.exists()) {
-            return new ArrayList<>();
-        }
-        return objectMapper.readValue(trainFile, new TypeReference<>() {});
+    public void saveOrUpdateTrain(Train train) throws IOException {
+        catalog.saveOrUpdateTrain(train);
     }
 
-    private void saveTrains() throws IOException {
-        objectMapper.writerWithDefaultPrettyPrinter()
-                .writeValue(trainFile, trains);
+    public Optional<Train> findByTrainId(String trainId) {
+        return catalog.findByTrainId(trainId);
     }
 
     /* =========================
-       Validation Logic (FIXED)
+       Utility
        ========================= */
 
-    private boolean isValidRoute(Train train, String source, String destination) {
-
-        List<String> stations = train.getStations()
-                .stream()
-                .map(String::toLowerCase)
-                .toList();
-
-        int sourceIndex = stations.indexOf(source);
-        int destinationIndex = stations.indexOf(destination);
-
-        System.out.println("srcIndex=" + sourceIndex + ", destIndex=" + destinationIndex);
+    private List<TrainAvailability> departures(
+            String source,
+            String destination,
+            LocalDate departureDate,
+            TrainSearchFilter filter
+    ) {
+        Timetable timetable = catalog.timetable();
+        int from = timetable.stationId(source);
+        int to = timetable.stationId(destination);
+        if (from < 0 || to < 0 || from == to) return List.of();
+
+        int after = filter.departAfter() == null ? 0 : minuteOfDay(filter.departAfter());
+        int before = filter.departBefore() == null
+                ? Timetable.MINUTES_PER_DAY - 1
+                : minuteOfDay(filter.departBefore());
+
+        List<TrainAvailability> results = new ArrayList<>();
+        if (after <= before) {
+            collectDepartures(timetable, from, to, departureDate, after, before, filter, results);
+        } else {
+            // Window wraps midnight: the late part today, the early part tomorrow
+            collectDepartures(timetable, from, to, departureDate, after, Timetable.MINUTES_PER_DAY - 1, filter, results);
+            collectDepartures(timetable, from, to, departureDate.plusDays(1), 0, before, filter, results);
+        }
 
-        return sourceIndex >= 0
-                && destinationIndex >= 0
-                && sourceIndex < destinationIndex;
+        results.sort(filter.sortBy() == TrainSearchFilter.SortBy.DURATION
+                ? Comparator.comparing(TrainAvailability::getDuration)
+                        .thenComparing(TrainAvailability::getDeparture)
+                : Comparator.comparing(TrainAvailability::getDeparture));
+        return results;
     }
 
-    private int findTrainIndex(String trainId) {
-        for (int i = 0; i < trains.size(); i++) {
-            if (trains.get(i).getTrainId().equalsIgnoreCase(trainId)) {
-                return i;
-            }
-        }
-        return -1;
+    private void collectDepartures(
+            Timetable timetable,
+            int from,
+            int to,
+            LocalDate date,
+            int fromMinute,
+            int toMinute,
+            TrainSearchFilter filter,
+            List<TrainAvailability> results
+    ) {
+        timetable.departures(from, fromMinute, toMinute, (train, boardAt) -> {
+            int alightAt = timetable.positionAfter(train, boardAt, to);
+            if (alightAt < 0) return;
+
+            int[] minutes = timetable.stopMinutes[train];
+            LocalDateTime departure = date.atStartOfDay()
+                    .plusMinutes(Math.floorMod(minutes[boardAt], Timetable.MINUTES_PER_DAY));
+            LocalDateTime arrival = departure.plusMinutes(minutes[alightAt] - minutes[boardAt]);
+            if (filter.arriveBy() != null && arrival.isAfter(filter.arriveBy())) return;
+
+            // Seats are booked under the day the train left its first station
+            Train t = timetable.trains[train];
+            LocalDate runDate = date.minusDays(Math.floorDiv(minutes[boardAt], Timetable.MINUTES_PER_DAY));
+            results.add(new TrainAvailability(
+                    t,
+                    runDate,
+                    seatInventory.availableSeats(t, runDate, boardAt, alightAt),
+                    departure,
+                    arrival
+            ));
+        });
     }
 
-    /* =========================
-       ObjectMapper
-       ========================= */
-
-    private ObjectMapper createMapper() {
-        return JsonMapper.builder()
-                .findAndAddModules()
-                .build();
+    private static int minuteOfDay(LocalTime time) {
+        return time.getHour() * 60 + time.getMinute();
     }
 }
-
@@ -1,106 +1,304 @@
 package org.Spring.service;
 
-import com.fasterxml.jackson.core.type.TypeReference;
-import com.fasterxml.jackson.databind.ObjectMapper;
-import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.Itinerary;
+import org.Spring.entities.JournalEvent;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
 import org.Spring.entities.Ticket;
 import org.Spring.entities.Train;
+import org.Spring.entities.TrainAvailability;
 import org.Spring.entities.User;
+import org.Spring.metrics.Metrics;
+import org.Spring.metrics.Operation;
+import org.Spring.metrics.Trace;
+import org.Spring.persistence.BookingJournal;
+import org.Spring.utils.PasswordVerifier;
 import org.Spring.utils.UserServiceUtil;
 
-import java.io.File;
 import java.io.IOException;
 import java.time.LocalDate;
+import java.time.LocalDateTime;
 import java.util.*;
-
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.locks.Lock;
+
+/**
+ * Booking operations for logged-in users.
+ *
+ * Stateless: every user operation takes the session token handed out by
+ * {@link #login(String, String)}, so one instance serves any number of
+ * users from many threads. Sessions live in the store's {@link SessionRegistry}.
+ *
+ * Changes return as soon as their record is in the journal, wrapped in a
+ * {@link Durable} whose future completes when that record is on disk. A
+ * change is undone here only when the journal refuses its record (closed, or
+ * a direct write failed); once taken, a record is retried until it is written.
+ */
 public class UserBookingService {
 
-    private static final String USER_FILE_PATH =
-            "src/main/java/org/Spring/localdb/users.json";
-
-    private final ObjectMapper objectMapper;
-    private final File userFile;
+    // Time allowed to change platforms between two trains
+    public static final int MIN_CONNECTION_MINUTES = 30;
 
-    private final List<User> users;
-    private User currentUser;
+    private final TrainService trainService;
+    private final SeatInventory seatInventory;
+    private final Waitlist waitlist;
+    private final UserRepository users;
+    private final BookingJournal journal;
+    private final PasswordVerifier passwordVerifier;
+    private final SessionRegistry sessions;
 
     /* =========================
        Constructors
        ========================= */
 
     public UserBookingService() throws IOException {
-        this.objectMapper = createMapper();
-        this.userFile = new File(USER_FILE_PATH);
-        this.users = loadUsers();
+        this(BookingStore.shared());
+    }
+
+    public UserBookingService(BookingStore store) {
+        this(store, PasswordVerifier.shared());
     }
 
-    public UserBookingService(User user) throws IOException {
-        this();
-        this.currentUser = authenticate(user)
-                .orElseThrow(() -> new IllegalArgumentException("Invalid credentials"));
+    public UserBookingService(BookingStore store, PasswordVerifier passwordVerifier) {
+        this.trainService = new TrainService(store.trainCatalog(), store.seatInventory());
+        this.seatInventory = store.seatInventory();
+        this.waitlist = store.waitlist();
+        this.users = store.userRepository();
+        this.journal = store.journal();
+        this.passwordVerifier = passwordVerifier;
+        this.sessions = store.sessions();
     }
 
     /* =========================
        Authentication
        ========================= */
 
-    public boolean login(User loginRequest) {
-        Optional<User> user = authenticate(loginRequest);
-        user.ifPresent(u -> this.currentUser = u);
-        return user.isPresent();
+    /**
+     * Starts a session for the user.
+     *
+     * @return its token, or empty when the credentials do not match
+     */
+    public Optional<String> login(String name, String password) {
+        return authenticate(new User(name, password, null, null, null)).map(sessions::open);
     }
 
-    public boolean signUp(User newUser) throws IOException {
-        boolean exists = users.stream()
-                .anyMatch(u -> u.getName().equalsIgnoreCase(newUser.getName()));
+    public boolean logout(String token) {
+        return sessions.close(token);
+    }
+
+    public Durable<Boolean> signUp(User newUser) throws IOException {
+        long start = Metrics.start();
+        try {
+            Durable<Boolean> added = register(newUser);
+            Metrics.record(Operation.SIGNUP, start, added.value());
+            return added;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.SIGNUP, start, ex);
+            throw ex;
+        }
+    }
 
-        if (exists) return false;
+    private Durable<Boolean> register(User newUser) throws IOException {
+        if (users.findByName(newUser.getName()).isPresent()) return Durable.now(false);
 
         newUser.setHashedPassword(
-                UserServiceUtil.hashPassword(newUser.getPassword())
+                passwordVerifier.hash(newUser.getPassword())
         );
         newUser.setPassword(null);
         newUser.setTicketsBooked(new ArrayList<>());
 
-        users.add(newUser);
-        saveUsers();
-        return true;
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            // Re-checked atomically, someone may have taken the name while we hashed
+            if (!users.add(newUser)) return Durable.now(false);
+
+            try {
+                return new Durable<>(true, journal.append(JournalEvent.userSignedUp(newUser)));
+            } catch (IOException ex) {
+                users.remove(newUser);
+                throw ex;
+            }
+        } finally {
+            change.unlock();
+        }
     }
 
+    /**
+     * One bcrypt verify on the bounded pool; a hash made at an older,
+     * cheaper cost is upgraded in the background after a successful login.
+     */
     private Optional<User> authenticate(User loginRequest) {
-        return users.stream()
-                .filter(u ->
-                        u.getName().equalsIgnoreCase(loginRequest.getName()) &&
-                                UserServiceUtil.checkPassword(
-                                        loginRequest.getPassword(),
-                                        u.getHashedPassword()
-                                )
-                )
-                .findFirst();
+        long start = Metrics.start();
+        Optional<User> user;
+        try {
+            user = users.findByName(loginRequest.getName())
+                    .filter(u -> passwordVerifier.verify(
+                            loginRequest.getPassword(),
+                            u.getHashedPassword()
+                    ));
+            Metrics.record(Operation.LOGIN, start, user.isPresent());
+        } catch (RuntimeException ex) {
+            Metrics.failed(Operation.LOGIN, start, ex);
+            throw ex;
+        }
+
+        user.filter(u -> UserServiceUtil.needsRehash(u.getHashedPassword()))
+                .ifPresent(u -> passwordVerifier.rehashAsync(loginRequest.getPassword())
+                        .thenAccept(hash -> storeRehash(u, hash)));
+        return user;
+    }
+
+    /**
+     * Journals the upgraded hash first and only then swaps it in, so memory
+     * never holds a hash the journal does not know about.
+     */
+    private void storeRehash(User user, String hashedPassword) {
+        if (hashedPassword == null) return;
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            journal.append(JournalEvent.passwordChanged(user, hashedPassword));
+            users.updatePassword(user, hashedPassword);
+        } catch (IOException ex) {
+            // The old hash still verifies; the next login tries again
+            Trace.log(Trace.Level.ERROR, "rehash", "user", user.getName(), "error", ex);
+        } finally {
+            change.unlock();
+        }
     }
 
     /* =========================
        Booking Operations
        ========================= */
 
-    public List<Ticket> fetchBookings() {
-        ensureLoggedIn();
-        return List.copyOf(currentUser.getTicketsBooked());
+    public List<Ticket> fetchBookings(String token) {
+        return users.tickets(sessionUser(token));
     }
 
-    public boolean cancelBooking(String ticketId) throws IOException {
-        ensureLoggedIn();
+    public Durable<Boolean> cancelBooking(String token, String ticketId) throws IOException {
+        return cancelFor(sessionUser(token), ticketId);
+    }
 
-        if (ticketId == null || ticketId.isBlank()) return false;
+    private Durable<Boolean> cancelFor(User user, String ticketId) throws IOException {
+        long start = Metrics.start();
+        try {
+            Durable<Boolean> cancelled = removeBooking(user, ticketId);
+            Metrics.record(Operation.CANCEL, start, cancelled.value());
+            return cancelled;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.CANCEL, start, ex);
+            throw ex;
+        }
+    }
 
-        boolean removed = currentUser.getTicketsBooked()
-                .removeIf(ticket -> ticket.getTicketId().equals(ticketId));
+    /**
+     * Cancels the ticket, puts its seat back on sale and hands it to the
+     * waitlist first. The ticket index says in O(1) whether the ticket is the
+     * user's and which seat it holds. The seat is released only once the
+     * cancellation is journaled, so a resale of the seat is always appended
+     * after it; and the whole cancellation runs under the change lock, so a
+     * compaction cannot snapshot the seat as held and then drop the record
+     * that frees it.
+     */
+    private Durable<Boolean> removeBooking(User user, String ticketId) throws IOException {
+        if (ticketId == null || ticketId.isBlank()) return Durable.now(false);
+
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            // Someone else's ticket: refuse without touching this user's list
+            Optional<SeatReservation> held = seatInventory.find(ticketId);
+            if (held.isPresent() && !held.get().getUserId().equals(user.getUserId())) {
+                return Durable.now(false);
+            }
+
+            Optional<Ticket> removed = users.removeTicket(user, ticketId);
+            if (removed.isEmpty()) return Durable.now(false);
+
+            CompletableFuture<Void> durable;
+            try {
+                durable = journal.append(JournalEvent.cancelled(user, ticketId));
+            } catch (IOException ex) {
+                users.addTicket(user, removed.get());
+                throw ex;
+            }
+
+            seatInventory.release(ticketId).ifPresent(seat -> trainService.findByTrainId(seat.getTrainId())
+                    .ifPresent(train -> promoteWaiters(train, seat.getDateOfTravel())));
+            return new Durable<>(true, durable);
+        } finally {
+            change.unlock();
+        }
+    }
 
-        if (removed) {
-            saveUsers();
+    /**
+     * PNR status: the ticket with that id, whoever booked it, while its seat
+     * is held (booked and not cancelled). One map lookup, no scan over users.
+     */
+    public Optional<Ticket> pnrStatus(String ticketId) {
+        return seatInventory.find(ticketId).flatMap(seat -> trainService.findByTrainId(seat.getTrainId())
+                .map(train -> Ticket.forReservation(
+                        seat,
+                        train.getStations().get(seat.getFromStop()),
+                        train.getStations().get(seat.getToStop())
+                )));
+    }
+
+    /**
+     * Turns the seats the waitlist now holds into tickets. A waiter whose
+     * ticket cannot be journaled goes back to the head of the queue.
+     * Caller holds the change lock.
+     */
+    private void promoteWaiters(Train train, LocalDate dateOfTravel) {
+        for (Waitlist.Promotion promotion : waitlist.promote(train, dateOfTravel)) {
+            Waitlist.Entry entry = promotion.entry();
+            SeatReservation reservation = promotion.reservation();
+            Optional<User> waiter = users.findByName(entry.userName())
+                    .filter(u -> entry.userId().equals(u.getUserId()));
+            if (waiter.isEmpty()) {
+                seatInventory.release(reservation);
+                continue;
+            }
+
+            Ticket ticket = Ticket.forReservation(
+                    reservation,
+                    train.getStations().get(entry.fromStop()),
+                    train.getStations().get(entry.toStop())
+            );
+            users.addTicket(waiter.get(), ticket);
+            try {
+                journal.append(JournalEvent.booked(waiter.get(), ticket));
+            } catch (IOException ex) {
+                users.removeTicket(waiter.get(), ticket.getTicketId());
+                seatInventory.release(reservation);
+                waitlist.requeue(entry);
+                Trace.log(Trace.Level.ERROR, "waitlist-promote", "wait_id", entry.waitId(), "error", ex);
+            }
         }
+    }
 
-        return removed;
+    /* =========================
+       Waitlist
+       ========================= */
+
+    /**
+     * Queues for the segment when it is sold out; the first seat freed on it
+     * by a cancellation becomes a ticket in the user's bookings. Empty when a
+     * seat is free right now (book it instead) or the segment is not on the route.
+     */
+    public Optional<Waitlist.Entry> joinWaitlist(
+            String token,
+            Train train,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) {
+        return waitlist.join(sessionUser(token), train, dateOfTravel, train.stopIndex(source), train.stopIndex(destination));
+    }
+
+    public boolean leaveWaitlist(String token, String waitId) {
+        return waitlist.leave(sessionUser(token).getUserId(), waitId);
     }
 
     /* =========================
@@ -108,11 +306,57 @@ public class UserBookingService {
        ========================= */
 
     public List<Train> searchTrains(String source, String destination) throws IOException {
-        TrainService trainService = new TrainService();
         return trainService.searchTrains(source, destination);
     }
 
-    public boolean bookTrainSeat(
+    public List<TrainAvailability> searchTrains(String source, String destination, LocalDate dateOfTravel) {
+        return trainService.searchTrains(source, destination, dateOfTravel);
+    }
+
+    public List<TrainAvailability> searchTrains(
+            String source,
+            String destination,
+            LocalDate departureDate,
+            TrainSearchFilter filter
+    ) {
+        return trainService.searchTrains(source, destination, departureDate, filter);
+    }
+
+    public Optional<Train> findTrain(String trainId) {
+        return trainService.findByTrainId(trainId);
+    }
+
+    /**
+     * Journeys with up to {@code maxTransfers} changes, allowing
+     * {@link #MIN_CONNECTION_MINUTES} for each change.
+     */
+    public List<Itinerary> planJourney(
+            String source,
+            String destination,
+            LocalDateTime earliestDeparture,
+            int maxTransfers
+    ) {
+        return trainService.planJourney(source, destination, earliestDeparture, maxTransfers, MIN_CONNECTION_MINUTES);
+    }
+
+    /**
+     * Seat grid for the given date and segment (1 = not available).
+     */
+    public SeatMap seatAvailability(Train train, String source, String destination, LocalDate dateOfTravel) {
+        return seatInventory.availability(
+                train,
+                dateOfTravel,
+                train.stopIndex(source),
+                train.stopIndex(destination)
+        );
+    }
+
+    /**
+     * Books the given seat; empty when it is taken for the segment or the
+     * segment is not on the train's route.
+     */
+    public Durable<Optional<Ticket>> bookSeat(
+            String token,
             Train train,
             int row,
             int seat,
@@ -120,73 +364,259 @@ public class UserBookingService {
             String destination,
             LocalDate dateOfTravel
     ) throws IOException {
+        return bookSeatFor(sessionUser(token), train, row, seat, source, destination, dateOfTravel);
+    }
 
-        ensureLoggedIn();
-
-        List<List<Integer>> seats = train.getSeats();
-
-        if (!isSeatValid(seats, row, seat)) {
-            return false;
+    private Durable<Optional<Ticket>> bookSeatFor(
+            User user,
+            Train train,
+            int row,
+            int seat,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+        long start = Metrics.start();
+        try {
+            Durable<Optional<Ticket>> ticket = reserveSeat(user, train, row, seat, source, destination, dateOfTravel);
+            Metrics.record(Operation.BOOK, start, ticket.value().isPresent());
+            return ticket;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.BOOK, start, ex);
+            throw ex;
         }
+    }
 
-        // Mark seat as booked
-        seats.get(row).set(seat, 1);
-        train.setSeats(seats);
-
-        // Persist train update
-        TrainService trainService = new TrainService();
-        trainService.saveOrUpdateTrain(train);
+    private Durable<Optional<Ticket>> reserveSeat(
+            User user,
+            Train train,
+            int row,
+            int seat,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
 
-        // ✅ CORRECT Ticket creation
         Ticket ticket = Ticket.create(
-                currentUser,
+                user,
                 train,
                 source,
                 destination,
-                dateOfTravel
+                dateOfTravel,
+                row,
+                seat
         );
+        if (ticket.getFromStop() < 0 || ticket.getToStop() <= ticket.getFromStop()) {
+            return Durable.now(Optional.empty());
+        }
 
-        currentUser.getTicketsBooked().add(ticket);
-        saveUsers();
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            // Hold the seat for this date and segment only
+            SeatReservation reservation = ticket.toReservation();
+            if (!seatInventory.reserve(reservation)) {
+                return Durable.now(Optional.empty());
+            }
+
+            users.addTicket(user, ticket);
+
+            // One small journal record instead of rewriting users.json and bookings.json
+            try {
+                return new Durable<>(Optional.of(ticket), journal.append(JournalEvent.booked(user, ticket)));
+            } catch (IOException ex) {
+                // Give the seat back, the journal never took the booking
+                users.removeTicket(user, ticket.getTicketId());
+                seatInventory.release(reservation);
+                throw ex;
+            }
+        } finally {
+            change.unlock();
+        }
+    }
 
-        return true;
+    /**
+     * Books whichever seat is free for the segment. Empty only when the
+     * train is sold out for it, so there is nothing to retry.
+     */
+    public Durable<Optional<Ticket>> bookAnySeat(
+            String token,
+            Train train,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+        return bookAnySeatFor(sessionUser(token), train, source, destination, dateOfTravel);
     }
 
-    private boolean isSeatValid(List<List<Integer>> seats, int row, int seat) {
-        return row >= 0 && row < seats.size()
-                && seat >= 0 && seat < seats.get(row).size()
-                && seats.get(row).get(seat) == 0;
+    private Durable<Optional<Ticket>> bookAnySeatFor(
+            User user,
+            Train train,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+        long start = Metrics.start();
+        try {
+            Durable<Optional<Ticket>> ticket = reserveAnySeat(user, train, source, destination, dateOfTravel);
+            Metrics.record(Operation.BOOK, start, ticket.value().isPresent());
+            return ticket;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.BOOK, start, ex);
+            throw ex;
+        }
     }
 
-    /* =========================
-       Persistence
-       ========================= */
+    private Durable<Optional<Ticket>> reserveAnySeat(
+            User user,
+            Train train,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            Optional<SeatReservation> reservation = seatInventory.reserveAny(
+                    train,
+                    dateOfTravel,
+                    train.stopIndex(source),
+                    train.stopIndex(destination),
+                    user.getUserId()
+            );
+            if (reservation.isEmpty()) return Durable.now(Optional.empty());
+
+            Ticket ticket = Ticket.forReservation(reservation.get(), source, destination);
+            users.addTicket(user, ticket);
+
+            try {
+                return new Durable<>(Optional.of(ticket), journal.append(JournalEvent.booked(user, ticket)));
+            } catch (IOException ex) {
+                users.removeTicket(user, ticket.getTicketId());
+                seatInventory.release(reservation.get());
+                throw ex;
+            }
+        } finally {
+            change.unlock();
+        }
+    }
+
+    /**
+     * Books {@code passengers} seats on one train, date and segment as a unit,
+     * preferring adjacent seats in the same row. Returns all tickets, or an
+     * empty list when the party does not fit (nothing is held then).
+     */
+    public Durable<List<Ticket>> bookGroup(
+            String token,
+            Train train,
+            int passengers,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+        return bookGroupFor(sessionUser(token), train, passengers, source, destination, dateOfTravel);
+    }
 
-    private List<User> loadUsers() throws IOException {
-        if (!userFile.exists()) {
-            return new ArrayList<>();
+    private Durable<List<Ticket>> bookGroupFor(
+            User user,
+            Train train,
+            int passengers,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+        long start = Metrics.start();
+        try {
+            Durable<List<Ticket>> tickets = reserveGroup(user, train, passengers, source, destination, dateOfTravel);
+            Metrics.record(Operation.BOOK, start, !tickets.value().isEmpty());
+            return tickets;
+        } catch (IOException | RuntimeException ex) {
+            Metrics.failed(Operation.BOOK, start, ex);
+            throw ex;
         }
-        return objectMapper.readValue(userFile, new TypeReference<>() {});
     }
 
-    private void saveUsers() throws IOException {
-        objectMapper.writerWithDefaultPrettyPrinter()
-                .writeValue(userFile, users);
+    private Durable<List<Ticket>> reserveGroup(
+            User user,
+            Train train,
+            int passengers,
+            String source,
+            String destination,
+            LocalDate dateOfTravel
+    ) throws IOException {
+
+        Lock change = journal.changeLock();
+        change.lock();
+        try {
+            List<SeatReservation> reservations = seatInventory.reserveGroup(
+                    train,
+                    dateOfTravel,
+                    train.stopIndex(source),
+                    train.stopIndex(destination),
+                    user.getUserId(),
+                    passengers
+            );
+            if (reservations.isEmpty()) return Durable.now(List.of());
+
+            List<Ticket> tickets = new ArrayList<>(reservations.size());
+            for (SeatReservation reservation : reservations) {
+                tickets.add(Ticket.forReservation(reservation, source, destination));
+            }
+            users.addTickets(user, tickets);
+
+            // One journal record for the whole party
+            try {
+                return new Durable<>(tickets, journal.append(JournalEvent.groupBooked(user, tickets)));
+            } catch (IOException ex) {
+                for (Ticket ticket : tickets) {
+                    users.removeTicket(user, ticket.getTicketId());
+                }
+                reservations.forEach(seatInventory::release);
+                throw ex;
+            }
+        } finally {
+            change.unlock();
+        }
     }
 
-    private ObjectMapper createMapper() {
-        return JsonMapper.builder()
-                .findAndAddModules()
-                .build();
+    /**
+     * Ticket line with train details resolved from the catalog.
+     */
+    public String describeTicket(Ticket ticket) {
+        Optional<Train> train = trainService.findByTrainId(ticket.getTrainId());
+        String trainText = train
+                .map(t -> t.getTrainNo() + " (" + departureTime(t, ticket.getSource()) + ")")
+                .orElse(ticket.getTrainId() + " (no longer scheduled)");
+
+        return String.format(
+                "Ticket ID: %s | %s → %s | Date: %s | Train: %s | Seat: %s",
+                ticket.getTicketId(),
+                ticket.getSource(),
+                ticket.getDestination(),
+                ticket.getDateOfTravel(),
+                trainText,
+                ticket.hasSeat() ? ticket.getRow() + "-" + ticket.getSeat() : "not recorded"
+        );
     }
 
     /* =========================
        Utility
        ========================= */
 
-    private void ensureLoggedIn() {
-        if (currentUser == null) {
-            throw new IllegalStateException("User not logged in");
-        }
+    private static String departureTime(Train train, String station) {
+        if (train.getStationTimes() == null || station == null) return "-";
+        return train.getStationTimes().getOrDefault(station.trim().toLowerCase(), "-");
+    }
+
+    /**
+     * The stored user behind a live session token.
+     */
+    private User sessionUser(String token) {
+        SessionRegistry.Session session = sessions.find(token)
+                .orElseThrow(() -> new NotLoggedInException("Session expired or unknown, log in again"));
+        return users.findByName(session.getUserName())
+                .filter(u -> Objects.equals(u.getUserId(), session.getUserId()))
+                .orElseThrow(() -> new NotLoggedInException("User no longer exists"));
     }
 }
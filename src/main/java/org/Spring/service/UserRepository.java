@@ -0,0 +1,501 @@
+package org.Spring.service;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.JournalEvent;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.User;
+import org.Spring.persistence.AtomicFiles;
+import org.Spring.persistence.BookingJournal;
+import org.Spring.persistence.BinarySnapshot;
+import org.Spring.persistence.JsonArrayFiles;
+import org.Spring.persistence.SnapshotFormat;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Partitioned user database.
+ *
+ * Users are spread over {@link #PARTITIONS} files (users/part-NNNN.json) by a
+ * hash of their lower-cased name. A partition is read only when one of its
+ * users is looked up, at most {@code maxCachedPartitions} stay in memory, and
+ * only partitions that changed are written back, by the snapshot. When
+ * changed partitions alone fill the cache the overflow listener asks for that
+ * snapshot early. A legacy users.json is split into partitions the first time
+ * the directory is opened.
+ *
+ * Changes are made in memory here; making them durable is the caller's job
+ * (see {@link BookingJournal}). Every call resolves the user by name, so a
+ * stale User object held by a caller never receives updates.
+ */
+public final class UserRepository {
+
+    public static final int PARTITIONS = 256;
+
+    private final ObjectMapper objectMapper;
+    private final Path partitionDir;
+    private final int maxCachedPartitions;
+    private final SnapshotFormat format;
+    private final Map<Integer, Partition> partitions = new ConcurrentHashMap<>();
+
+    // userId -> user for every cached partition; not a complete index
+    private final Map<String, User> usersById = new ConcurrentHashMap<>();
+
+    private volatile Runnable overflowListener = () -> {
+    };
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public UserRepository(Path partitionDir, File legacyUserFile, BookingJournal journal, int maxCachedPartitions)
+            throws IOException {
+        this(partitionDir, legacyUserFile, journal, maxCachedPartitions, SnapshotFormat.JSON);
+    }
+
+    public UserRepository(
+            Path partitionDir,
+            File legacyUserFile,
+            BookingJournal journal,
+            int maxCachedPartitions,
+            SnapshotFormat format
+    ) throws IOException {
+        this.objectMapper = createMapper();
+        this.partitionDir = partitionDir;
+        this.maxCachedPartitions = maxCachedPartitions;
+        this.format = format;
+
+        if (!Files.isDirectory(partitionDir)) {
+            migrate(legacyUserFile);
+        }
+
+        if (journal != null) {
+            journal.replay(this::apply);
+        }
+    }
+
+    /* =========================
+       Reads
+       ========================= */
+
+    /**
+     * O(1) case-insensitive lookup. Lock-free when the partition is cached.
+     */
+    public Optional<User> findByName(String name) {
+        if (name == null) return Optional.empty();
+
+        Partition cached = partitions.get(partitionOf(name));
+        if (cached != null && !cached.evicted) {
+            cached.lastAccess = System.nanoTime();
+            return Optional.ofNullable(cached.find(name));
+        }
+        return withPartition(name, p -> Optional.ofNullable(p.find(name)));
+    }
+
+    /**
+     * O(1) lookup by userId among cached partitions only (everyone who signed
+     * up or logged in recently). Empty does not mean no such user: partitions
+     * are found by name, so nothing on disk maps an id to its user. Resolve
+     * users by name wherever the answer matters.
+     */
+    public Optional<User> findCachedByUserId(String userId) {
+        return userId == null ? Optional.empty() : Optional.ofNullable(usersById.get(userId));
+    }
+
+    public List<Ticket> tickets(User user) {
+        return withPartition(user.getName(), p -> {
+            User stored = p.find(user.getName());
+            return stored == null ? List.<Ticket>of() : List.copyOf(stored.getTicketsBooked());
+        });
+    }
+
+    /* =========================
+       Writes
+       ========================= */
+
+    /**
+     * Adds the user unless the name is taken (case-insensitive).
+     */
+    public boolean add(User user) {
+        return withPartition(user.getName(), p -> {
+            if (user.getTicketsBooked() == null) {
+                user.setTicketsBooked(new ArrayList<>());
+            }
+            if (p.users.putIfAbsent(key(user.getName()), user) != null) return false;
+            index(user);
+            p.changed();
+            return true;
+        });
+    }
+
+    public void remove(User user) {
+        withPartition(user.getName(), p -> {
+            User stored = p.users.remove(key(user.getName()));
+            if (stored != null) {
+                unindex(stored);
+                p.changed();
+            }
+            return null;
+        });
+    }
+
+    public boolean updatePassword(User user, String hashedPassword) {
+        return withPartition(user.getName(), p -> {
+            User stored = p.find(user.getName());
+            if (stored == null) return false;
+
+            stored.setHashedPassword(hashedPassword);
+            p.changed();
+            return true;
+        });
+    }
+
+    /**
+     * Adds the ticket to its user; a ticket id already present is ignored.
+     */
+    public boolean addTicket(User user, Ticket ticket) {
+        return addTickets(user, List.of(ticket));
+    }
+
+    /**
+     * Adds several tickets under one partition lock, so readers see
+     * either none or all of them. Ticket ids already present are ignored.
+     */
+    public boolean addTickets(User user, List<Ticket> tickets) {
+        return withPartition(user.getName(), p -> {
+            User stored = p.find(user.getName());
+            if (stored == null) return false;
+
+            boolean added = false;
+            for (Ticket ticket : tickets) {
+                boolean present = stored.getTicketsBooked().stream()
+                        .anyMatch(t -> t.getTicketId().equals(ticket.getTicketId()));
+                if (present) continue;
+
+                stored.getTicketsBooked().add(ticket);
+                added = true;
+            }
+            if (added) p.changed();
+            return added;
+        });
+    }
+
+    public Optional<Ticket> removeTicket(User user, String ticketId) {
+        return withPartition(user.getName(), p -> {
+            User stored = p.find(user.getName());
+            if (stored == null) return Optional.<Ticket>empty();
+
+            List<Ticket> tickets = stored.getTicketsBooked();
+            for (int i = 0; i < tickets.size(); i++) {
+                if (tickets.get(i).getTicketId().equals(ticketId)) {
+                    p.changed();
+                    return Optional.of(tickets.remove(i));
+                }
+            }
+            return Optional.<Ticket>empty();
+        });
+    }
+
+    /* =========================
+       Persistence
+       ========================= */
+
+    /**
+     * Writes every partition that changed since it was last written.
+     */
+    public void writeSnapshot() throws IOException {
+        captureSnapshot().write();
+    }
+
+    /**
+     * Copies every partition that changed since it was last written. The
+     * returned writer saves the copies and marks a partition clean only
+     * when it has not changed again in the meantime.
+     */
+    public BookingJournal.SnapshotWriter captureSnapshot() {
+        List<PartitionCopy> copies = new ArrayList<>();
+        for (Partition partition : partitions.values()) {
+            synchronized (partition) {
+                if (!partition.dirty || partition.evicted) continue;
+                List<User> users = new ArrayList<>(partition.users.size());
+                for (User user : partition.users.values()) {
+                    users.add(new User(
+                            user.getName(),
+                            user.getPassword(),
+                            user.getHashedPassword(),
+                            new ArrayList<>(user.getTicketsBooked()),
+                            user.getUserId()
+                    ));
+                }
+                copies.add(new PartitionCopy(partition, partition.version, users));
+            }
+        }
+
+        return () -> {
+            for (PartitionCopy copy : copies) {
+                writePartition(copy.partition().id, copy.users());
+                synchronized (copy.partition()) {
+                    if (copy.partition().version == copy.version()) {
+                        copy.partition().dirty = false;
+                    }
+                }
+            }
+            // Partitions held over the cap for their changes can go now
+            evictIfNeeded();
+        };
+    }
+
+    /**
+     * Writes every partition, cached or not, as JSON for people to read or edit.
+     */
+    public void exportJson() throws IOException {
+        for (int id = 0; id < PARTITIONS; id++) {
+            File file = partitionFile(id);
+            if (!partitions.containsKey(id) && !file.exists() && !SnapshotFormat.binaryTwin(file).exists()) {
+                continue;
+            }
+            try {
+                withPartition(id, p -> {
+                    try {
+                        SnapshotFormat.JSON.write(objectMapper, file, BinarySnapshot.USERS, p.users.values());
+                    } catch (IOException ex) {
+                        throw new UncheckedIOException(ex);
+                    }
+                    return null;
+                });
+            } catch (UncheckedIOException ex) {
+                throw ex.getCause();
+            }
+        }
+    }
+
+    public int cachedPartitions() {
+        return partitions.size();
+    }
+
+    /**
+     * Called, on the thread that overflowed the cache, whenever every cached
+     * partition has unsaved changes; it should arrange for a snapshot soon
+     * and must not block.
+     */
+    public void onCacheOverflow(Runnable listener) {
+        this.overflowListener = listener;
+    }
+
+    private <T> T withPartition(String name, Function<Partition, T> operation) {
+        return withPartition(partitionOf(name), operation);
+    }
+
+    private <T> T withPartition(int id, Function<Partition, T> operation) {
+        while (true) {
+            Partition partition = partitions.computeIfAbsent(id, this::loadPartition);
+            T result;
+            synchronized (partition) {
+                // Lost a race with eviction, load it again
+                if (partition.evicted) continue;
+                partition.lastAccess = System.nanoTime();
+                result = operation.apply(partition);
+            }
+            evictIfNeeded();
+            return result;
+        }
+    }
+
+    private Partition loadPartition(int id) {
+        File file = partitionFile(id);
+        try {
+            Partition partition = new Partition(id);
+            SnapshotFormat.read(objectMapper, file, User.class, BinarySnapshot.USERS, user -> {
+                if (user.getTicketsBooked() == null) {
+                    user.setTicketsBooked(new ArrayList<>());
+                }
+                partition.users.put(key(user.getName()), user);
+                index(user);
+            });
+            return partition;
+        } catch (IOException ex) {
+            throw new UncheckedIOException("Failed to load " + file, ex);
+        }
+    }
+
+    /**
+     * Drops the least recently used clean partitions. A dirty one stays until
+     * a snapshot writes it, since its changes may not be durable in the
+     * journal yet; when only dirty ones are left over the cap, the overflow
+     * listener is told so that snapshot comes early.
+     */
+    private void evictIfNeeded() {
+        while (partitions.size() > maxCachedPartitions) {
+            Partition oldest = null;
+            for (Partition candidate : partitions.values()) {
+                if (candidate.dirty) continue;
+                if (oldest == null || candidate.lastAccess - oldest.lastAccess < 0) {
+                    oldest = candidate;
+                }
+            }
+            if (oldest == null) {
+                overflowListener.run();
+                return;
+            }
+
+            synchronized (oldest) {
+                if (oldest.evicted || oldest.dirty) continue;
+                oldest.evicted = true;
+                partitions.remove(oldest.id, oldest);
+                oldest.users.values().forEach(this::unindex);
+            }
+        }
+    }
+
+    /**
+     * Splits users.json into a temporary sibling of the partition directory
+     * and moves it into place only once every file is on disk, so a crash
+     * part way leaves no partition directory and the next start migrates again.
+     */
+    private void migrate(File legacyUserFile) throws IOException {
+        if (legacyUserFile == null || !legacyUserFile.exists()) {
+            Files.createDirectories(partitionDir);
+            return;
+        }
+
+        Path temp = AtomicFiles.temporarySibling(partitionDir);
+        deleteDirectory(temp);   // left by a migration that crashed
+        Files.createDirectories(temp);
+
+        // Each user is streamed from users.json straight into its partition
+        // file, so the legacy file never has to fit in memory
+        JsonArrayFiles.Writer[] writers = new JsonArrayFiles.Writer[PARTITIONS];
+        try {
+            JsonArrayFiles.read(objectMapper, legacyUserFile, User.class, user -> {
+                if (user.getTicketsBooked() == null) {
+                    user.setTicketsBooked(new ArrayList<>());
+                }
+                int id = partitionOf(user.getName());
+                try {
+                    if (writers[id] == null) {
+                        writers[id] = JsonArrayFiles.write(objectMapper, partitionFile(temp, id));
+                    }
+                    writers[id].append(user);
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+        } catch (UncheckedIOException ex) {
+            throw ex.getCause();
+        } finally {
+            for (JsonArrayFiles.Writer writer : writers) {
+                if (writer != null) writer.close();
+            }
+        }
+        AtomicFiles.publishDirectory(temp, partitionDir);
+    }
+
+    private void writePartition(int id, Collection<User> users) throws IOException {
+        format.write(objectMapper, partitionFile(id), BinarySnapshot.USERS, users);
+    }
+
+    /**
+     * Replays one journal event; safe to apply twice.
+     */
+    private void apply(JournalEvent event) {
+        if (event.getUserName() == null) return;
+
+        User user = new User(event.getUserName(), null, null, null, event.getUserId());
+        switch (event.getType()) {
+            case USER_SIGNED_UP -> add(event.getUser());
+            case BOOKED -> addTicket(user, event.getTicket());
+            case GROUP_BOOKED -> addTickets(user, event.getTickets());
+            case CANCELLED -> removeTicket(user, event.getTicketId());
+            case PASSWORD_CHANGED -> updatePassword(user, event.getHashedPassword());
+            default -> {
+            }
+        }
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    static int partitionOf(String name) {
+        return Math.floorMod(key(name).hashCode(), PARTITIONS);
+    }
+
+    private static String key(String name) {
+        return name.trim().toLowerCase();
+    }
+
+    private void index(User user) {
+        if (user.getUserId() != null) {
+            usersById.put(user.getUserId(), user);
+        }
+    }
+
+    private void unindex(User user) {
+        if (user.getUserId() != null) {
+            usersById.remove(user.getUserId(), user);
+        }
+    }
+
+    private File partitionFile(int id) {
+        return partitionFile(partitionDir, id);
+    }
+
+    private static File partitionFile(Path dir, int id) {
+        return dir.resolve(String.format("part-%04d.json", id)).toFile();
+    }
+
+    private static void deleteDirectory(Path dir) throws IOException {
+        if (!Files.isDirectory(dir)) return;
+        try (var files = Files.list(dir)) {
+            for (Path file : (Iterable<Path>) files::iterator) {
+                Files.delete(file);
+            }
+        }
+        Files.delete(dir);
+    }
+
+    private ObjectMapper createMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .build();
+    }
+
+    private record PartitionCopy(Partition partition, long version, List<User> users) {
+    }
+
+    private static final class Partition {
+
+        private final int id;
+        // lower-cased name -> user; concurrent so lookups need no lock
+        private final Map<String, User> users = new ConcurrentHashMap<>();
+        private volatile boolean dirty;
+        // Bumped on every change, guarded by the partition
+        private long version;
+        private volatile boolean evicted;
+        private volatile long lastAccess = System.nanoTime();
+
+        Partition(int id) {
+            this.id = id;
+        }
+
+        void changed() {
+            dirty = true;
+            version++;
+        }
+
+        User find(String name) {
+            return users.get(key(name));
+        }
+    }
+}
@@ -0,0 +1,238 @@
+package org.Spring.service;
+
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.PriorityQueue;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentMap;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Passengers waiting for a seat on a sold-out train, date and segment.
+ *
+ * Each (train, date) keeps one priority queue per segment, ordered by when
+ * the passenger joined. When seats come free, {@link #promote} serves the
+ * earliest waiter among the segments that now have a seat: a counter check
+ * per waiting segment and an O(log n) poll, never a scan over users.
+ *
+ * Joining and promoting lock the (train, date), so a waiter cannot slip in
+ * between a seat being freed and the promotion that should have seen it.
+ * The waitlist is held in memory only: a restart empties it.
+ */
+public final class Waitlist {
+
+    private static final Comparator<Entry> JOIN_ORDER = Comparator.comparingLong(Entry::sequence);
+
+    private final SeatInventory seatInventory;
+    private final ConcurrentMap<Key, TrainDay> days = new ConcurrentHashMap<>();
+    private final ConcurrentMap<String, Entry> waiting = new ConcurrentHashMap<>();
+    private final AtomicLong sequence = new AtomicLong();
+
+    public Waitlist(SeatInventory seatInventory) {
+        this.seatInventory = seatInventory;
+    }
+
+    /**
+     * A place in the queue for one passenger.
+     */
+    public record Entry(
+            String waitId,
+            String userId,
+            String userName,
+            String trainId,
+            LocalDate dateOfTravel,
+            int fromStop,
+            int toStop,
+            long sequence
+    ) {
+    }
+
+    /**
+     * A waiter whose seat is now held; the caller turns it into a ticket,
+     * or releases the seat and {@link #requeue}s the entry.
+     */
+    public record Promotion(Entry entry, SeatReservation reservation) {
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    /**
+     * Queues the user for the segment. Empty when a seat is free for it
+     * right now (book instead) or the segment is not on the route.
+     */
+    public Optional<Entry> join(User user, Train train, LocalDate date, int fromStop, int toStop) {
+        if (train.getStations() == null || fromStop < 0 || toStop <= fromStop
+                || toStop >= train.getStations().size()) {
+            return Optional.empty();
+        }
+
+        TrainDay day = day(train.getTrainId(), date);
+        synchronized (day) {
+            if (seatInventory.availableSeats(train, date, fromStop, toStop) > 0) {
+                return Optional.empty();
+            }
+            Entry entry = new Entry(
+                    UUID.randomUUID().toString(),
+                    user.getUserId(),
+                    user.getName(),
+                    train.getTrainId(),
+                    date,
+                    fromStop,
+                    toStop,
+                    sequence.incrementAndGet()
+            );
+            waiting.put(entry.waitId(), entry);
+            day.queue(fromStop, toStop).add(entry);
+            return Optional.of(entry);
+        }
+    }
+
+    /**
+     * Takes the user's entry off the waitlist. Returns false if it is not
+     * theirs or no longer waiting (left, or already promoted).
+     */
+    public boolean leave(String userId, String waitId) {
+        if (waitId == null) return false;
+        Entry entry = waiting.get(waitId);
+        if (entry == null || !entry.userId().equals(userId)) return false;
+
+        // The queue drops it lazily when it reaches the head
+        return waiting.remove(waitId, entry);
+    }
+
+    public Optional<Entry> find(String waitId) {
+        return waitId == null ? Optional.empty() : Optional.ofNullable(waiting.get(waitId));
+    }
+
+    /**
+     * How many passengers are ahead of the entry in its segment's queue, or
+     * -1 when it is not waiting. Linear in the queue length; for display only.
+     */
+    public int position(Entry entry) {
+        if (!waiting.containsKey(entry.waitId())) return -1;
+        TrainDay day = days.get(new Key(entry.trainId(), entry.dateOfTravel()));
+        if (day == null) return -1;
+        synchronized (day) {
+            int ahead = 0;
+            for (Entry other : day.queue(entry.fromStop(), entry.toStop())) {
+                if (other.sequence() < entry.sequence() && waiting.containsKey(other.waitId())) ahead++;
+            }
+            return ahead;
+        }
+    }
+
+    /**
+     * Holds seats for as many waiters on the train and date as now fit,
+     * earliest first across every waiting segment.
+     */
+    public List<Promotion> promote(Train train, LocalDate date) {
+        TrainDay day = days.get(new Key(train.getTrainId(), date));
+        if (day == null) return List.of();
+
+        List<Promotion> promoted = new ArrayList<>();
+        synchronized (day) {
+            // Segments a direct booking filled under us; their waiters wait for the next release
+            Set<Long> full = new HashSet<>();
+            while (true) {
+                // Earliest head among segments that have a seat: one counter read each
+                Map.Entry<Long, PriorityQueue<Entry>> next = null;
+                for (Iterator<Map.Entry<Long, PriorityQueue<Entry>>> it = day.queues.entrySet().iterator(); it.hasNext(); ) {
+                    Map.Entry<Long, PriorityQueue<Entry>> segment = it.next();
+                    Entry head = liveHead(segment.getValue());
+                    if (head == null) {
+                        it.remove();
+                        continue;
+                    }
+                    if (full.contains(segment.getKey())) continue;
+                    if (seatInventory.availableSeats(train, date, head.fromStop(), head.toStop()) == 0) continue;
+                    if (next == null || head.sequence() < next.getValue().peek().sequence()) next = segment;
+                }
+                if (next == null) break;
+
+                PriorityQueue<Entry> queue = next.getValue();
+                Entry entry = queue.peek();
+                Optional<SeatReservation> reservation = seatInventory.reserveAny(
+                        train, date, entry.fromStop(), entry.toStop(), entry.userId());
+                if (reservation.isEmpty()) {
+                    // A direct booking took the seat first; later waiters elsewhere may still fit
+                    full.add(next.getKey());
+                    continue;
+                }
+
+                queue.poll();
+                if (!waiting.remove(entry.waitId(), entry)) {
+                    seatInventory.release(reservation.get());   // left while we were reserving
+                    continue;
+                }
+                promoted.add(new Promotion(entry, reservation.get()));
+            }
+        }
+        return promoted;
+    }
+
+    /**
+     * Puts a promoted entry back at its original place, for when its ticket
+     * could not be made durable.
+     */
+    public void requeue(Entry entry) {
+        TrainDay day = day(entry.trainId(), entry.dateOfTravel());
+        synchronized (day) {
+            waiting.put(entry.waitId(), entry);
+            day.queue(entry.fromStop(), entry.toStop()).add(entry);
+        }
+    }
+
+    public int size() {
+        return waiting.size();
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private Entry liveHead(PriorityQueue<Entry> queue) {
+        Entry head = queue.peek();
+        while (head != null && !waiting.containsKey(head.waitId())) {
+            queue.poll();
+            head = queue.peek();
+        }
+        return head;
+    }
+
+    private TrainDay day(String trainId, LocalDate date) {
+        return days.computeIfAbsent(new Key(trainId, date), k -> new TrainDay());
+    }
+
+    private record Key(String trainId, LocalDate date) {
+        Key {
+            trainId = trainId.toLowerCase();
+        }
+    }
+
+    /**
+     * Queues of one train on one date, by segment; guarded by its own monitor.
+     */
+    private static final class TrainDay {
+
+        private final Map<Long, PriorityQueue<Entry>> queues = new HashMap<>();
+
+        PriorityQueue<Entry> queue(int fromStop, int toStop) {
+            return queues.computeIfAbsent(((long) fromStop << 32) | toStop, k -> new PriorityQueue<>(JOIN_ORDER));
+        }
+    }
+}
@@ -0,0 +1,490 @@
+package org.Spring.tools;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.persistence.JsonArrayFiles;
+import org.Spring.utils.UserServiceUtil;
+
+import java.io.IOException;
+import java.io.Writer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.BitSet;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Properties;
+import java.util.Random;
+import java.util.Set;
+import java.util.UUID;
+
+/**
+ * Writes a synthetic database directory (train.json, users.json,
+ * bookings.json) at production scale, in the same Jackson formats the
+ * application reads, plus a dataset.properties the {@link LoadDriver} uses.
+ *
+ * <pre>
+ *   java -Dirctc.gen.stations=7000 -Dirctc.gen.trains=12000 -Dirctc.gen.users=1000000 \
+ *        -cp ... org.Spring.tools.DatasetGenerator target/dataset
+ * </pre>
+ *
+ * The shape, not just the size, is meant to be realistic:
+ * <ul>
+ *   <li>stations cluster around cities whose sizes follow a Zipf law, so a few
+ *       junctions are far busier than the rest;</li>
+ *   <li>trains run between popular stations along a corridor, expresses calling
+ *       only at busy stations and locals at most of them;</li>
+ *   <li>tickets go mostly to trains between big cities, and tickets per user are
+ *       heavy-tailed (Pareto), so some users hold hundreds. Past journeys stay
+ *       in the users' histories; only upcoming ones hold seats in bookings.json.</li>
+ * </ul>
+ * Generation is seeded: the same {@link Spec} always writes the same files.
+ * Every user shares one password hash, since hashing each would take hours.
+ */
+public final class DatasetGenerator {
+
+    public static final String MANIFEST = "dataset.properties";
+
+    private static final double COUNTRY_KM = 3_000;
+    private static final double CELL_KM = 50;
+    private static final double CORRIDOR_KM = 25;
+    private static final double MIN_ROUTE_KM = 100;
+    private static final int SEATS_PER_COACH = 72;
+    private static final int MAX_TICKETS_PER_USER = 1_000;
+
+    private static final String[] SYLLABLES = {
+            "ra", "ma", "na", "ka", "la", "sa", "ta", "pa", "va", "ha", "ga", "ja", "da", "ba",
+            "ri", "mi", "ni", "ki", "li", "si", "ti", "pi", "vi", "hi", "go", "jo", "do", "bo",
+            "ru", "mu", "nu", "ku", "lu", "su", "tu", "pu", "vu", "dhu", "cha", "sha", "kha", "bha"
+    };
+    private static final String[] SUFFIXES = {
+            "pur", "nagar", "abad", "ganj", "garh", "pet", "kot", "wadi", "palli", "ur", "gaon", ""
+    };
+
+    private static final ObjectMapper MAPPER = JsonMapper.builder()
+            .findAndAddModules()
+            .build();
+
+    // Prevent instantiation
+    private DatasetGenerator() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /**
+     * What to generate. Tickets are dated from {@code historyDays} before
+     * {@code today} to {@code advanceDays} after it.
+     */
+    public record Spec(
+            int stations,
+            int trains,
+            int users,
+            double meanTicketsPerUser,
+            double skew,
+            int historyDays,
+            int advanceDays,
+            LocalDate today,
+            String password,
+            long seed
+    ) {
+        public Spec {
+            if (stations < 2) throw new IllegalArgumentException("Need at least 2 stations");
+            if (trains < 1) throw new IllegalArgumentException("Need at least 1 train");
+            if (users < 0 || meanTicketsPerUser < 0 || historyDays < 0 || advanceDays < 0) {
+                throw new IllegalArgumentException("Negative size");
+            }
+            if (historyDays + advanceDays == 0 && meanTicketsPerUser > 0) {
+                throw new IllegalArgumentException("Tickets need at least one day to travel on");
+            }
+        }
+
+        /**
+         * Sizes close to a national network, overridable with -Dirctc.gen.*.
+         */
+        public static Spec fromSystemProperties() {
+            return new Spec(
+                    Integer.getInteger("irctc.gen.stations", 7_000),
+                    Integer.getInteger("irctc.gen.trains", 12_000),
+                    Integer.getInteger("irctc.gen.users", 100_000),
+                    Double.parseDouble(System.getProperty("irctc.gen.ticketsPerUser", "5")),
+                    Double.parseDouble(System.getProperty("irctc.gen.skew", "1.0")),
+                    Integer.getInteger("irctc.gen.historyDays", 365),
+                    Integer.getInteger("irctc.gen.advanceDays", 60),
+                    LocalDate.parse(System.getProperty("irctc.gen.today", LocalDate.now().toString())),
+                    System.getProperty("irctc.gen.password", "password"),
+                    Long.getLong("irctc.gen.seed", 42)
+            );
+        }
+    }
+
+    /**
+     * Counts of what was written.
+     */
+    public record Summary(int stations, int trains, int users, long tickets) {
+    }
+
+    public static void main(String[] args) throws IOException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "target/dataset");
+        Spec spec = Spec.fromSystemProperties();
+
+        long start = System.nanoTime();
+        Summary summary = generate(dir, spec);
+        System.out.printf("Wrote %,d stations, %,d trains, %,d users and %,d tickets to %s in %.1f s%n",
+                summary.stations(), summary.trains(), summary.users(), summary.tickets(),
+                dir, (System.nanoTime() - start) / 1e9);
+    }
+
+    /**
+     * Writes the dataset into {@code dir}, replacing any files of the same names.
+     * The directory should not hold journal.log or users/ from an earlier database.
+     */
+    public static Summary generate(Path dir, Spec spec) throws IOException {
+        Files.createDirectories(dir);
+        Random random = new Random(spec.seed());
+
+        Network network = Network.generate(spec, random);
+        List<Train> trains = routeTrains(network, spec, random);
+        writeArray(dir.resolve("train.json"), trains);
+
+        long tickets = writeUsersAndBookings(dir, trains, network, spec, random);
+        writeManifest(dir, spec, trains.size(), tickets);
+        return new Summary(network.size(), trains.size(), spec.users(), tickets);
+    }
+
+    /* =========================
+       Stations
+       ========================= */
+
+    /**
+     * Stations on a square country, grouped around cities, with a popularity
+     * each and a grid for finding the ones near a line.
+     */
+    private static final class Network {
+
+        final String[] names;
+        final double[] x;
+        final double[] y;
+        final double[] popularity;
+        final Map<String, Integer> byName;
+        final WeightedSampler byPopularity;
+        final double busyThreshold;
+        final List<List<Integer>> grid;
+        final int gridSize;
+
+        private Network(String[] names, double[] x, double[] y, double[] popularity) {
+            this.names = names;
+            this.x = x;
+            this.y = y;
+            this.popularity = popularity;
+            this.byPopularity = new WeightedSampler(popularity);
+            this.byName = new HashMap<>(names.length * 2);
+            for (int i = 0; i < names.length; i++) {
+                byName.put(names[i], i);
+            }
+
+            // Expresses call at roughly the busiest tenth
+            double[] sorted = popularity.clone();
+            Arrays.sort(sorted);
+            this.busyThreshold = sorted[(int) (sorted.length * 0.9)];
+
+            this.gridSize = (int) Math.ceil(COUNTRY_KM / CELL_KM);
+            this.grid = new ArrayList<>(gridSize * gridSize);
+            for (int i = 0; i < gridSize * gridSize; i++) {
+                grid.add(new ArrayList<>());
+            }
+            for (int i = 0; i < names.length; i++) {
+                grid.get(cell(x[i], y[i])).add(i);
+            }
+        }
+
+        static Network generate(Spec spec, Random random) {
+            int count = spec.stations();
+            int cities = Math.max(1, count / 150);
+            double[] cityX = new double[cities];
+            double[] cityY = new double[cities];
+            for (int c = 0; c < cities; c++) {
+                cityX[c] = random.nextDouble() * COUNTRY_KM;
+                cityY[c] = random.nextDouble() * COUNTRY_KM;
+            }
+            WeightedSampler citySizes = WeightedSampler.zipf(cities, spec.skew());
+
+            String[] names = new String[count];
+            double[] x = new double[count];
+            double[] y = new double[count];
+            double[] popularity = new double[count];
+            Set<String> used = new HashSet<>(count * 2);
+            for (int i = 0; i < count; i++) {
+                int city = citySizes.sample(random);
+                double spread = 20 + 80 * random.nextDouble();
+                x[i] = clamp(cityX[city] + random.nextGaussian() * spread);
+                y[i] = clamp(cityY[city] + random.nextGaussian() * spread);
+
+                // Busy near the centre of a big city, quiet out in the country
+                double fromCentre = Math.hypot(x[i] - cityX[city], y[i] - cityY[city]);
+                popularity[i] = Math.exp(random.nextGaussian() * 0.5)
+                        / Math.pow(city + 1, spec.skew())
+                        / (1 + fromCentre / 10);
+                names[i] = stationName(random, used);
+            }
+            return new Network(names, x, y, popularity);
+        }
+
+        int size() {
+            return names.length;
+        }
+
+        double distance(int a, int b) {
+            return Math.hypot(x[a] - x[b], y[a] - y[b]);
+        }
+
+        /**
+         * Stations within the corridor around the segment a-b, excluding a and b,
+         * each paired with how far along the segment it lies (0..1).
+         */
+        List<double[]> corridor(int a, int b) {
+            double dx = x[b] - x[a];
+            double dy = y[b] - y[a];
+            double length = Math.hypot(dx, dy);
+            int steps = (int) Math.ceil(length / (CELL_KM / 2));
+
+            BitSet visited = new BitSet(gridSize * gridSize);
+            List<double[]> found = new ArrayList<>();
+            for (int s = 0; s <= steps; s++) {
+                double px = x[a] + dx * s / steps;
+                double py = y[a] + dy * s / steps;
+                int cx = (int) (px / CELL_KM);
+                int cy = (int) (py / CELL_KM);
+                for (int nx = cx - 1; nx <= cx + 1; nx++) {
+                    for (int ny = cy - 1; ny <= cy + 1; ny++) {
+                        if (nx < 0 || ny < 0 || nx >= gridSize || ny >= gridSize) continue;
+                        int cell = nx * gridSize + ny;
+                        if (visited.get(cell)) continue;
+                        visited.set(cell);
+                        for (int station : grid.get(cell)) {
+                            if (station == a || station == b) continue;
+                            double t = ((x[station] - x[a]) * dx + (y[station] - y[a]) * dy) / (length * length);
+                            if (t <= 0 || t >= 1) continue;
+                            double off = Math.abs((x[station] - x[a]) * dy - (y[station] - y[a]) * dx) / length;
+                            if (off <= CORRIDOR_KM) found.add(new double[]{t, station});
+                        }
+                    }
+                }
+            }
+            return found;
+        }
+
+        private int cell(double px, double py) {
+            int cx = Math.min(gridSize - 1, (int) (px / CELL_KM));
+            int cy = Math.min(gridSize - 1, (int) (py / CELL_KM));
+            return cx * gridSize + cy;
+        }
+
+        private static double clamp(double km) {
+            return Math.max(0, Math.min(COUNTRY_KM - 1e-6, km));
+        }
+    }
+
+    private static String stationName(Random random, Set<String> used) {
+        while (true) {
+            StringBuilder name = new StringBuilder();
+            int syllables = 2 + random.nextInt(2);
+            for (int s = 0; s < syllables; s++) {
+                name.append(SYLLABLES[random.nextInt(SYLLABLES.length)]);
+            }
+            name.append(SUFFIXES[random.nextInt(SUFFIXES.length)]);
+            if (used.add(name.toString())) return name.toString();
+        }
+    }
+
+    /* =========================
+       Trains
+       ========================= */
+
+    private static List<Train> routeTrains(Network network, Spec spec, Random random) {
+        List<Train> trains = new ArrayList<>(spec.trains());
+        for (int i = 0; i < spec.trains(); i++) {
+            boolean express = random.nextDouble() < 0.3;
+            List<Integer> stops = route(network, express, random);
+
+            Map<String, String> times = new LinkedHashMap<>();
+            List<String> stations = new ArrayList<>(stops.size());
+            double minute = random.nextInt(24 * 60);
+            double kmPerMinute = (express ? 80.0 : 45.0) / 60;
+            for (int s = 0; s < stops.size(); s++) {
+                int station = stops.get(s);
+                if (s > 0) {
+                    minute += network.distance(stops.get(s - 1), station) / kmPerMinute + 2;
+                }
+                stations.add(network.names[station]);
+                times.put(network.names[station], clock((int) minute));
+            }
+
+            int coaches = express ? 12 + random.nextInt(11) : 8 + random.nextInt(9);
+            int[] widths = new int[coaches];
+            Arrays.fill(widths, SEATS_PER_COACH);
+            String trainNo = String.valueOf(10_000 + i);
+            String trainId = stations.get(0).charAt(0) + "" + stations.get(stations.size() - 1).charAt(0) + "_" + trainNo;
+            trains.add(new Train(trainId, trainNo, new SeatMap(widths), times, stations));
+        }
+        return trains;
+    }
+
+    /**
+     * Stations in calling order between two popular, distinct, far enough apart
+     * stations. Expresses call at 4-20 busy stations on the way, locals at 10-40
+     * of any; busier stations are more likely to be picked.
+     */
+    private static List<Integer> route(Network network, boolean express, Random random) {
+        int from;
+        int to;
+        int attempts = 0;
+        do {
+            from = network.byPopularity.sample(random);
+            to = network.byPopularity.sample(random);
+        } while ((from == to || network.distance(from, to) < MIN_ROUTE_KM) && ++attempts < 100);
+        if (from == to) {
+            to = (from + 1) % network.size();
+        }
+
+        // Highest popularity (with some noise) first, then back into calling order
+        List<double[]> candidates = new ArrayList<>();
+        for (double[] candidate : network.corridor(from, to)) {
+            double popularity = network.popularity[(int) candidate[1]];
+            if (express && popularity < network.busyThreshold) continue;
+            candidates.add(new double[]{candidate[0], candidate[1], popularity * Math.exp(random.nextGaussian())});
+        }
+        candidates.sort(Comparator.comparingDouble(c -> -c[2]));
+        int wanted = express ? 4 + random.nextInt(17) : 10 + random.nextInt(31);
+        List<double[]> picked = new ArrayList<>(candidates.subList(0, Math.min(wanted, candidates.size())));
+        picked.sort(Comparator.comparingDouble(c -> c[0]));
+
+        List<Integer> stops = new ArrayList<>(picked.size() + 2);
+        stops.add(from);
+        for (double[] stop : picked) {
+            stops.add((int) stop[1]);
+        }
+        stops.add(to);
+        return stops;
+    }
+
+    private static String clock(int minute) {
+        int ofDay = Math.floorMod(minute, 24 * 60);
+        return String.format("%02d:%02d:00", ofDay / 60, ofDay % 60);
+    }
+
+    /* =========================
+       Users and tickets
+       ========================= */
+
+    /**
+     * Streams users (with their tickets) and the matching seat reservations,
+     * so memory holds only the next free seat per train and date.
+     */
+    private static long writeUsersAndBookings(
+            Path dir,
+            List<Train> trains,
+            Network network,
+            Spec spec,
+            Random random
+    ) throws IOException {
+        double[] trainWeights = new double[trains.size()];
+        for (int i = 0; i < trains.size(); i++) {
+            List<String> stations = trains.get(i).getStations();
+            trainWeights[i] = network.popularity[network.byName.get(stations.get(0))]
+                    * network.popularity[network.byName.get(stations.get(stations.size() - 1))];
+        }
+        WeightedSampler trainSampler = new WeightedSampler(trainWeights);
+
+        // Pareto with shape 2 (rounded down) has about the requested mean and a long tail
+        double scale = (spec.meanTicketsPerUser() + 0.5) / 2;
+        int days = spec.historyDays() + spec.advanceDays();
+        Map<Long, int[]> nextSeat = new HashMap<>();
+        String hash = UserServiceUtil.hashPassword(spec.password());
+
+        long tickets = 0;
+        try (JsonArrayFiles.Writer users = JsonArrayFiles.write(MAPPER, dir.resolve("users.json").toFile());
+             JsonArrayFiles.Writer bookings = JsonArrayFiles.write(MAPPER, dir.resolve("bookings.json").toFile())) {
+            for (int u = 0; u < spec.users(); u++) {
+                String userId = new UUID(random.nextLong(), random.nextLong()).toString();
+                int wanted = spec.meanTicketsPerUser() <= 0 ? 0 : (int) Math.min(MAX_TICKETS_PER_USER,
+                        scale / Math.sqrt(1 - random.nextDouble()));
+
+                List<Ticket> booked = new ArrayList<>(Math.max(0, wanted));
+                for (int t = 0; t < wanted; t++) {
+                    int trainIndex = trainSampler.sample(random);
+                    int day = random.nextInt(days);
+                    Train train = trains.get(trainIndex);
+                    int[] counter = nextSeat.computeIfAbsent((long) trainIndex * days + day, k -> new int[1]);
+                    if (counter[0] >= train.getSeats().capacity()) continue;   // sold out: skip
+
+                    int seatNo = counter[0]++;
+                    List<String> stations = train.getStations();
+                    int fromStop = random.nextInt(stations.size() - 1);
+                    int toStop = fromStop + 1 + random.nextInt(stations.size() - fromStop - 1);
+                    SeatReservation reservation = new SeatReservation(
+                            new UUID(random.nextLong(), random.nextLong()).toString(),
+                            userId,
+                            train.getTrainId(),
+                            spec.today().plusDays(day - spec.historyDays()),
+                            seatNo / SEATS_PER_COACH,
+                            seatNo % SEATS_PER_COACH,
+                            fromStop,
+                            toStop
+                    );
+                    if (!reservation.getDateOfTravel().isBefore(spec.today())) {
+                        bookings.append(reservation);   // past journeys stay in the history only
+                    }
+                    booked.add(Ticket.forReservation(reservation, stations.get(fromStop), stations.get(toStop)));
+                }
+                booked.sort(Comparator.comparing(Ticket::getDateOfTravel));
+                users.append(new User(userName(u), null, hash, booked, userId));
+                tickets += booked.size();
+            }
+        }
+        return tickets;
+    }
+
+    /**
+     * Name of the {@code index}th generated user.
+     */
+    public static String userName(int index) {
+        return "user" + index;
+    }
+
+    /* =========================
+       Files
+       ========================= */
+
+    private static void writeArray(Path file, List<?> values) throws IOException {
+        try (JsonArrayFiles.Writer writer = JsonArrayFiles.write(MAPPER, file.toFile())) {
+            for (Object value : values) {
+                writer.append(value);
+            }
+        }
+    }
+
+    private static void writeManifest(Path dir, Spec spec, int trains, long tickets) throws IOException {
+        Properties manifest = new Properties();
+        manifest.setProperty("stations", String.valueOf(spec.stations()));
+        manifest.setProperty("trains", String.valueOf(trains));
+        manifest.setProperty("users", String.valueOf(spec.users()));
+        manifest.setProperty("tickets", String.valueOf(tickets));
+        manifest.setProperty("password", spec.password());
+        manifest.setProperty("today", spec.today().toString());
+        manifest.setProperty("seed", String.valueOf(spec.seed()));
+        try (Writer writer = Files.newBufferedWriter(dir.resolve(MANIFEST))) {
+            manifest.store(writer, "Generated by DatasetGenerator");
+        }
+    }
+}
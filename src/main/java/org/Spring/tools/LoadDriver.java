@@ -0,0 +1,472 @@
+package org.Spring.tools;
+
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.metrics.LatencyHistogram;
+import org.Spring.service.BookingStore;
+import org.Spring.service.UserBookingService;
+import org.Spring.utils.PasswordVerifier;
+
+import java.io.IOException;
+import java.io.Reader;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.Locale;
+import java.util.Optional;
+import java.util.Properties;
+import java.util.Random;
+import java.util.concurrent.BrokenBarrierException;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CyclicBarrier;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * Closed-loop load test against {@link UserBookingService}, in process:
+ * each worker thread sends its next call as soon as the last one returns.
+ *
+ * <pre>
+ *   java -Dirctc.load.threads=32 -Dirctc.load.seconds=60 \
+ *        -Dirctc.load.mix=search=70,book=20,cancel=5,login=5 \
+ *        -cp ... org.Spring.tools.LoadDriver target/dataset
+ * </pre>
+ *
+ * Users and their password come from the dataset.properties written by
+ * {@link DatasetGenerator}. Trains and travel dates are picked with the same
+ * Zipf skew, so popular trains on the next few days see real contention.
+ * A booking views the seat map, picks a free seat and books it; when another
+ * worker got there first that is a conflict.
+ */
+public final class LoadDriver {
+
+    public enum Action {
+        SEARCH,
+        BOOK,
+        CANCEL,
+        LOGIN;
+
+        String label() {
+            return name().toLowerCase(Locale.ROOT);
+        }
+    }
+
+    private static final Action[] ACTIONS = Action.values();
+
+    // Prevent instantiation
+    private LoadDriver() {
+        throw new UnsupportedOperationException("Utility class");
+    }
+
+    /* =========================
+       Configuration
+       ========================= */
+
+    /**
+     * Relative weights of each action, e.g. "search=70,book=20,cancel=5,login=5".
+     */
+    public record Mix(int search, int book, int cancel, int login) {
+
+        public Mix {
+            if (search < 0 || book < 0 || cancel < 0 || login < 0 || search + book + cancel + login == 0) {
+                throw new IllegalArgumentException("Mix weights must be non-negative and not all zero");
+            }
+        }
+
+        /**
+         * @throws IllegalArgumentException for an unknown action or a bad weight
+         */
+        public static Mix parse(String text) {
+            int[] weights = new int[ACTIONS.length];
+            for (String part : text.split(",")) {
+                String[] pair = part.split("=");
+                if (pair.length != 2) throw new IllegalArgumentException("Expected action=weight: " + part);
+                Action action = Action.valueOf(pair[0].trim().toUpperCase(Locale.ROOT));
+                weights[action.ordinal()] = Integer.parseInt(pair[1].trim());
+            }
+            return new Mix(weights[0], weights[1], weights[2], weights[3]);
+        }
+
+        Action pick(Random random) {
+            int roll = random.nextInt(search + book + cancel + login);
+            if ((roll -= search) < 0) return Action.SEARCH;
+            if ((roll -= book) < 0) return Action.BOOK;
+            if ((roll -= cancel) < 0) return Action.CANCEL;
+            return Action.LOGIN;
+        }
+    }
+
+    /**
+     * @param users     log in as user0 .. user(users-1)
+     * @param firstDay  earliest travel date; later dates are picked less often
+     * @param days      how many travel dates to spread bookings over
+     */
+    public record Config(
+            int threads,
+            Duration warmup,
+            Duration duration,
+            Mix mix,
+            int users,
+            String password,
+            LocalDate firstDay,
+            int days,
+            double skew,
+            long seed
+    ) {
+        public Config {
+            if (threads < 1 || users < 1 || days < 1) {
+                throw new IllegalArgumentException("Need at least one thread, user and day");
+            }
+        }
+
+        /**
+         * Users and dates from the dataset's manifest, the rest from -Dirctc.load.*.
+         */
+        public static Config forDataset(Path dir) throws IOException {
+            Properties manifest = new Properties();
+            try (Reader reader = Files.newBufferedReader(dir.resolve(DatasetGenerator.MANIFEST))) {
+                manifest.load(reader);
+            }
+            return new Config(
+                    Integer.getInteger("irctc.load.threads", Runtime.getRuntime().availableProcessors() * 2),
+                    Duration.ofSeconds(Long.getLong("irctc.load.warmupSeconds", 10)),
+                    Duration.ofSeconds(Long.getLong("irctc.load.seconds", 30)),
+                    Mix.parse(System.getProperty("irctc.load.mix", "search=70,book=20,cancel=5,login=5")),
+                    Integer.parseInt(manifest.getProperty("users")),
+                    manifest.getProperty("password"),
+                    LocalDate.parse(manifest.getProperty("today")).plusDays(1),
+                    Integer.getInteger("irctc.load.days", 30),
+                    Double.parseDouble(System.getProperty("irctc.load.skew", "1.0")),
+                    Long.getLong("irctc.load.seed", 7)
+            );
+        }
+    }
+
+    /* =========================
+       Running
+       ========================= */
+
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path dir = Paths.get(args.length > 0 ? args[0] : "target/dataset");
+        Config config = Config.forDataset(dir);
+
+        try (BookingStore store = BookingStore.open(dir, Boolean.getBoolean("irctc.load.fsync"))) {
+            UserBookingService service = new UserBookingService(store, PasswordVerifier.shared());
+            System.out.printf("Running %d threads for %d s (after %d s warm-up) on %,d trains%n",
+                    config.threads(), config.duration().toSeconds(), config.warmup().toSeconds(),
+                    store.trainCatalog().allTrains().size());
+            System.out.print(run(service, store.trainCatalog().allTrains(), config).format());
+        }
+    }
+
+    /**
+     * Runs the mix for the warm-up plus the measured duration and reports
+     * only calls that started after the warm-up.
+     *
+     * @throws IllegalStateException when a worker cannot log in to start with
+     */
+    public static Report run(UserBookingService service, List<Train> trains, Config config)
+            throws InterruptedException {
+        if (trains.isEmpty()) throw new IllegalArgumentException("No trains to load");
+
+        Report report = new Report();
+        // Clock starts once every worker has logged in: [measure from, end]
+        long[] window = new long[2];
+        CyclicBarrier loggedIn = new CyclicBarrier(config.threads(), () -> {
+            window[0] = System.nanoTime() + config.warmup().toNanos();
+            window[1] = window[0] + config.duration().toNanos();
+        });
+        WeightedSampler trainSampler = WeightedSampler.zipf(trains.size(), config.skew());
+        WeightedSampler daySampler = WeightedSampler.zipf(config.days(), config.skew());
+
+        AtomicInteger threadNo = new AtomicInteger();
+        ExecutorService workers = Executors.newFixedThreadPool(config.threads(), r -> {
+            Thread thread = new Thread(r, "load-" + threadNo.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        });
+        try {
+            List<Callable<Void>> tasks = new ArrayList<>(config.threads());
+            for (int t = 0; t < config.threads(); t++) {
+                Worker worker = new Worker(service, trains, trainSampler, daySampler, config, report,
+                        new Random(config.seed() + t));
+                tasks.add(() -> {
+                    try {
+                        worker.logIn();
+                    } catch (RuntimeException ex) {
+                        loggedIn.reset();   // the others give up waiting
+                        throw ex;
+                    }
+                    loggedIn.await();
+                    worker.run(window[0], window[1]);
+                    return null;
+                });
+            }
+            Throwable failure = null;
+            for (Future<Void> done : workers.invokeAll(tasks)) {
+                try {
+                    done.get();
+                } catch (ExecutionException ex) {
+                    if (failure == null || failure instanceof BrokenBarrierException) failure = ex.getCause();
+                }
+            }
+            if (failure instanceof RuntimeException runtime) throw runtime;
+            if (failure != null) throw new IllegalStateException(failure);
+        } finally {
+            workers.shutdownNow();
+        }
+        report.seconds = Math.max(1e-9, (Math.min(System.nanoTime(), window[1]) - window[0]) / 1e9);
+        return report;
+    }
+
+    /**
+     * One closed loop: a few logged-in users and the tickets this worker booked.
+     */
+    private static final class Worker {
+
+        private static final int SESSIONS = 4;
+
+        private final UserBookingService service;
+        private final List<Train> trains;
+        private final WeightedSampler trainSampler;
+        private final WeightedSampler daySampler;
+        private final Config config;
+        private final Report report;
+        private final Random random;
+        private final List<String> tokens = new ArrayList<>(SESSIONS);
+        private final Deque<String[]> booked = new ArrayDeque<>();   // token, ticket id
+
+        Worker(
+                UserBookingService service,
+                List<Train> trains,
+                WeightedSampler trainSampler,
+                WeightedSampler daySampler,
+                Config config,
+                Report report,
+                Random random
+        ) {
+            this.service = service;
+            this.trains = trains;
+            this.trainSampler = trainSampler;
+            this.daySampler = daySampler;
+            this.config = config;
+            this.report = report;
+            this.random = random;
+        }
+
+        void logIn() {
+            for (int i = 0; i < SESSIONS; i++) {
+                String name = DatasetGenerator.userName(random.nextInt(config.users()));
+                tokens.add(service.login(name, config.password())
+                        .orElseThrow(() -> new IllegalStateException("Cannot log in as " + name)));
+            }
+        }
+
+        void run(long measureFrom, long end) {
+            long start;
+            while ((start = System.nanoTime()) < end) {
+                Action action = config.mix().pick(random);
+                if (action == Action.CANCEL && booked.isEmpty()) action = Action.BOOK;
+
+                Report.Counters counters = start >= measureFrom ? report.of(action) : null;
+                try {
+                    perform(action, counters);
+                } catch (IOException | RuntimeException ex) {
+                    if (counters != null) counters.failed.increment();
+                }
+                if (counters != null) counters.latency.record(System.nanoTime() - start);
+            }
+
+            for (String token : tokens) {
+                service.logout(token);
+            }
+        }
+
+        private void perform(Action action, Report.Counters counters) throws IOException {
+            switch (action) {
+                case SEARCH -> {
+                    Train train = pickTrain();
+                    int[] segment = pickSegment(train);
+                    service.searchTrains(
+                            train.getStations().get(segment[0]),
+                            train.getStations().get(segment[1]),
+                            pickDate()
+                    );
+                }
+                case BOOK -> book(counters);
+                case CANCEL -> {
+                    String[] ticket = booked.pollFirst();
+                    if (!service.cancelBooking(ticket[0], ticket[1]).value() && counters != null) {
+                        counters.rejected.increment();
+                    }
+                }
+                case LOGIN -> {
+                    String name = DatasetGenerator.userName(random.nextInt(config.users()));
+                    Optional<String> token = service.login(name, config.password());
+                    if (token.isPresent()) {
+                        service.logout(token.get());
+                    } else if (counters != null) {
+                        counters.rejected.increment();
+                    }
+                }
+            }
+        }
+
+        /**
+         * Looks at the seat map, picks a free seat at random and books it, the
+         * way a user at a screen would.
+         */
+        private void book(Report.Counters counters) throws IOException {
+            Train train = pickTrain();
+            int[] segment = pickSegment(train);
+            String source = train.getStations().get(segment[0]);
+            String destination = train.getStations().get(segment[1]);
+            LocalDate date = pickDate();
+            String token = tokens.get(random.nextInt(tokens.size()));
+
+            SeatMap seats = service.seatAvailability(train, source, destination, date);
+            int free = seats.freeCount();
+            if (free == 0) {
+                if (counters != null) counters.soldOut.increment();
+                return;
+            }
+            int skip = random.nextInt(free);
+            for (int row = 0; row < seats.rows(); row++) {
+                int inRow = seats.freeCount(row);
+                if (skip >= inRow) {
+                    skip -= inRow;
+                    continue;
+                }
+                for (int seat = 0; seat < seats.seatsInRow(row); seat++) {
+                    if (seats.isFree(row, seat) && skip-- == 0) {
+                        Optional<Ticket> ticket = service.bookSeat(token, train, row, seat, source, destination, date).value();
+                        if (ticket.isPresent()) {
+                            booked.addLast(new String[]{token, ticket.get().getTicketId()});
+                        } else if (counters != null) {
+                            counters.rejected.increment();
+                        }
+                        return;
+                    }
+                }
+            }
+        }
+
+        private Train pickTrain() {
+            return trains.get(trainSampler.sample(random));
+        }
+
+        private int[] pickSegment(Train train) {
+            int stops = train.getStations().size();
+            int from = random.nextInt(stops - 1);
+            return new int[]{from, from + 1 + random.nextInt(stops - from - 1)};
+        }
+
+        private LocalDate pickDate() {
+            return config.firstDay().plusDays(daySampler.sample(random));
+        }
+    }
+
+    /* =========================
+       Report
+       ========================= */
+
+    /**
+     * Throughput and latency per action over the measured window.
+     * For bookings, "rejected" counts conflicts: the seat picked from the map
+     * was taken before the booking went through.
+     */
+    public static final class Report {
+
+        private final Counters[] counters = new Counters[ACTIONS.length];
+        private volatile double seconds;
+
+        Report() {
+            for (Action action : ACTIONS) {
+                counters[action.ordinal()] = new Counters();
+            }
+        }
+
+        public long calls(Action action) {
+            return of(action).latency.count();
+        }
+
+        public double throughput(Action action) {
+            return calls(action) / seconds;
+        }
+
+        public long rejected(Action action) {
+            return of(action).rejected.sum();
+        }
+
+        public long failed(Action action) {
+            return of(action).failed.sum();
+        }
+
+        public long soldOut() {
+            return of(Action.BOOK).soldOut.sum();
+        }
+
+        /**
+         * Share of booking attempts (with a free seat on the map) lost to another user.
+         */
+        public double conflictRate() {
+            long attempts = calls(Action.BOOK) - soldOut() - failed(Action.BOOK);
+            return attempts == 0 ? 0 : (double) rejected(Action.BOOK) / attempts;
+        }
+
+        public LatencyHistogram.Snapshot latency(Action action) {
+            return of(action).latency.snapshot();
+        }
+
+        public String format() {
+            StringBuilder text = new StringBuilder(String.format("%-8s %10s %10s %10s %8s %10s %10s %10s %10s%n",
+                    "action", "calls", "ops/s", "rejected", "failed", "p50_us", "p99_us", "p999_us", "max_us"));
+            long total = 0;
+            for (Action action : ACTIONS) {
+                LatencyHistogram.Snapshot latency = latency(action);
+                total += latency.count();
+                text.append(String.format("%-8s %10d %10.1f %10d %8d %10d %10d %10d %10d%n",
+                        action.label(),
+                        latency.count(),
+                        latency.count() / seconds,
+                        rejected(action),
+                        failed(action),
+                        micros(latency.percentile(50)),
+                        micros(latency.percentile(99)),
+                        micros(latency.percentile(99.9)),
+                        micros(latency.max())));
+            }
+            text.append(String.format("total    %10d %10.1f ops/s over %.1f s%n", total, total / seconds, seconds));
+            text.append(String.format("booking conflicts %.3f%% (%d), sold out %d%n",
+                    conflictRate() * 100, rejected(Action.BOOK), soldOut()));
+            return text.toString();
+        }
+
+        Counters of(Action action) {
+            return counters[action.ordinal()];
+        }
+
+        private static long micros(long nanos) {
+            return TimeUnit.NANOSECONDS.toMicros(nanos);
+        }
+
+        private static final class Counters {
+            private final LatencyHistogram latency = new LatencyHistogram();
+            private final LongAdder rejected = new LongAdder();
+            private final LongAdder failed = new LongAdder();
+            private final LongAdder soldOut = new LongAdder();
+        }
+    }
+}
@@ -0,0 +1,51 @@
+package org.Spring.tools;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * Picks indexes with probability proportional to fixed weights, in
+ * O(log n) by binary search over the cumulative weights.
+ */
+final class WeightedSampler {
+
+    private final double[] cumulative;
+
+    WeightedSampler(double[] weights) {
+        if (weights.length == 0) {
+            throw new IllegalArgumentException("No weights");
+        }
+        cumulative = new double[weights.length];
+        double total = 0;
+        for (int i = 0; i < weights.length; i++) {
+            if (weights[i] < 0) throw new IllegalArgumentException("Negative weight at " + i);
+            total += weights[i];
+            cumulative[i] = total;
+        }
+        if (total <= 0) {
+            throw new IllegalArgumentException("All weights are zero");
+        }
+    }
+
+    /**
+     * Rank k (from 0) drawn with weight 1 / (k + 1)^exponent; 0 gives uniform.
+     */
+    static WeightedSampler zipf(int size, double exponent) {
+        double[] weights = new double[size];
+        for (int k = 0; k < size; k++) {
+            weights[k] = 1.0 / Math.pow(k + 1, exponent);
+        }
+        return new WeightedSampler(weights);
+    }
+
+    int size() {
+        return cumulative.length;
+    }
+
+    int sample(Random random) {
+        double target = random.nextDouble() * cumulative[cumulative.length - 1];
+        int index = Arrays.binarySearch(cumulative, target);
+        if (index < 0) index = -index - 1;
+        return Math.min(index, cumulative.length - 1);
+    }
+}
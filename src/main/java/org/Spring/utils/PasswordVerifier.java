@@ -0,0 +1,149 @@
+package org.Spring.utils;
+
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.Callable;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * Dedicated pool for bcrypt work (login verification, signup hashing, rehashing).
+ *
+ * A fixed number of workers and a bounded queue keep a burst of logins from
+ * taking every core: callers wait up to {@code maxWaitMillis} for their turn,
+ * and once the queue is full further attempts are refused with a
+ * {@link RejectedExecutionException}.
+ *
+ * The shared instance is configured with system properties:
+ * irctc.auth.workers, irctc.auth.queue, irctc.auth.waitMillis and
+ * irctc.bcrypt.targetMillis (the hash latency the startup calibration aims for).
+ */
+public final class PasswordVerifier {
+
+    private static volatile PasswordVerifier shared;
+
+    private final ThreadPoolExecutor pool;
+    private final long maxWaitMillis;
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public static PasswordVerifier shared() {
+        PasswordVerifier verifier = shared;
+        if (verifier == null) {
+            synchronized (PasswordVerifier.class) {
+                verifier = shared;
+                if (verifier == null) {
+                    UserServiceUtil.calibrateCost(Long.getLong("irctc.bcrypt.targetMillis", 250));
+                    verifier = new PasswordVerifier(
+                            Integer.getInteger("irctc.auth.workers",
+                                    Math.max(1, Runtime.getRuntime().availableProcessors() / 2)),
+                            Integer.getInteger("irctc.auth.queue", 64),
+                            Long.getLong("irctc.auth.waitMillis", 5_000)
+                    );
+                    shared = verifier;
+                }
+            }
+        }
+        return verifier;
+    }
+
+    public PasswordVerifier(int workers, int queueLimit, long maxWaitMillis) {
+        this.maxWaitMillis = maxWaitMillis;
+        this.pool = new ThreadPoolExecutor(
+                workers,
+                workers,
+                0L,
+                TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueLimit),
+                daemonThreads(),
+                new ThreadPoolExecutor.AbortPolicy()
+        );
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    /**
+     * Checks the password on the pool and waits for the answer.
+     *
+     * @throws RejectedExecutionException when the pool is saturated
+     */
+    public boolean verify(String plainPassword, String hashedPassword) {
+        return await(() -> UserServiceUtil.checkPassword(plainPassword, hashedPassword));
+    }
+
+    /**
+     * Hashes the password on the pool at the current cost and waits for it.
+     *
+     * @throws RejectedExecutionException when the pool is saturated
+     */
+    public String hash(String plainPassword) {
+        return await(() -> UserServiceUtil.hashPassword(plainPassword));
+    }
+
+    /**
+     * Hashes again at the current cost in the background; skipped
+     * (completes empty) when the pool is busy, the next login retries.
+     */
+    public CompletableFuture<String> rehashAsync(String plainPassword) {
+        try {
+            return CompletableFuture.supplyAsync(() -> UserServiceUtil.hashPassword(plainPassword), pool);
+        } catch (RejectedExecutionException ex) {
+            return CompletableFuture.completedFuture(null);
+        }
+    }
+
+    public int queued() {
+        return pool.getQueue().size();
+    }
+
+    public void shutdown() {
+        pool.shutdown();
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    private <T> T await(Callable<T> task) {
+        Future<T> future;
+        try {
+            future = pool.submit(task);
+        } catch (RejectedExecutionException ex) {
+            throw new RejectedExecutionException("Too many logins in progress, try again", ex);
+        }
+
+        try {
+            return future.get(maxWaitMillis, TimeUnit.MILLISECONDS);
+        } catch (TimeoutException ex) {
+            future.cancel(true);
+            throw new RejectedExecutionException("Password check timed out, try again");
+        } catch (InterruptedException ex) {
+            future.cancel(true);
+            Thread.currentThread().interrupt();
+            throw new RejectedExecutionException("Interrupted while waiting for password check");
+        } catch (ExecutionException ex) {
+            Throwable cause = ex.getCause();
+            if (cause instanceof RuntimeException runtime) throw runtime;
+            throw new IllegalStateException(cause);
+        }
+    }
+
+    private static ThreadFactory daemonThreads() {
+        AtomicInteger counter = new AtomicInteger();
+        return runnable -> {
+            Thread thread = new Thread(runnable, "password-verifier-" + counter.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+    }
+}
@@ -6,8 +6,18 @@ import java.util.Objects;
 
 public final class UserServiceUtil {
 
-    // Recommended cost factor (12–14 for most apps)
-    private static final int BCRYPT_COST = 12;
+    // Recommended cost factor (12–14 for most apps), used until calibrated
+    private static final int DEFAULT_BCRYPT_COST = 12;
+
+    // Bounds for calibration: never weaker than 10, never slower than 16
+    private static final int MIN_BCRYPT_COST = 10;
+    private static final int MAX_BCRYPT_COST = 16;
+
+    // Cheap cost used to time the machine; each +1 doubles the work
+    private static final int PROBE_COST = 6;
+    private static final int PROBE_ROUNDS = 5;
+
+    private static volatile int bcryptCost = DEFAULT_BCRYPT_COST;
 
     // Prevent instantiation
     private UserServiceUtil() {
@@ -15,13 +25,13 @@ public final class UserServiceUtil {
     }
 
     /**
-     * Hashes a plain text password using BCrypt.
+     * Hashes a plain text password using BCrypt at the current cost.
      */
     public static String hashPassword(String plainPassword) {
         Objects.requireNonNull(plainPassword, "Password must not be null");
 
         return BCrypt.withDefaults()
-                .hashToString(BCRYPT_COST, plainPassword.toCharArray());
+                .hashToString(bcryptCost, plainPassword.toCharArray());
     }
 
     /**
@@ -36,4 +46,61 @@ public final class UserServiceUtil {
 
         return result.verified;
     }
+
+    /**
+     * True when the hash was made with a lower cost than the current one.
+     */
+    public static boolean needsRehash(String hashedPassword) {
+        int cost = costOf(hashedPassword);
+        return cost >= 0 && cost < bcryptCost;
+    }
+
+    /**
+     * Cost factor of a "$2a$10$..." hash, or -1 if it cannot be read.
+     */
+    public static int costOf(String hashedPassword) {
+        if (hashedPassword == null || hashedPassword.length() < 7) return -1;
+        try {
+            return Integer.parseInt(hashedPassword.substring(4, 6));
+        } catch (NumberFormatException ex) {
+            return -1;
+        }
+    }
+
+    public static int getCost() {
+        return bcryptCost;
+    }
+
+    public static void setCost(int cost) {
+        if (cost < MIN_BCRYPT_COST || cost > MAX_BCRYPT_COST) {
+            throw new IllegalArgumentException("BCrypt cost must be between "
+                    + MIN_BCRYPT_COST + " and " + MAX_BCRYPT_COST);
+        }
+        bcryptCost = cost;
+    }
+
+    /**
+     * Picks the highest cost whose hash time stays within the target on this
+     * machine, makes it the current cost and returns it.
+     */
+    public static int calibrateCost(long targetMillis) {
+        char[] probe = "calibration-probe".toCharArray();
+
+        // Warm up once, then time a few cheap hashes
+        BCrypt.withDefaults().hash(PROBE_COST, probe);
+        long start = System.nanoTime();
+        for (int i = 0; i < PROBE_ROUNDS; i++) {
+            BCrypt.withDefaults().hash(PROBE_COST, probe);
+        }
+        double probeNanos = (System.nanoTime() - start) / (double) PROBE_ROUNDS;
+
+        int cost = MIN_BCRYPT_COST;
+        while (cost < MAX_BCRYPT_COST
+                && probeNanos * (1L << (cost + 1 - PROBE_COST)) <= targetMillis * 1_000_000.0) {
+            cost++;
+        }
+
+        bcryptCost = cost;
+        return cost;
+    }
 }
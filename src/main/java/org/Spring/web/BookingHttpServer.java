@@ -0,0 +1,529 @@
+package org.Spring.web;
+
+import com.fasterxml.jackson.core.JsonProcessingException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.PropertyNamingStrategies;
+import com.fasterxml.jackson.databind.SerializationFeature;
+import com.fasterxml.jackson.databind.annotation.JsonNaming;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import com.sun.net.httpserver.HttpExchange;
+import com.sun.net.httpserver.HttpHandler;
+import com.sun.net.httpserver.HttpServer;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.metrics.Metrics;
+import org.Spring.metrics.Trace;
+import org.Spring.service.BookingStore;
+import org.Spring.service.Durable;
+import org.Spring.service.NotLoggedInException;
+import org.Spring.service.UserBookingService;
+import org.Spring.service.Waitlist;
+import org.Spring.utils.PasswordVerifier;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.lang.reflect.Method;
+import java.net.InetSocketAddress;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDate;
+import java.time.format.DateTimeParseException;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * JSON over HTTP front end for {@link UserBookingService}, on the JDK's
+ * built-in server.
+ *
+ * <pre>
+ *   POST   /api/signup          {"name", "password"}
+ *   POST   /api/login           {"name", "password"}        -> {"token"}
+ *   POST   /api/logout
+ *   GET    /api/trains?source=&amp;destination=&amp;date=YYYY-MM-DD   (departure date at source)
+ *   GET    /api/bookings
+ *   POST   /api/bookings        {"train_id", "source", "destination", "date_of_travel",
+ *                                "row", "seat"} (no row/seat: any free seat)
+ *   DELETE /api/bookings/{ticketId}
+ *   POST   /api/waitlist        {"train_id", "source", "destination", "date_of_travel"}
+ *                                                            -> {"wait_id", "position"}
+ *   DELETE /api/waitlist/{waitId}
+ *   GET    /api/pnr/{ticketId}                               -> journey and seat, no login needed
+ *   GET    /metrics                                          -> plain-text latency table
+ * </pre>
+ * Booking calls need an "Authorization: Bearer &lt;token&gt;" header. Sign-ups,
+ * bookings and cancellations are answered once their journal record is on disk.
+ * When the disk is too slow for that they are answered 202 with the same body
+ * instead: the change is made and will be written, so it must not be repeated.
+ *
+ * Each request runs on its own virtual thread when the JVM has them (Java 21+),
+ * otherwise on a bounded pool. At most {@code maxInFlight} requests are worked
+ * on at once; the rest are answered 503 straight away, so memory stays bounded
+ * however many clients connect.
+ *
+ * Configured with irctc.http.host, irctc.http.port, irctc.http.maxInFlight
+ * and irctc.http.workers (pool size without virtual threads).
+ */
+public final class BookingHttpServer implements Closeable {
+
+    // Larger request bodies are refused, nothing here needs more
+    private static final int MAX_BODY_BYTES = 16 * 1024;
+
+    // A change not on disk by then is answered 202; the journal keeps retrying it
+    private static final long DURABLE_TIMEOUT_SECONDS = 10;
+
+    private static final int STOP_DELAY_SECONDS = 1;
+
+    private final HttpServer server;
+    private final ExecutorService executor;
+    private final Semaphore inFlight;
+
+    private final BookingStore store;
+    // Stateless: shared by every request, users are told apart by session token
+    private final UserBookingService service;
+    private final ObjectMapper objectMapper = createMapper();
+
+    /* =========================
+       Construction
+       ========================= */
+
+    public static void main(String[] args) throws IOException {
+        InetSocketAddress address = new InetSocketAddress(
+                System.getProperty("irctc.http.host", "localhost"),
+                Integer.getInteger("irctc.http.port", 8080)
+        );
+        BookingHttpServer server = start(BookingStore.shared(), PasswordVerifier.shared(), address,
+                Integer.getInteger("irctc.http.maxInFlight", 10_000));
+        Runtime.getRuntime().addShutdownHook(new Thread(server::close, "http-shutdown"));
+        System.out.println("🚆 Listening on http://" + address.getHostString() + ":" + server.port() + "/api");
+    }
+
+    /**
+     * Binds and starts serving; port 0 picks a free port.
+     */
+    public static BookingHttpServer start(
+            BookingStore store,
+            PasswordVerifier passwordVerifier,
+            InetSocketAddress address,
+            int maxInFlight
+    ) throws IOException {
+        BookingHttpServer server = new BookingHttpServer(store, passwordVerifier, address, maxInFlight);
+        server.server.start();
+        return server;
+    }
+
+    private BookingHttpServer(
+            BookingStore store,
+            PasswordVerifier passwordVerifier,
+            InetSocketAddress address,
+            int maxInFlight
+    ) throws IOException {
+        this.store = store;
+        this.service = new UserBookingService(store, passwordVerifier);
+        this.inFlight = new Semaphore(maxInFlight);
+        this.executor = requestExecutor(maxInFlight);
+
+        this.server = HttpServer.create(address, 0);
+        server.setExecutor(executor);
+        server.createContext("/api/signup", guarded(this::signUp));
+        server.createContext("/api/login", guarded(this::login));
+        server.createContext("/api/logout", guarded(this::logout));
+        server.createContext("/api/trains", guarded(this::searchTrains));
+        server.createContext("/api/bookings", guarded(this::bookings));
+        server.createContext("/api/waitlist", guarded(this::waitlist));
+        server.createContext("/api/pnr", guarded(this::pnrStatus));
+        server.createContext("/metrics", guarded(this::metrics));
+    }
+
+    /* =========================
+       Public APIs
+       ========================= */
+
+    public int port() {
+        return server.getAddress().getPort();
+    }
+
+    public int activeSessions() {
+        return store.sessions().size();
+    }
+
+    @Override
+    public void close() {
+        server.stop(STOP_DELAY_SECONDS);
+        executor.shutdown();
+    }
+
+    /* =========================
+       Endpoints
+       ========================= */
+
+    private Response signUp(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        Credentials credentials = readBody(exchange, Credentials.class);
+        requireText(credentials.name(), "name");
+        requireText(credentials.password(), "password");
+
+        User user = new User(credentials.name(), credentials.password(), null, null, UUID.randomUUID().toString());
+        Durable<Boolean> signUp = service.signUp(user);
+        if (!signUp.value()) {
+            throw new ApiException(409, "Username already exists");
+        }
+        return committed(signUp, 201, Map.of("user_id", user.getUserId()));
+    }
+
+    private Response login(HttpExchange exchange) throws IOException {
+        requireMethod(exchange, "POST");
+        Credentials credentials = readBody(exchange, Credentials.class);
+        requireText(credentials.name(), "name");
+        requireText(credentials.password(), "password");
+
+        String token = service.login(credentials.name(), credentials.password())
+                .orElseThrow(() -> new ApiException(401, "Invalid credentials"));
+        return new Response(200, Map.of("token", token));
+    }
+
+    private Response logout(HttpExchange exchange) {
+        requireMethod(exchange, "POST");
+        service.logout(bearerToken(exchange));
+        return new Response(204, null);
+    }
+
+    private Response searchTrains(HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        Map<String, String> query = query(exchange);
+        String source = requireText(query.get("source"), "source").trim().toLowerCase();
+        String destination = requireText(query.get("destination"), "destination").trim().toLowerCase();
+        LocalDate date = LocalDate.parse(requireText(query.get("date"), "date"));
+
+        return new Response(200, service.searchTrains(source, destination, date));
+    }
+
+    private Response bookings(HttpExchange exchange) throws IOException {
+        String token = requireToken(exchange);
+        String path = exchange.getRequestURI().getPath();
+        String ticketId = path.length() > "/api/bookings/".length()
+                ? path.substring("/api/bookings/".length())
+                : null;
+
+        switch (exchange.getRequestMethod()) {
+            case "GET" -> {
+                return new Response(200, service.fetchBookings(token));
+            }
+            case "POST" -> {
+                if (ticketId != null) throw new ApiException(404, "No such resource");
+                return book(token, readBody(exchange, BookingRequest.class));
+            }
+            case "DELETE" -> {
+                if (ticketId == null) throw new ApiException(405, "Give the ticket id to cancel");
+                Durable<Boolean> cancel = service.cancelBooking(token, ticketId);
+                if (!cancel.value()) {
+                    throw new ApiException(404, "No such ticket");
+                }
+                return committed(cancel, 204, null);
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private Response waitlist(HttpExchange exchange) throws IOException {
+        String token = requireToken(exchange);
+        String path = exchange.getRequestURI().getPath();
+        String waitId = path.length() > "/api/waitlist/".length()
+                ? path.substring("/api/waitlist/".length())
+                : null;
+
+        switch (exchange.getRequestMethod()) {
+            case "POST" -> {
+                if (waitId != null) throw new ApiException(404, "No such resource");
+                BookingRequest request = readBody(exchange, BookingRequest.class);
+                Train train = journeyTrain(request);
+                Waitlist.Entry entry = service.joinWaitlist(token, train, request.source().trim().toLowerCase(),
+                                request.destination().trim().toLowerCase(), request.dateOfTravel())
+                        .orElseThrow(() -> new ApiException(409, "Seats are available, book one instead"));
+                return new Response(201, Map.of(
+                        "wait_id", entry.waitId(),
+                        "position", store.waitlist().position(entry)
+                ));
+            }
+            case "DELETE" -> {
+                if (waitId == null) throw new ApiException(405, "Give the wait id to leave");
+                if (!service.leaveWaitlist(token, waitId)) {
+                    throw new ApiException(404, "Not on the waitlist");
+                }
+                return new Response(204, null);
+            }
+            default -> throw new ApiException(405, "Method not allowed");
+        }
+    }
+
+    private Response pnrStatus(HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        String path = exchange.getRequestURI().getPath();
+        if (path.length() <= "/api/pnr/".length()) throw new ApiException(404, "Give the ticket id");
+
+        // Journey details only: who booked it is not shown to anonymous callers
+        Ticket ticket = service.pnrStatus(path.substring("/api/pnr/".length()))
+                .orElseThrow(() -> new ApiException(404, "No booked ticket with that id"));
+        return new Response(200, Map.of(
+                "ticket_id", ticket.getTicketId(),
+                "train_id", ticket.getTrainId(),
+                "source", ticket.getSource(),
+                "destination", ticket.getDestination(),
+                "date_of_travel", ticket.getDateOfTravel(),
+                "row", ticket.getRow(),
+                "seat", ticket.getSeat(),
+                "status", "CONFIRMED"
+        ));
+    }
+
+    private Response metrics(HttpExchange exchange) {
+        requireMethod(exchange, "GET");
+        return new Response(200, Metrics.dump());
+    }
+
+    private Response book(String token, BookingRequest request) throws IOException {
+        Train train = journeyTrain(request);
+        String source = request.source().trim().toLowerCase();
+        String destination = request.destination().trim().toLowerCase();
+
+        Durable<Optional<Ticket>> booking;
+        if (request.row() == null && request.seat() == null) {
+            booking = service.bookAnySeat(token, train, source, destination, request.dateOfTravel());
+            if (booking.value().isEmpty()) throw new ApiException(409, "Train is full for this journey");
+        } else {
+            if (request.row() == null || request.seat() == null) {
+                throw new ApiException(400, "Give both row and seat, or neither");
+            }
+            booking = service.bookSeat(token, train, request.row(), request.seat(), source, destination,
+                    request.dateOfTravel());
+            if (booking.value().isEmpty()) throw new ApiException(409, "Seat is not available");
+        }
+        // The ticket id lets a client whose answer was 202 look the booking up rather than book again
+        return committed(booking, 201, booking.value().get());
+    }
+
+    /**
+     * The requested train, checked to run from source to destination.
+     */
+    private Train journeyTrain(BookingRequest request) {
+        requireText(request.trainId(), "train_id");
+        String source = requireText(request.source(), "source").trim().toLowerCase();
+        String destination = requireText(request.destination(), "destination").trim().toLowerCase();
+        if (request.dateOfTravel() == null) throw new ApiException(400, "Missing date_of_travel");
+
+        Train train = service.findTrain(request.trainId())
+                .orElseThrow(() -> new ApiException(404, "No such train"));
+        if (train.stopIndex(source) < 0 || train.stopIndex(destination) <= train.stopIndex(source)) {
+            throw new ApiException(400, "Train does not run from " + source + " to " + destination);
+        }
+        return train;
+    }
+
+    /* =========================
+       Request Handling
+       ========================= */
+
+    @FunctionalInterface
+    private interface Endpoint {
+        Response handle(HttpExchange exchange) throws IOException;
+    }
+
+    private record Response(int status, Object body) {
+    }
+
+    private record Credentials(String name, String password) {
+    }
+
+    @JsonNaming(PropertyNamingStrategies.SnakeCaseStrategy.class)
+    private record BookingRequest(
+            String trainId,
+            String source,
+            String destination,
+            LocalDate dateOfTravel,
+            Integer row,
+            Integer seat
+    ) {
+    }
+
+    /**
+     * Sent back as {"error": message} with the status.
+     */
+    private static final class ApiException extends RuntimeException {
+
+        private final int status;
+
+        ApiException(int status, String message) {
+            super(message);
+            this.status = status;
+        }
+    }
+
+    private HttpHandler guarded(Endpoint endpoint) {
+        return exchange -> {
+            if (!inFlight.tryAcquire()) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error("Server busy, try again"));
+                return;
+            }
+            try {
+                Response response = endpoint.handle(exchange);
+                respond(exchange, response.status(), response.body());
+            } catch (ApiException ex) {
+                respond(exchange, ex.status, error(ex.getMessage()));
+            } catch (NotLoggedInException ex) {
+                respond(exchange, 401, error(ex.getMessage()));
+            } catch (JsonProcessingException ex) {
+                respond(exchange, 400, error("Malformed JSON body"));
+            } catch (IllegalArgumentException | DateTimeParseException ex) {
+                respond(exchange, 400, error(ex.getMessage()));
+            } catch (RejectedExecutionException ex) {
+                exchange.getResponseHeaders().set("Retry-After", "1");
+                respond(exchange, 503, error(ex.getMessage()));
+            } catch (IOException | RuntimeException ex) {
+                Trace.log(Trace.Level.ERROR, "http", "method", exchange.getRequestMethod(),
+                        "path", exchange.getRequestURI().getPath(), "error", ex);
+                respond(exchange, 500, error("Internal error"));
+            } finally {
+                inFlight.release();
+                exchange.close();
+            }
+        };
+    }
+
+    private void respond(HttpExchange exchange, int status, Object body) throws IOException {
+        if (body == null) {
+            exchange.sendResponseHeaders(status, -1);
+            return;
+        }
+        byte[] bytes;
+        if (body instanceof String text) {
+            bytes = text.getBytes(StandardCharsets.UTF_8);
+            exchange.getResponseHeaders().set("Content-Type", "text/plain; charset=utf-8");
+        } else {
+            bytes = objectMapper.writeValueAsBytes(body);
+            exchange.getResponseHeaders().set("Content-Type", "application/json; charset=utf-8");
+        }
+        exchange.sendResponseHeaders(status, bytes.length);
+        try (OutputStream out = exchange.getResponseBody()) {
+            out.write(bytes);
+        }
+    }
+
+    /**
+     * Holds a change's answer until its own journal record is on disk, so a
+     * client is never told about a booking that a crash could still take back.
+     * Past the timeout the change is still made and its record still retried,
+     * so it is answered 202 with the same body: a 5xx would invite a retry
+     * that makes the change twice.
+     */
+    private static Response committed(Durable<?> change, int status, Object body) throws IOException {
+        if (change.awaitDurable(DURABLE_TIMEOUT_SECONDS, TimeUnit.SECONDS)) {
+            return new Response(status, body);
+        }
+        return new Response(202, body);
+    }
+
+    private <T> T readBody(HttpExchange exchange, Class<T> type) throws IOException {
+        byte[] body;
+        try (InputStream in = exchange.getRequestBody()) {
+            body = in.readNBytes(MAX_BODY_BYTES + 1);
+        }
+        if (body.length > MAX_BODY_BYTES) throw new ApiException(413, "Request body too large");
+        if (body.length == 0) throw new ApiException(400, "Missing JSON body");
+        return objectMapper.readValue(body, type);
+    }
+
+    private static String requireToken(HttpExchange exchange) {
+        String token = bearerToken(exchange);
+        if (token == null) throw new ApiException(401, "Log in first");
+        return token;
+    }
+
+    /* =========================
+       Utility
+       ========================= */
+
+    /**
+     * A virtual thread per request on Java 21+. Older JVMs get a bounded pool;
+     * when its queue is full the accepting thread runs the request itself,
+     * which stops it taking new connections until it catches up.
+     */
+    private static ExecutorService requestExecutor(int maxInFlight) {
+        try {
+            Method perTask = Executors.class.getMethod("newVirtualThreadPerTaskExecutor");
+            return (ExecutorService) perTask.invoke(null);
+        } catch (ReflectiveOperationException ex) {
+            int workers = Integer.getInteger("irctc.http.workers",
+                    Math.max(16, Runtime.getRuntime().availableProcessors() * 8));
+            AtomicInteger counter = new AtomicInteger();
+            return new ThreadPoolExecutor(
+                    workers,
+                    workers,
+                    60L,
+                    TimeUnit.SECONDS,
+                    new ArrayBlockingQueue<>(Math.max(1, maxInFlight)),
+                    runnable -> {
+                        Thread thread = new Thread(runnable, "http-worker-" + counter.incrementAndGet());
+                        thread.setDaemon(true);
+                        return thread;
+                    },
+                    new ThreadPoolExecutor.CallerRunsPolicy()
+            );
+        }
+    }
+
+    private static void requireMethod(HttpExchange exchange, String method) {
+        if (!exchange.getRequestMethod().equals(method)) {
+            throw new ApiException(405, "Use " + method);
+        }
+    }
+
+    private static String requireText(String value, String field) {
+        if (value == null || value.isBlank()) throw new ApiException(400, "Missing " + field);
+        return value;
+    }
+
+    private static String bearerToken(HttpExchange exchange) {
+        String header = exchange.getRequestHeaders().getFirst("Authorization");
+        if (header == null || !header.regionMatches(true, 0, "Bearer ", 0, 7)) return null;
+        return header.substring(7).trim();
+    }
+
+    private static Map<String, String> query(HttpExchange exchange) {
+        Map<String, String> params = new HashMap<>();
+        String raw = exchange.getRequestURI().getRawQuery();
+        if (raw == null) return params;
+        for (String pair : raw.split("&")) {
+            int eq = pair.indexOf('=');
+            if (eq <= 0) continue;
+            params.put(
+                    URLDecoder.decode(pair.substring(0, eq), StandardCharsets.UTF_8),
+                    URLDecoder.decode(pair.substring(eq + 1), StandardCharsets.UTF_8)
+            );
+        }
+        return params;
+    }
+
+    private static Map<String, String> error(String message) {
+        return Map.of("error", message == null ? "Request failed" : message);
+    }
+
+    private static ObjectMapper createMapper() {
+        return JsonMapper.builder()
+                .findAndAddModules()
+                .disable(SerializationFeature.WRITE_DATES_AS_TIMESTAMPS)
+                .build();
+    }
+}
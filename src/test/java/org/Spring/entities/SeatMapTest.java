@@ -0,0 +1,49 @@
+package org.Spring.entities;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import junit.framework.TestCase;
+
+import java.util.List;
+
+public class SeatMapTest extends TestCase {
+
+    private final ObjectMapper objectMapper = JsonMapper.builder().findAndAddModules().build();
+
+    public void testJsonRoundTripKeepsNestedArrayFormat() throws Exception {
+        String json = "[[0,0,1],[1,0,0,0]]";
+
+        SeatMap map = objectMapper.readValue(json, SeatMap.class);
+
+        assertEquals(2, map.rows());
+        assertEquals(4, map.seatsInRow(1));
+        assertFalse(map.isFree(0, 2));
+        assertFalse(map.isFree(1, 0));
+        assertEquals(5, map.freeCount());
+        assertEquals(json, objectMapper.writeValueAsString(map));
+    }
+
+    public void testBookReleaseAndFirstFree() {
+        SeatMap map = SeatMap.of(List.of(List.of(1, 1, 0), List.of(0, 0)));
+
+        assertEquals(2, map.firstFree(0));
+        assertTrue(map.book(0, 2));
+        assertFalse(map.book(0, 2));
+        assertEquals(-1, map.firstFree(0));
+        assertFalse(map.book(0, 3));
+
+        assertTrue(map.release(0, 1));
+        assertEquals(1, map.firstFree(0));
+        assertEquals(List.of(List.of(1, 0, 1), List.of(0, 0)), map.toLists());
+    }
+
+    public void testWideRowsSpanSeveralWords() {
+        SeatMap map = new SeatMap(new int[]{130});
+        for (int seat = 0; seat < 128; seat++) {
+            assertTrue(map.book(0, seat));
+        }
+
+        assertEquals(128, map.firstFree(0));
+        assertEquals(2, map.freeCount());
+    }
+}
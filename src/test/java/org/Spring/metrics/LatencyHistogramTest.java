@@ -0,0 +1,47 @@
+package org.Spring.metrics;
+
+import junit.framework.TestCase;
+
+import java.util.Arrays;
+import java.util.Random;
+
+public class LatencyHistogramTest extends TestCase {
+
+    public void testBucketsCoverEveryValueWithinPrecision() {
+        for (long value : new long[]{0, 1, 127, 128, 129, 1_000, 65_535, 1_000_000, 123_456_789, (1L << 40) - 1}) {
+            int bucket = LatencyHistogram.bucketOf(value);
+            long upper = LatencyHistogram.upperBoundOf(bucket);
+            assertTrue(value + " above its bucket", value <= upper);
+            assertTrue(value + " bucket too wide", upper - value <= Math.max(0, value / 64));
+            if (bucket > 0) {
+                assertTrue(value + " belongs to a lower bucket", LatencyHistogram.upperBoundOf(bucket - 1) < value);
+            }
+        }
+    }
+
+    public void testPercentilesMatchSortedValues() {
+        LatencyHistogram histogram = new LatencyHistogram();
+        Random random = new Random(3);
+        long[] values = new long[100_000];
+        for (int i = 0; i < values.length; i++) {
+            // Mostly fast, with a long tail
+            values[i] = i % 100 == 0 ? 5_000_000 + random.nextInt(50_000_000) : 20_000 + random.nextInt(80_000);
+            histogram.record(values[i]);
+        }
+        Arrays.sort(values);
+
+        LatencyHistogram.Snapshot snapshot = histogram.snapshot();
+        assertEquals(values.length, snapshot.count());
+        assertEquals(values[values.length - 1], snapshot.max());
+        for (double percentile : new double[]{50, 90, 99, 99.9}) {
+            long exact = values[(int) Math.ceil(values.length * percentile / 100) - 1];
+            long reported = snapshot.percentile(percentile);
+            assertTrue(percentile + ": " + reported + " vs " + exact,
+                    reported >= exact && reported - exact <= exact / 64);
+        }
+
+        histogram.reset();
+        assertEquals(0, histogram.snapshot().count());
+        assertEquals(0, histogram.snapshot().percentile(99));
+    }
+}
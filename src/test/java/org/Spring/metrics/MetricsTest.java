@@ -0,0 +1,50 @@
+package org.Spring.metrics;
+
+import junit.framework.TestCase;
+
+import javax.management.ObjectName;
+import java.io.ByteArrayOutputStream;
+import java.io.PrintStream;
+import java.lang.management.ManagementFactory;
+import java.nio.charset.StandardCharsets;
+
+public class MetricsTest extends TestCase {
+
+    public void testOutcomesAreCountedAndVisibleOverJmx() throws Exception {
+        long calls = Metrics.calls(Operation.CANCEL);
+        long rejected = Metrics.rejections(Operation.CANCEL);
+        long failed = Metrics.failures(Operation.CANCEL);
+
+        Metrics.record(Operation.CANCEL, Metrics.start(), true);
+        Metrics.record(Operation.CANCEL, Metrics.start(), false);
+        Metrics.failed(Operation.CANCEL, Metrics.start(), new IllegalStateException("disk full"));
+
+        assertEquals(calls + 3, Metrics.calls(Operation.CANCEL));
+        assertEquals(rejected + 1, Metrics.rejections(Operation.CANCEL));
+        assertEquals(failed + 1, Metrics.failures(Operation.CANCEL));
+        assertTrue(Metrics.dump().contains("cancel"));
+
+        Object jmxCalls = ManagementFactory.getPlatformMBeanServer()
+                .getAttribute(new ObjectName("org.Spring:type=Metrics,operation=cancel"), "Calls");
+        assertEquals(Metrics.calls(Operation.CANCEL), ((Long) jmxCalls).longValue());
+    }
+
+    public void testTraceLevelCanBeChangedWhileRunning() {
+        ByteArrayOutputStream captured = new ByteArrayOutputStream();
+        Trace.Level previous = Trace.getLevel();
+        Trace.setOutput(new PrintStream(captured, true, StandardCharsets.UTF_8));
+        try {
+            Trace.setLevel(Trace.Level.ERROR);
+            Metrics.record(Operation.SEARCH, Metrics.start(), true);
+            assertEquals("", captured.toString(StandardCharsets.UTF_8));
+
+            Trace.setLevel(Trace.parse("debug"));
+            Metrics.record(Operation.SEARCH, Metrics.start(), false);
+            String line = captured.toString(StandardCharsets.UTF_8);
+            assertTrue(line, line.contains(" DEBUG search outcome=rejected micros="));
+        } finally {
+            Trace.setLevel(previous);
+            Trace.setOutput(System.err);
+        }
+    }
+}
@@ -0,0 +1,80 @@
+package org.Spring.persistence;
+
+import junit.framework.TestCase;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+public class BinarySnapshotTest extends TestCase {
+
+    private File dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("snapshot").toFile();
+    }
+
+    public void testTrainsRoundTripWithSeatBitsAndTimes() throws Exception {
+        SeatMap seats = new SeatMap(new int[]{3, 70});
+        seats.book(0, 1);
+        seats.book(1, 65);
+        Map<String, String> times = new LinkedHashMap<>();
+        times.put("bangalore", "13:50:00");
+        times.put("delhi", "20:15:00");
+        Train train = new Train("bacs_12345", "12345", seats, times, List.of("bangalore", "delhi"));
+        Train bare = new Train("bare", null, null, null, null);
+
+        File file = new File(dir, "train.bin");
+        assertEquals(2, BinarySnapshot.write(file, BinarySnapshot.TRAINS, List.of(train, bare)));
+
+        List<Train> read = new ArrayList<>();
+        assertEquals(2, BinarySnapshot.read(file, BinarySnapshot.TRAINS, read::add));
+        assertEquals(seats, read.get(0).getSeats());
+        assertEquals(times, read.get(0).getStationTimes());
+        assertEquals(List.of("bangalore", "delhi"), read.get(0).getStations());
+        assertNull(read.get(1).getSeats());
+        assertNull(read.get(1).getStations());
+    }
+
+    public void testUsersKeepTheirTickets() throws Exception {
+        SeatReservation seat = new SeatReservation("t1", "u1", "bacs_12345", LocalDate.of(2025, 12, 26), 1, 2, 0, 3);
+        List<Ticket> tickets = new ArrayList<>(List.of(Ticket.forReservation(seat, "bangalore", "delhi")));
+        User user = new User("asha", null, "$2a$12$hash", tickets, "u1");
+
+        File file = new File(dir, "part-0001.bin");
+        BinarySnapshot.write(file, BinarySnapshot.USERS, List.of(user));
+
+        List<User> read = new ArrayList<>();
+        BinarySnapshot.read(file, BinarySnapshot.USERS, read::add);
+        User copy = read.get(0);
+        assertEquals("asha", copy.getName());
+        assertNull(copy.getPassword());
+        Ticket ticket = copy.getTicketsBooked().get(0);
+        assertEquals("t1", ticket.getTicketId());
+        assertEquals("delhi", ticket.getDestination());
+        assertEquals(LocalDate.of(2025, 12, 26), ticket.getDateOfTravel());
+        assertEquals(3, ticket.getToStop());
+    }
+
+    public void testRejectsOtherRecordTypes() throws Exception {
+        File file = new File(dir, "bookings.bin");
+        BinarySnapshot.write(file, BinarySnapshot.RESERVATIONS, List.of());
+        try {
+            BinarySnapshot.read(file, BinarySnapshot.USERS, u -> fail());
+            fail("expected a type mismatch");
+        } catch (IOException expected) {
+            assertTrue(expected.getMessage().contains("record type"));
+        }
+    }
+}
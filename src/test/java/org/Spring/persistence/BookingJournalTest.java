@@ -0,0 +1,189 @@
+package org.Spring.persistence;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import junit.framework.TestCase;
+import org.Spring.entities.JournalEvent;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.User;
+
+import java.io.File;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicReference;
+import java.util.concurrent.locks.Lock;
+
+public class BookingJournalTest extends TestCase {
+
+    private static final User USER = new User("asha", null, null, null, "u-1");
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("journal");
+    }
+
+    public void testWriteBehindCompletesFuturesOnceOnDisk() throws Exception {
+        Path file = dir.resolve("journal.log");
+
+        // Too long an interval to fire during the test: only close() writes
+        BookingJournal journal = new BookingJournal(file, true, TimeUnit.MINUTES.toMillis(10));
+        CompletableFuture<Void> first = journal.append(JournalEvent.cancelled(USER, "t-1"));
+        CompletableFuture<Void> second = journal.append(JournalEvent.cancelled(USER, "t-2"));
+        assertFalse(first.isDone());
+        assertFalse(journal.whenDurable().isDone());
+        assertEquals(0, Files.size(file));
+        assertTrue(journal.size() > 0);
+
+        long appended = journal.size();
+        journal.close();
+        assertTrue(first.isDone() && second.isDone());
+        assertEquals(appended, Files.size(file));
+
+        // A short interval commits on its own, in order
+        BookingJournal reopened = new BookingJournal(file, true, 1);
+        reopened.append(JournalEvent.cancelled(USER, "t-3"));
+        reopened.whenDurable().get(5, TimeUnit.SECONDS);
+        assertEquals(reopened.size(), Files.size(file));
+
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(event -> replayed.add(event.getTicketId()));
+        assertEquals(List.of("t-1", "t-2", "t-3"), replayed);
+        reopened.close();
+    }
+
+    public void testFailedCommitsAreRetriedUntilTheyLand() throws Exception {
+        Path file = dir.resolve("journal.log");
+        BookingJournal journal = new BookingJournal(file, true, 1);
+        journal.failCommits = true;
+
+        CompletableFuture<Void> first = journal.append(JournalEvent.cancelled(USER, "t-1"));
+        Thread.sleep(50);
+        CompletableFuture<Void> second = journal.append(JournalEvent.cancelled(USER, "t-2"));
+        Thread.sleep(50);
+        // Dozens of failed commits later nothing is written, and nothing has failed
+        assertFalse(first.isDone() || second.isDone());
+        assertEquals(0, Files.size(file));
+
+        journal.failCommits = false;
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        BookingJournal reopened = new BookingJournal(file, true, 1);
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(event -> replayed.add(event.getTicketId()));
+        assertEquals(List.of("t-1", "t-2"), replayed);
+
+        // Closing gives up on what still cannot be written
+        reopened.failCommits = true;
+        CompletableFuture<Void> lost = reopened.append(JournalEvent.cancelled(USER, "t-3"));
+        try {
+            reopened.close();
+            fail("expected close to report the lost record");
+        } catch (IOException expected) {
+            // ok
+        }
+        assertTrue(lost.isCompletedExceptionally());
+    }
+
+    public void testCompactionWaitsForChangesInFlight() throws Exception {
+        BookingJournal journal = new BookingJournal(dir.resolve("journal.log"), false, 1);
+        List<Long> snapshotAt = new ArrayList<>();
+
+        Lock change = journal.changeLock();
+        change.lock();
+        CompletableFuture<Void> compaction;
+        try {
+            compaction = CompletableFuture.runAsync(() -> {
+                try {
+                    journal.compact(() -> {
+                        snapshotAt.add(journal.size());
+                        return () -> {
+                        };
+                    });
+                } catch (IOException ex) {
+                    throw new UncheckedIOException(ex);
+                }
+            });
+            Thread.sleep(100);
+            assertFalse(compaction.isDone());
+            journal.append(JournalEvent.cancelled(USER, "t-1"));
+        } finally {
+            change.unlock();
+        }
+
+        compaction.get(5, TimeUnit.SECONDS);
+        // The snapshot saw the change together with its record
+        assertTrue(snapshotAt.get(0) > 0);
+        assertEquals(0, journal.size());
+        journal.close();
+    }
+
+    public void testCompactionKeepsRecordsAppendedWhileSnapshotting() throws Exception {
+        Path file = dir.resolve("journal.log");
+        BookingJournal journal = new BookingJournal(file, true, 1);
+        journal.append(JournalEvent.cancelled(USER, "t-1"));
+        journal.append(JournalEvent.cancelled(USER, "t-2"));
+
+        // Appends go on while the snapshot is written, and outlive the compaction
+        AtomicReference<CompletableFuture<Void>> late = new AtomicReference<>();
+        journal.compact(() -> () -> late.set(journal.append(JournalEvent.cancelled(USER, "t-3"))));
+        late.get().get(5, TimeUnit.SECONDS);
+        journal.append(JournalEvent.cancelled(USER, "t-4")).get(5, TimeUnit.SECONDS);
+        journal.close();
+
+        BookingJournal reopened = new BookingJournal(file, true, 1);
+        List<String> replayed = new ArrayList<>();
+        reopened.replay(event -> replayed.add(event.getTicketId()));
+        assertEquals(List.of("t-3", "t-4"), replayed);
+        assertEquals(reopened.size(), Files.size(file));
+        reopened.close();
+    }
+
+    public void testFailedSnapshotLeavesPreviousFileInPlace() throws Exception {
+        ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+        File file = dir.resolve("bookings.json").toFile();
+        SnapshotFormat.JSON.write(mapper, file, BinarySnapshot.RESERVATIONS, List.of(reservation("t-1")));
+        String before = Files.readString(file.toPath());
+
+        Iterable<SeatReservation> failing = () -> new Iterator<>() {
+            private int next;
+
+            @Override
+            public boolean hasNext() {
+                return true;
+            }
+
+            @Override
+            public SeatReservation next() {
+                if (next == 2) throw new IllegalStateException("crash mid-write");
+                return reservation("t-" + (10 + next++));
+            }
+        };
+        try {
+            SnapshotFormat.JSON.write(mapper, file, BinarySnapshot.RESERVATIONS, failing);
+            fail("expected the writer to fail");
+        } catch (IllegalStateException expected) {
+            // ok
+        }
+        assertEquals(before, Files.readString(file.toPath()));
+
+        SnapshotFormat.JSON.write(mapper, file, BinarySnapshot.RESERVATIONS, List.of(reservation("t-2")));
+        assertTrue(Files.readString(file.toPath()).contains("t-2"));
+        assertFalse(Files.exists(AtomicFiles.temporarySibling(file.toPath())));
+    }
+
+    private static SeatReservation reservation(String ticketId) {
+        return new SeatReservation(ticketId, "u-1", "bacs_12345", LocalDate.of(2025, 12, 26), 0, 0, 0, 2);
+    }
+}
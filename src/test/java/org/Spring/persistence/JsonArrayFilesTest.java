@@ -0,0 +1,59 @@
+package org.Spring.persistence;
+
+import com.fasterxml.jackson.core.JsonParseException;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.json.JsonMapper;
+import junit.framework.TestCase;
+import org.Spring.entities.SeatReservation;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.List;
+
+public class JsonArrayFilesTest extends TestCase {
+
+    private final ObjectMapper mapper = JsonMapper.builder().findAndAddModules().build();
+
+    private File file;
+
+    @Override
+    protected void setUp() throws Exception {
+        file = new File(Files.createTempDirectory("json").toFile(), "bookings.json");
+    }
+
+    public void testWrittenArrayReadsBackElementByElement() throws Exception {
+        try (JsonArrayFiles.Writer writer = JsonArrayFiles.write(mapper, file)) {
+            for (int seat = 0; seat < 3; seat++) {
+                writer.append(new SeatReservation("t" + seat, "u1", "bacs_12345",
+                        LocalDate.of(2025, 12, 26), 0, seat, 0, 2));
+            }
+        }
+
+        List<SeatReservation> read = new ArrayList<>();
+        assertEquals(3, JsonArrayFiles.read(mapper, file, SeatReservation.class, read::add));
+        assertEquals("t2", read.get(2).getTicketId());
+        assertEquals(2, read.get(2).getSeat());
+
+        // Still a plain JSON array for people and for non-streaming readers
+        assertEquals(3, mapper.readValue(file, SeatReservation[].class).length);
+    }
+
+    public void testMissingAndEmptyFilesHaveNoElements() throws Exception {
+        assertEquals(0, JsonArrayFiles.read(mapper, file, SeatReservation.class, r -> fail()));
+
+        Files.writeString(file.toPath(), "");
+        assertEquals(0, JsonArrayFiles.read(mapper, file, SeatReservation.class, r -> fail()));
+    }
+
+    public void testRejectsNonArray() throws Exception {
+        Files.writeString(file.toPath(), "{ \"ticket_id\" : \"t1\" }");
+        try {
+            JsonArrayFiles.read(mapper, file, SeatReservation.class, r -> fail());
+            fail("expected a parse error");
+        } catch (JsonParseException expected) {
+            // ok
+        }
+    }
+}
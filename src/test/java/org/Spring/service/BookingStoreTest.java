@@ -0,0 +1,207 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.persistence.SnapshotFormat;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDate;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.AtomicReference;
+
+public class BookingStoreTest extends TestCase {
+
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "bacs_12345",
+              "train_no" : "12345",
+              "seats" : [ [ 0, 0, 0 ] ],
+              "station_times" : { },
+              "stations" : [ "bangalore", "jaipur", "delhi" ]
+            } ]
+            """;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 26);
+
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("store");
+        Files.writeString(dir.resolve("train.json"), TRAINS_JSON);
+    }
+
+    public void testJournalIsReplayedOverSnapshotsAndCompacted() throws Exception {
+        BookingStore store = BookingStore.open(dir, true);
+        UserBookingService service = new UserBookingService(store);
+
+        assertTrue(service.signUp(new User("asha", "secret", null, null, "u-1")).value());
+        String token = service.login("asha", "secret").orElseThrow();
+        Train train = service.searchTrains("bangalore", "delhi").get(0);
+        assertTrue(service.bookSeat(token, train, 0, 1, "bangalore", "jaipur", DAY).value().isPresent());
+        String cancelled = service.fetchBookings(token).get(0).getTicketId();
+        assertTrue(service.bookSeat(token, train, 0, 2, "bangalore", "delhi", DAY).value().isPresent());
+        assertTrue(service.cancelBooking(token, cancelled).value());
+
+        // Nothing but the journal has been written so far
+        assertEquals(0, partitionFiles());
+        assertTrue(store.journal().size() > 0);
+        store.journal().whenDurable().get(5, TimeUnit.SECONDS);
+        assertEquals(store.journal().size(), Files.size(dir.resolve("journal.log")));
+
+        BookingStore recovered = BookingStore.open(dir, false);
+        UserBookingService again = new UserBookingService(recovered);
+        String againToken = again.login("asha", "secret").orElseThrow();
+        assertEquals(1, again.fetchBookings(againToken).size());
+        assertFalse(recovered.seatInventory().isAvailable(train, DAY, 0, 2, 0, 1));
+        assertTrue(recovered.seatInventory().isAvailable(train, DAY, 0, 1, 0, 1));
+
+        recovered.close();
+        store.close();
+
+        // Compaction folded everything into the snapshots
+        assertEquals(0, Files.size(dir.resolve("journal.log")));
+        assertEquals(1, partitionFiles());
+        BookingStore reopened = BookingStore.open(dir, false);
+        UserBookingService fromSnapshot = new UserBookingService(reopened);
+        String fromSnapshotToken = fromSnapshot.login("asha", "secret").orElseThrow();
+        assertEquals(1, fromSnapshot.fetchBookings(fromSnapshotToken).size());
+        assertFalse(reopened.seatInventory().isAvailable(train, DAY, 0, 2, 1, 2));
+        reopened.close();
+    }
+
+    public void testBinarySnapshotsReloadAndNewerJsonWins() throws Exception {
+        BookingStore store = BookingStore.open(dir, false, SnapshotFormat.BINARY);
+        UserBookingService service = new UserBookingService(store);
+        assertTrue(service.signUp(new User("asha", "secret", null, null, "u-1")).value());
+        String token = service.login("asha", "secret").orElseThrow();
+        Train train = service.searchTrains("bangalore", "delhi").get(0);
+        assertTrue(service.bookSeat(token, train, 0, 1, "bangalore", "jaipur", DAY).value().isPresent());
+        store.close();
+
+        assertTrue(Files.exists(dir.resolve("train.bin")));
+        assertTrue(Files.exists(dir.resolve("bookings.bin")));
+        assertFalse(Files.exists(dir.resolve("bookings.json")));
+
+        BookingStore reopened = BookingStore.open(dir, false, SnapshotFormat.BINARY);
+        UserBookingService again = new UserBookingService(reopened);
+        String againToken = again.login("asha", "secret").orElseThrow();
+        assertEquals(1, again.fetchBookings(againToken).size());
+        assertFalse(reopened.seatInventory().isAvailable(train, DAY, 0, 1, 0, 1));
+
+        // A JSON export edited by hand is newer than the binary snapshot, so it loads
+        reopened.exportJson();
+        reopened.close();
+        Path trainJson = dir.resolve("train.json");
+        Files.writeString(trainJson, Files.readString(trainJson).replace("\"12345\"", "\"54321\""));
+        Files.setLastModifiedTime(trainJson,
+                FileTime.fromMillis(Files.getLastModifiedTime(dir.resolve("train.bin")).toMillis() + 1_000));
+
+        BookingStore edited = BookingStore.open(dir, false, SnapshotFormat.BINARY);
+        assertEquals("54321", edited.trainCatalog().findByTrainId("bacs_12345").orElseThrow().getTrainNo());
+        assertFalse(edited.seatInventory().isAvailable(train, DAY, 0, 1, 0, 1));
+        edited.close();
+    }
+
+    public void testTrainReloadKeepsUpdatesMadeWhileItRan() throws Exception {
+        BookingStore store = BookingStore.open(dir, false);
+        TrainCatalog catalog = store.trainCatalog();
+        Path trainJson = dir.resolve("train.json");
+        int updates = 300;
+
+        // Updates and compactions race reloads forced by edits to train.json
+        Thread updater = new Thread(() -> {
+            try {
+                for (int i = 0; i < updates; i++) {
+                    catalog.saveOrUpdateTrain(new Train("extra_" + i, String.valueOf(i),
+                            SeatMap.of(List.of(List.of(0))), Map.of(), List.of("bangalore", "delhi")));
+                    if (i % 50 == 0) store.compact();
+                    Thread.sleep(5);
+                }
+            } catch (Exception ex) {
+                throw new RuntimeException(ex);
+            }
+        });
+        AtomicReference<Throwable> failure = new AtomicReference<>();
+        updater.setUncaughtExceptionHandler((thread, ex) -> failure.set(ex));
+        updater.start();
+        long touched = System.currentTimeMillis();
+        while (updater.isAlive()) {
+            touched += 1_000;
+            Files.setLastModifiedTime(trainJson, FileTime.fromMillis(touched));
+            catalog.allTrains();
+            Thread.sleep(50);
+        }
+        updater.join();
+        assertNull(failure.get());
+
+        for (int i = 0; i < updates; i++) {
+            assertTrue("lost extra_" + i, catalog.findByTrainId("extra_" + i).isPresent());
+        }
+        store.close();
+    }
+
+    public void testLegacyUsersAreSplitAndLoadedLazily() throws Exception {
+        Files.writeString(dir.resolve("users.json"), """
+                [ { "name" : "Vivek", "hashed_password" : "x", "user_id" : "a", "tickets_booked" : [ {
+                    "ticket_id" : "old", "user_id" : "a", "source" : "Jaipur", "destination" : "Delhi",
+                    "date_of_travel" : [ 2023, 12, 8 ],
+                    "train" : { "train_id" : "bacs", "stations" : [ "Bangalore", "Jaipur", "Delhi" ] } } ] },
+                  { "name" : "rahul", "hashed_password" : "y", "tickets_booked" : [ ], "user_id" : "b" } ]
+                """);
+
+        // Half a migration from a crash is thrown away and done again
+        Files.createDirectories(dir.resolve("users.tmp"));
+        Files.writeString(dir.resolve("users.tmp").resolve("part-0009.json"), "[ { \"name\" : \"viv");
+
+        UserRepository users = new UserRepository(dir.resolve("users"), dir.resolve("users.json").toFile(), null, 1);
+        assertFalse(Files.exists(dir.resolve("users.tmp")));
+
+        assertEquals(0, users.cachedPartitions());
+        assertEquals("a", users.findByName("vivek").orElseThrow().getUserId());
+
+        // An embedded legacy train gives the stops; no seat was ever recorded
+        Ticket legacy = users.tickets(users.findByName("vivek").orElseThrow()).get(0);
+        assertEquals("bacs", legacy.getTrainId());
+        assertEquals(1, legacy.getFromStop());
+        assertEquals(2, legacy.getToStop());
+        assertFalse(legacy.hasSeat());
+        assertEquals("b", users.findByName("RAHUL").orElseThrow().getUserId());
+        assertEquals(1, users.cachedPartitions());
+        assertEquals("rahul", users.findCachedByUserId("b").orElseThrow().getName());
+
+        // A dirty partition stays cached until a snapshot has written it
+        assertTrue(users.add(new User("meera", null, "z", null, "c")));
+        users.findByName("vivek");
+        assertEquals("meera", users.findCachedByUserId("c").orElseThrow().getName());
+        assertTrue(new UserRepository(dir.resolve("users"), null, null, 4).findByName("Meera").isEmpty());
+
+        // Only unsaved partitions over the cap: the repository asks for that snapshot
+        AtomicInteger overflows = new AtomicInteger();
+        users.onCacheOverflow(overflows::incrementAndGet);
+        assertTrue(users.add(new User("kabir", null, "k", null, "d")));
+        assertTrue(overflows.get() > 0);
+        assertEquals(2, users.cachedPartitions());
+
+        users.writeSnapshot();
+        users.findByName("vivek");
+        assertEquals(1, users.cachedPartitions());
+        assertTrue(users.findCachedByUserId("c").isEmpty());
+        UserRepository reopened = new UserRepository(dir.resolve("users"), null, null, 4);
+        assertTrue(reopened.findByName("Meera").isPresent());
+    }
+
+    private long partitionFiles() throws Exception {
+        try (var files = Files.list(dir.resolve("users"))) {
+            return files.count();
+        }
+    }
+}
@@ -0,0 +1,91 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.Itinerary;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.List;
+
+public class JourneyPlannerTest extends TestCase {
+
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "ac", "train_no" : "101", "seats" : [ [ 0 ] ],
+              "station_times" : { "agra" : "08:00:00", "bhopal" : "10:00:00", "chennai" : "12:00:00" },
+              "stations" : [ "agra", "bhopal", "chennai" ]
+            }, {
+              "train_id" : "cd_tight", "train_no" : "102", "seats" : [ [ 0 ] ],
+              "station_times" : { "chennai" : "12:20:00", "delhi" : "14:00:00" },
+              "stations" : [ "chennai", "delhi" ]
+            }, {
+              "train_id" : "cd", "train_no" : "103", "seats" : [ [ 0 ] ],
+              "station_times" : { "chennai" : "13:00:00", "delhi" : "15:00:00" },
+              "stations" : [ "chennai", "delhi" ]
+            }, {
+              "train_id" : "ad_night", "train_no" : "104", "seats" : [ [ 0 ] ],
+              "station_times" : { "agra" : "22:00:00", "delhi" : "07:00:00" },
+              "stations" : [ "agra", "delhi" ]
+            }, {
+              "train_id" : "xyz", "train_no" : "105", "seats" : [ [ 0 ] ],
+              "station_times" : { "xavier" : "20:00:00", "yelahanka" : "02:00:00", "zirakpur" : "04:00:00" },
+              "stations" : [ "xavier", "yelahanka", "zirakpur" ]
+            } ]
+            """;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 26);
+
+    private JourneyPlanner planner;
+
+    @Override
+    protected void setUp() throws Exception {
+        File trainFile = new File(Files.createTempDirectory("planner").toFile(), "train.json");
+        Files.writeString(trainFile.toPath(), TRAINS_JSON);
+        planner = new JourneyPlanner(new TrainCatalog(trainFile));
+    }
+
+    public void testChangeBeatsSlowerDirectTrain() {
+        List<Itinerary> plans = planner.plan("agra", "delhi", DAY.atTime(7, 0), 1, 30);
+
+        assertEquals(2, plans.size());
+
+        Itinerary fastest = plans.get(0);
+        assertEquals(1, fastest.getTransfers());
+        assertEquals("cd", fastest.getLegs().get(1).getTrainId());
+        assertEquals(DAY.atTime(15, 0), fastest.getArrival());
+
+        Itinerary direct = plans.get(1);
+        assertEquals(0, direct.getTransfers());
+        assertEquals(DAY.plusDays(1).atTime(7, 0), direct.getArrival());
+    }
+
+    public void testMinimumConnectionTimeAndTransferLimit() {
+        Itinerary tight = planner.plan("agra", "delhi", DAY.atTime(7, 0), 1, 10).get(0);
+        assertEquals("cd_tight", tight.getLegs().get(1).getTrainId());
+
+        List<Itinerary> direct = planner.plan("agra", "delhi", DAY.atTime(7, 0), 0, 30);
+        assertEquals(1, direct.size());
+        assertEquals("ad_night", direct.get(0).getLegs().get(0).getTrainId());
+    }
+
+    public void testLateStartRollsOverToNextDay() {
+        Itinerary next = planner.plan("agra", "delhi", DAY.atTime(23, 0), 1, 30).get(0);
+
+        assertEquals(DAY.plusDays(1), next.getLegs().get(0).getDateOfTravel());
+        assertEquals(DAY.plusDays(1).atTime(15, 0), next.getArrival());
+    }
+
+    public void testBoardsRunThatLeftTheDayBefore() {
+        Itinerary overnight = planner.plan("yelahanka", "zirakpur", DAY.atTime(1, 0), 0, 30).get(0);
+        Itinerary.Leg leg = overnight.getLegs().get(0);
+
+        assertEquals(DAY.minusDays(1), leg.getDateOfTravel());
+        assertEquals(DAY.atTime(2, 0), leg.getDeparture());
+        assertEquals(DAY.atTime(4, 0), leg.getArrival());
+    }
+
+    public void testUnknownStationHasNoPlan() {
+        assertTrue(planner.plan("agra", "nowhere", DAY.atTime(7, 0), 2, 30).isEmpty());
+    }
+}
@@ -0,0 +1,283 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.SeatMap;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.Train;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Queue;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.TimeUnit;
+
+public class SeatInventoryTest extends TestCase {
+
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "bacs_12345",
+              "train_no" : "12345",
+              "seats" : [ [ 0, 0, 0 ], [ 0, 1, 0 ] ],
+              "station_times" : { },
+              "stations" : [ "bangalore", "jaipur", "bhopal", "delhi" ]
+            } ]
+            """;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 26);
+
+    private File dir;
+    private TrainCatalog catalog;
+    private SeatInventory inventory;
+
+    @Override
+    protected void setUp() throws Exception {
+        dir = Files.createTempDirectory("inventory").toFile();
+        File trainFile = new File(dir, "train.json");
+        Files.writeString(trainFile.toPath(), TRAINS_JSON);
+        catalog = new TrainCatalog(trainFile);
+        inventory = new SeatInventory(new File(dir, "bookings.json"), catalog);
+    }
+
+    public void testLegMask() {
+        assertEquals(0b1L, SeatInventory.legMask(0, 1));
+        assertEquals(0b110L, SeatInventory.legMask(1, 3));
+        assertEquals(-1L, SeatInventory.legMask(0, 64));
+    }
+
+    public void testDisjointSegmentsShareOneSeat() throws Exception {
+        assertTrue(inventory.reserve(reservation(DAY, 0, 0, 0, 1)));
+        assertTrue(inventory.reserve(reservation(DAY, 0, 0, 1, 3)));
+
+        assertFalse(inventory.reserve(reservation(DAY, 0, 0, 2, 3)));
+        assertTrue(inventory.reserve(reservation(DAY, 0, 1, 2, 3)));
+    }
+
+    public void testDatesAreIndependent() throws Exception {
+        assertTrue(inventory.reserve(reservation(DAY, 0, 2, 0, 3)));
+
+        assertFalse(inventory.reserve(reservation(DAY, 0, 2, 1, 2)));
+        assertTrue(inventory.reserve(reservation(DAY.plusDays(1), 0, 2, 1, 2)));
+    }
+
+    public void testBlockedAndInvalidSeatsAreRejected() throws Exception {
+        assertFalse(inventory.reserve(reservation(DAY, 1, 1, 0, 1)));
+        assertFalse(inventory.reserve(reservation(DAY, 0, 3, 0, 1)));
+        assertFalse(inventory.reserve(reservation(DAY, 0, 0, 0, 4)));
+    }
+
+    public void testSnapshotSurvivesReload() throws Exception {
+        assertTrue(inventory.reserve(reservation(DAY, 1, 2, 0, 2)));
+        inventory.writeSnapshot();
+
+        SeatInventory reloaded = new SeatInventory(new File(dir, "bookings.json"), catalog);
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+
+        assertFalse(reloaded.isAvailable(train, DAY, 1, 2, 1, 2));
+        assertTrue(reloaded.isAvailable(train, DAY, 1, 2, 2, 3));
+    }
+
+    public void testTicketIndexFindsAndReleasesAcrossReload() throws Exception {
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+        SeatReservation held = reservation(DAY, 1, 2, 0, 2);
+        assertTrue(inventory.reserve(held));
+        SeatReservation any = inventory.reserveAny(train, DAY.plusDays(1), 1, 3, "u-2").orElseThrow();
+        assertEquals(2, inventory.heldTickets());
+        assertEquals(1, inventory.find(held.getTicketId()).orElseThrow().getRow());
+
+        inventory.writeSnapshot();
+        SeatInventory reloaded = new SeatInventory(new File(dir, "bookings.json"), catalog);
+        assertEquals("u-2", reloaded.find(any.getTicketId()).orElseThrow().getUserId());
+
+        // The id alone is enough to free exactly that seat
+        SeatReservation released = reloaded.release(held.getTicketId()).orElseThrow();
+        assertEquals(2, released.getSeat());
+        assertTrue(reloaded.isAvailable(train, DAY, 1, 2, 0, 2));
+        assertTrue(reloaded.find(held.getTicketId()).isEmpty());
+        assertTrue(reloaded.release(held.getTicketId()).isEmpty());
+        assertEquals(1, reloaded.heldTickets());
+    }
+
+    public void testGroupPrefersTightestAdjacentRun() throws Exception {
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+
+        List<SeatReservation> pair = inventory.reserveGroup(train, DAY, 0, 3, "u1", 2);
+
+        assertEquals(2, pair.size());
+        assertEquals(0, pair.get(0).getRow());
+        assertEquals(1, pair.get(1).getSeat() - pair.get(0).getSeat());
+        assertFalse(inventory.isAvailable(train, DAY, 0, pair.get(0).getSeat(), 1, 2));
+    }
+
+    public void testGroupIsAllOrNothing() throws Exception {
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+
+        assertEquals(3, inventory.reserveGroup(train, DAY, 0, 2, "u1", 3).size());
+        assertTrue(inventory.reserveGroup(train, DAY, 0, 2, "u2", 3).isEmpty());
+
+        // The failed group held nothing; the split row still seats two
+        assertTrue(inventory.isAvailable(train, DAY, 1, 0, 0, 2));
+        List<SeatReservation> split = inventory.reserveGroup(train, DAY, 1, 3, "u3", 2);
+        assertEquals(2, split.size());
+        assertEquals(1, split.get(0).getRow());
+        assertEquals(1, split.get(1).getRow());
+    }
+
+    public void testAnySeatFillsTrainThenUsesPartBookedSeats() throws Exception {
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+
+        List<SeatReservation> taken = new ArrayList<>();
+        for (int i = 0; i < 5; i++) {
+            taken.add(inventory.reserveAny(train, DAY, 0, 1, "u1").orElseThrow());
+        }
+        assertFalse(inventory.reserveAny(train, DAY, 0, 2, "u2").isPresent());
+        assertEquals(0, inventory.emptySeatsPerRow(train, DAY)[0]);
+
+        // Every seat is taken on leg 0 only, so later legs still fit
+        assertTrue(inventory.reserveAny(train, DAY, 1, 3, "u2").isPresent());
+
+        assertTrue(inventory.release(taken.get(4)));
+        assertEquals(1, inventory.emptySeatsPerRow(train, DAY)[1]);
+    }
+
+    public void testSegmentCountersFollowBookingsAndReleases() throws Exception {
+        var train = catalog.findByTrainId("bacs_12345").orElseThrow();
+        assertEquals(5, inventory.availableSeats(train, DAY, 0, 3));
+
+        SeatReservation first = reservation(DAY, 0, 0, 0, 1);
+        assertTrue(inventory.reserve(first));
+        assertTrue(inventory.reserve(reservation(DAY, 0, 1, 1, 3)));
+
+        assertEquals(3, inventory.availableSeats(train, DAY, 0, 3));
+        assertEquals(4, inventory.availableSeats(train, DAY, 0, 1));
+        assertEquals(4, inventory.availableSeats(train, DAY, 2, 3));
+        assertEquals(availabilityScan(train, 0, 2), inventory.availableSeats(train, DAY, 0, 2));
+
+        assertTrue(inventory.release(first));
+        assertEquals(5, inventory.availableSeats(train, DAY, 0, 1));
+        assertEquals(5, inventory.availableSeats(train, DAY.plusDays(1), 0, 3));
+    }
+
+    public void testSegmentCountersMatchAScanAfterRandomChanges() throws Exception {
+        Train train = catalog.findByTrainId("bacs_12345").orElseThrow();
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        List<SeatReservation> held = new ArrayList<>();
+
+        for (int step = 0; step < 500; step++) {
+            if (!held.isEmpty() && random.nextBoolean()) {
+                assertTrue(inventory.release(held.remove(random.nextInt(held.size()))));
+            } else {
+                int from = random.nextInt(3);
+                int to = from + 1 + random.nextInt(3 - from);
+                SeatReservation attempt = reservation(DAY, random.nextInt(2), random.nextInt(3), from, to);
+                if (inventory.reserve(attempt)) held.add(attempt);
+            }
+
+            for (int from = 0; from < 3; from++) {
+                for (int to = from + 1; to <= 3; to++) {
+                    assertEquals("segment " + from + "-" + to + " at step " + step,
+                            availabilityScan(train, from, to), inventory.availableSeats(train, DAY, from, to));
+                }
+            }
+        }
+    }
+
+    public void testLongestRouteBooksEndToEndAndLongerIsRefused() throws Exception {
+        List<String> stations = new ArrayList<>();
+        for (int stop = 0; stop < SeatInventory.MAX_STOPS; stop++) stations.add("stop" + stop);
+        Train longest = new Train("long_1", "1", SeatMap.of(List.of(List.of(0, 0))), Map.of(), stations);
+        catalog.saveOrUpdateTrain(longest);
+
+        int last = SeatInventory.MAX_STOPS - 1;
+        assertEquals(2, inventory.availableSeats(longest, DAY, 0, last));
+        assertTrue(inventory.reserveAny(longest, DAY, 0, last, "u1").isPresent());
+        assertEquals(1, inventory.availableSeats(longest, DAY, 0, last));
+        // A day nobody booked on answers like a day whose counters exist
+        assertEquals(2, inventory.availableSeats(longest, DAY.plusDays(1), 0, last));
+        assertEquals(2, inventory.availableSeats(longest, DAY.plusDays(1), 3, last));
+
+        List<String> tooMany = new ArrayList<>(stations);
+        tooMany.add("one_more");
+        try {
+            catalog.saveOrUpdateTrain(new Train("long_2", "2", SeatMap.of(List.of(List.of(0))), Map.of(), tooMany));
+            fail("route longer than a leg mask accepted");
+        } catch (IllegalArgumentException expected) {
+            // ok
+        }
+        assertTrue(catalog.findByTrainId("long_2").isEmpty());
+    }
+
+    public void testConcurrentBookersNeverSellALegTwice() throws Exception {
+        int threads = 16;
+        int attemptsPerThread = 2_000;
+        Queue<SeatReservation> sold = new ConcurrentLinkedQueue<>();
+        CountDownLatch start = new CountDownLatch(1);
+
+        ExecutorService pool = Executors.newFixedThreadPool(threads);
+        List<Future<?>> workers = new ArrayList<>();
+        for (int t = 0; t < threads; t++) {
+            workers.add(pool.submit(() -> {
+                ThreadLocalRandom random = ThreadLocalRandom.current();
+                start.await();
+                for (int i = 0; i < attemptsPerThread; i++) {
+                    int from = random.nextInt(3);
+                    int to = from + 1 + random.nextInt(3 - from);
+                    LocalDate date = DAY.plusDays(random.nextInt(2));
+                    SeatReservation attempt =
+                            reservation(date, random.nextInt(2), random.nextInt(3), from, to);
+                    if (inventory.reserve(attempt)) {
+                        sold.add(attempt);
+                    }
+                }
+                return null;
+            }));
+        }
+        start.countDown();
+        for (Future<?> worker : workers) {
+            worker.get(60, TimeUnit.SECONDS);
+        }
+        pool.shutdown();
+
+        // Every leg of every seat on every date is sold at most once
+        Map<String, Long> taken = new HashMap<>();
+        for (SeatReservation r : sold) {
+            String seatKey = r.getDateOfTravel() + "/" + r.getRow() + "/" + r.getSeat();
+            long mask = SeatInventory.legMask(r.getFromStop(), r.getToStop());
+            long before = taken.getOrDefault(seatKey, 0L);
+            assertEquals("double sold " + seatKey, 0L, before & mask);
+            taken.put(seatKey, before | mask);
+        }
+
+        // 5 bookable seats x 3 legs x 2 dates, heavy contention must sell out every leg
+        long legsSold = taken.values().stream().mapToLong(Long::bitCount).sum();
+        assertEquals(5 * 3 * 2, legsSold);
+
+        // Counters kept under contention agree with a full scan
+        Train train = catalog.findByTrainId("bacs_12345").orElseThrow();
+        assertEquals(0, inventory.availableSeats(train, DAY, 0, 3));
+        for (SeatReservation r : sold) {
+            if (r.getDateOfTravel().equals(DAY)) inventory.release(r);
+        }
+        assertEquals(5, inventory.availableSeats(train, DAY, 0, 3));
+        assertEquals(availabilityScan(train, 1, 2), inventory.availableSeats(train, DAY, 1, 2));
+    }
+
+    private int availabilityScan(Train train, int from, int to) {
+        return inventory.availability(train, DAY, from, to).freeCount();
+    }
+
+    private static SeatReservation reservation(LocalDate date, int row, int seat, int from, int to) {
+        return new SeatReservation(
+                UUID.randomUUID().toString(), "user", "bacs_12345", date, row, seat, from, to);
+    }
+}
@@ -0,0 +1,89 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.utils.PasswordVerifier;
+import org.Spring.utils.UserServiceUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+public class SessionRegistryTest extends TestCase {
+
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "bacs_12345",
+              "train_no" : "12345",
+              "seats" : [ [ 0, 0, 0 ] ],
+              "station_times" : { },
+              "stations" : [ "bangalore", "jaipur", "delhi" ]
+            } ]
+            """;
+
+    public void testIdleSessionsExpireAndUsedOnesStay() {
+        AtomicLong now = new AtomicLong();
+        SessionRegistry registry = new SessionRegistry(1_000, now::get);
+
+        String idle = registry.open(new User("asha", null, null, null, "u-1"));
+        String busy = registry.open(new User("ravi", null, null, null, "u-2"));
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(800));
+        assertTrue(registry.find(busy).isPresent());
+
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(800));
+        assertEquals(1, registry.evictIdle());
+        assertEquals(1, registry.size());
+        assertTrue(registry.find(idle).isEmpty());
+        assertEquals("u-2", registry.find(busy).orElseThrow().getUserId());
+
+        // Expired but not swept yet: still refused
+        now.addAndGet(TimeUnit.MILLISECONDS.toNanos(1_500));
+        assertTrue(registry.find(busy).isEmpty());
+        assertEquals(0, registry.size());
+        registry.close();
+    }
+
+    public void testOneServiceServesManyUsersByToken() throws Exception {
+        int previous = UserServiceUtil.getCost();
+        Path dir = Files.createTempDirectory("sessions");
+        Files.writeString(dir.resolve("train.json"), TRAINS_JSON);
+        BookingStore store = BookingStore.open(dir, false);
+        PasswordVerifier verifier = new PasswordVerifier(2, 8, 5_000);
+        try {
+            UserServiceUtil.setCost(10);
+            UserBookingService service = new UserBookingService(store, verifier);
+            assertTrue(service.signUp(new User("asha", "secret", null, null, "u-1")).value());
+            assertTrue(service.signUp(new User("ravi", "secret", null, null, "u-2")).value());
+
+            String asha = service.login("asha", "secret").orElseThrow();
+            String ravi = service.login("ravi", "secret").orElseThrow();
+            assertTrue(service.login("ravi", "wrong").isEmpty());
+
+            Train train = service.findTrain("bacs_12345").orElseThrow();
+            LocalDate day = LocalDate.of(2025, 12, 26);
+            assertTrue(service.bookSeat(asha, train, 0, 0, "bangalore", "delhi", day).value().isPresent());
+            assertTrue(service.bookSeat(ravi, train, 0, 0, "bangalore", "delhi", day).value().isEmpty());
+            assertTrue(service.bookAnySeat(ravi, train, "bangalore", "delhi", day).value().isPresent());
+
+            assertEquals(1, service.fetchBookings(asha).size());
+            assertEquals("u-2", service.fetchBookings(ravi).get(0).getUserId());
+
+            assertTrue(service.logout(asha));
+            try {
+                service.fetchBookings(asha);
+                fail("Logged out token still works");
+            } catch (NotLoggedInException expected) {
+                // ok
+            }
+            assertEquals(1, store.sessions().size());
+        } finally {
+            UserServiceUtil.setCost(previous);
+            verifier.shutdown();
+            store.close();
+        }
+    }
+}
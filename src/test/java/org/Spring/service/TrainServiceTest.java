@@ -0,0 +1,100 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.SeatReservation;
+import org.Spring.entities.TrainAvailability;
+
+import java.io.File;
+import java.nio.file.Files;
+import java.time.LocalDate;
+import java.time.LocalTime;
+import java.util.List;
+
+public class TrainServiceTest extends TestCase {
+
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "ad_day", "train_no" : "201", "seats" : [ [ 0, 0 ] ],
+              "station_times" : { "agra" : "08:00:00", "delhi" : "15:00:00" },
+              "stations" : [ "agra", "delhi" ]
+            }, {
+              "train_id" : "ad_night", "train_no" : "202", "seats" : [ [ 0, 0 ] ],
+              "station_times" : { "agra" : "22:00:00", "delhi" : "07:00:00" },
+              "stations" : [ "agra", "delhi" ]
+            }, {
+              "train_id" : "xad", "train_no" : "203", "seats" : [ [ 0, 0 ] ],
+              "station_times" : { "xavier" : "20:00:00", "agra" : "01:30:00", "delhi" : "06:00:00" },
+              "stations" : [ "xavier", "agra", "delhi" ]
+            } ]
+            """;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 26);
+
+    private SeatInventory inventory;
+    private TrainService trainService;
+
+    @Override
+    protected void setUp() throws Exception {
+        File dir = Files.createTempDirectory("search").toFile();
+        File trainFile = new File(dir, "train.json");
+        Files.writeString(trainFile.toPath(), TRAINS_JSON);
+        TrainCatalog catalog = new TrainCatalog(trainFile);
+        inventory = new SeatInventory(new File(dir, "bookings.json"), catalog);
+        trainService = new TrainService(catalog, inventory);
+    }
+
+    public void testWholeDaySortedByDeparture() {
+        List<TrainAvailability> results =
+                trainService.searchTrains("agra", "delhi", DAY, TrainSearchFilter.any());
+
+        assertEquals(List.of("xad", "ad_day", "ad_night"), trainIds(results));
+        // Reaches agra at 01:30 on the searched day, so it left xavier the day before
+        assertEquals(DAY.minusDays(1), results.get(0).getDateOfTravel());
+    }
+
+    public void testWindowPastMidnightAndArriveBy() {
+        TrainSearchFilter lateNight = new TrainSearchFilter(
+                LocalTime.of(21, 0), LocalTime.of(2, 0), null, TrainSearchFilter.SortBy.DEPARTURE);
+        List<TrainAvailability> results = trainService.searchTrains("agra", "delhi", DAY, lateNight);
+
+        assertEquals(List.of("ad_night", "xad"), trainIds(results));
+        assertEquals(DAY.plusDays(1).atTime(7, 0), results.get(0).getArrival());
+        assertEquals(DAY.plusDays(1).atTime(1, 30), results.get(1).getDeparture());
+        assertEquals(DAY, results.get(1).getDateOfTravel());
+
+        TrainSearchFilter byDuration = new TrainSearchFilter(
+                LocalTime.of(21, 0), LocalTime.of(2, 0), null, TrainSearchFilter.SortBy.DURATION);
+        assertEquals(List.of("xad", "ad_night"),
+                trainIds(trainService.searchTrains("agra", "delhi", DAY, byDuration)));
+
+        TrainSearchFilter early = new TrainSearchFilter(
+                LocalTime.of(21, 0), LocalTime.of(2, 0), DAY.plusDays(1).atTime(6, 30), null);
+        assertEquals(List.of("xad"), trainIds(trainService.searchTrains("agra", "delhi", DAY, early)));
+    }
+
+    public void testResultsCarrySeatsOfTheRunDate() {
+        assertTrue(inventory.reserve(new SeatReservation("t1", "u1", "xad", DAY, 0, 0, 1, 2)));
+
+        TrainSearchFilter lateNight = new TrainSearchFilter(
+                LocalTime.of(23, 0), LocalTime.of(2, 0), null, TrainSearchFilter.SortBy.DEPARTURE);
+        TrainAvailability xad = trainService.searchTrains("agra", "delhi", DAY, lateNight).get(0);
+
+        assertEquals("xad", xad.getTrain().getTrainId());
+        assertEquals(1, xad.getAvailableSeats());
+    }
+
+    public void testPlainSearchUsesDepartureDateLikeTheFilteredOne() {
+        List<TrainAvailability> plain = trainService.searchTrains("agra", "delhi", DAY);
+        List<TrainAvailability> filtered = trainService.searchTrains("agra", "delhi", DAY, TrainSearchFilter.any());
+
+        assertEquals(trainIds(filtered), trainIds(plain));
+        for (int i = 0; i < plain.size(); i++) {
+            assertEquals(filtered.get(i).getDateOfTravel(), plain.get(i).getDateOfTravel());
+        }
+        assertEquals(DAY.minusDays(1), plain.get(0).getDateOfTravel());
+    }
+
+    private static List<String> trainIds(List<TrainAvailability> results) {
+        return results.stream().map(r -> r.getTrain().getTrainId()).toList();
+    }
+}
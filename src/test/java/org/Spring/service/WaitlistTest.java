@@ -0,0 +1,112 @@
+package org.Spring.service;
+
+import junit.framework.TestCase;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.utils.UserServiceUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDate;
+import java.util.List;
+
+public class WaitlistTest extends TestCase {
+
+    // One row of 2 seats
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "bacs_12345",
+              "train_no" : "12345",
+              "seats" : [ [ 0, 0 ] ],
+              "station_times" : { },
+              "stations" : [ "bangalore", "jaipur", "delhi" ]
+            } ]
+            """;
+
+    private static final LocalDate DAY = LocalDate.of(2025, 12, 26);
+
+    private int previousCost;
+    private BookingStore store;
+    private UserBookingService service;
+    private Train train;
+
+    @Override
+    protected void setUp() throws Exception {
+        previousCost = UserServiceUtil.getCost();
+        UserServiceUtil.setCost(10);
+
+        Path dir = Files.createTempDirectory("waitlist");
+        Files.writeString(dir.resolve("train.json"), TRAINS_JSON);
+        store = BookingStore.open(dir, false);
+        service = new UserBookingService(store);
+        train = service.findTrain("bacs_12345").orElseThrow();
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        store.close();
+        UserServiceUtil.setCost(previousCost);
+    }
+
+    public void testCancellationPromotesEarliestWaiterAndFreesSeat() throws Exception {
+        String asha = user("asha");
+        String ravi = user("ravi");
+        String meera = user("meera");
+        String kabir = user("kabir");
+
+        // Nothing to wait for while a seat is free
+        assertTrue(service.joinWaitlist(meera, train, "bangalore", "delhi", DAY).isEmpty());
+
+        Ticket ashaTicket = service.bookAnySeat(asha, train, "bangalore", "delhi", DAY).value().orElseThrow();
+        Ticket raviTicket = service.bookAnySeat(ravi, train, "bangalore", "delhi", DAY).value().orElseThrow();
+        assertTrue(service.bookAnySeat(meera, train, "bangalore", "delhi", DAY).value().isEmpty());
+
+        Waitlist.Entry first = service.joinWaitlist(meera, train, "bangalore", "delhi", DAY).orElseThrow();
+        Waitlist.Entry second = service.joinWaitlist(kabir, train, "jaipur", "delhi", DAY).orElseThrow();
+        assertEquals(0, store.waitlist().position(first));
+        assertEquals(2, store.waitlist().size());
+
+        assertTrue(service.cancelBooking(asha, ashaTicket.getTicketId()).value());
+        List<Ticket> promoted = service.fetchBookings(meera);
+        assertEquals(1, promoted.size());
+        assertEquals("bangalore", promoted.get(0).getSource());
+        assertEquals(ashaTicket.getSeat(), promoted.get(0).getSeat());
+        assertTrue(service.fetchBookings(kabir).isEmpty());
+
+        // The next seat freed goes to the next waiter, then straight back on sale
+        assertTrue(service.cancelBooking(ravi, raviTicket.getTicketId()).value());
+        assertEquals("jaipur", service.fetchBookings(kabir).get(0).getSource());
+        assertEquals(-1, store.waitlist().position(second));
+        assertEquals(0, store.waitlist().size());
+        assertEquals(1, store.seatInventory().availableSeats(train, DAY, 0, 1));
+    }
+
+    public void testOnlyWaitersWhoseSegmentFitsArePromoted() throws Exception {
+        String asha = user("asha");
+        String ravi = user("ravi");
+        String meera = user("meera");
+        String kabir = user("kabir");
+
+        Ticket shortHop = service.bookSeat(asha, train, 0, 0, "bangalore", "jaipur", DAY).value().orElseThrow();
+        service.bookSeat(asha, train, 0, 0, "jaipur", "delhi", DAY).value().orElseThrow();
+        service.bookSeat(ravi, train, 0, 1, "bangalore", "delhi", DAY).value().orElseThrow();
+
+        Waitlist.Entry whole = service.joinWaitlist(meera, train, "bangalore", "delhi", DAY).orElseThrow();
+        Waitlist.Entry gone = service.joinWaitlist(kabir, train, "bangalore", "delhi", DAY).orElseThrow();
+        assertTrue(service.leaveWaitlist(kabir, gone.waitId()));
+        assertFalse(service.leaveWaitlist(meera, gone.waitId()));
+        service.joinWaitlist(kabir, train, "bangalore", "jaipur", DAY).orElseThrow();
+
+        // Frees bangalore-jaipur only: meera's whole journey still does not fit
+        assertTrue(service.cancelBooking(asha, shortHop.getTicketId()).value());
+        assertTrue(service.fetchBookings(meera).isEmpty());
+        assertEquals(1, service.fetchBookings(kabir).size());
+        assertEquals(0, store.waitlist().position(whole));
+    }
+
+    private String user(String name) throws Exception {
+        assertTrue(service.signUp(new User(name, "secret", null, null, name + "-id")).value());
+        return service.login(name, "secret").orElseThrow();
+    }
+}
@@ -0,0 +1,113 @@
+package org.Spring.tools;
+
+import junit.framework.TestCase;
+import org.Spring.entities.Ticket;
+import org.Spring.entities.Train;
+import org.Spring.entities.User;
+import org.Spring.service.BookingStore;
+import org.Spring.service.UserBookingService;
+import org.Spring.utils.PasswordVerifier;
+import org.Spring.utils.UserServiceUtil;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.List;
+
+public class LoadDriverTest extends TestCase {
+
+    private static final LocalDate TODAY = LocalDate.of(2030, 6, 1);
+
+    private int previousCost;
+    private Path dir;
+
+    @Override
+    protected void setUp() throws Exception {
+        previousCost = UserServiceUtil.getCost();
+        UserServiceUtil.setCost(10);
+        dir = Files.createTempDirectory("dataset");
+    }
+
+    @Override
+    protected void tearDown() {
+        UserServiceUtil.setCost(previousCost);
+    }
+
+    public void testGeneratedDatasetLoadsConsistently() throws Exception {
+        DatasetGenerator.Summary summary = DatasetGenerator.generate(dir, spec(30));
+        assertEquals(40, summary.trains());
+        assertTrue(summary.tickets() > 0);
+
+        try (BookingStore store = BookingStore.open(dir, false)) {
+            List<Train> trains = store.trainCatalog().allTrains();
+            assertEquals(40, trains.size());
+            for (Train train : trains) {
+                assertTrue(train.getStations().size() >= 2);
+            }
+
+            long tickets = 0;
+            for (int i = 0; i < 30; i++) {
+                User user = store.userRepository().findByName(DatasetGenerator.userName(i)).orElseThrow();
+                for (Ticket ticket : user.getTicketsBooked()) {
+                    Train train = store.trainCatalog().findByTrainId(ticket.getTrainId()).orElseThrow();
+                    assertEquals(train.getStations().get(ticket.getFromStop()), ticket.getSource());
+                }
+                tickets += user.getTicketsBooked().size();
+            }
+            assertEquals(summary.tickets(), tickets);
+        }
+
+        // Same seed, same files
+        Path again = Files.createTempDirectory("dataset");
+        DatasetGenerator.generate(again, spec(30));
+        assertEquals(Files.readString(dir.resolve("bookings.json")), Files.readString(again.resolve("bookings.json")));
+    }
+
+    public void testDriverRunsMixAndCountsConflicts() throws Exception {
+        DatasetGenerator.generate(dir, spec(10));
+        PasswordVerifier verifier = new PasswordVerifier(2, 16, 5_000);
+        try (BookingStore store = BookingStore.open(dir, false)) {
+            UserBookingService service = new UserBookingService(store, verifier);
+
+            // Few hot trains and one day: threads fight over the same seats
+            LoadDriver.Config config = new LoadDriver.Config(
+                    4,
+                    Duration.ZERO,
+                    Duration.ofMillis(1_500),
+                    LoadDriver.Mix.parse("search=40, book=50, cancel=8, login=2"),
+                    10,
+                    "password",
+                    TODAY.plusDays(1),
+                    1,
+                    2.0,
+                    1
+            );
+            LoadDriver.Report report = LoadDriver.run(service, store.trainCatalog().allTrains(), config);
+
+            for (LoadDriver.Action action : LoadDriver.Action.values()) {
+                assertTrue(action + " never ran", report.calls(action) > 0);
+                assertEquals(action + " failed", 0, report.failed(action));
+            }
+            assertEquals(0, report.rejected(LoadDriver.Action.LOGIN));
+            assertTrue(report.conflictRate() >= 0 && report.conflictRate() <= 1);
+            assertTrue(report.format().contains("booking conflicts"));
+        } finally {
+            verifier.shutdown();
+        }
+    }
+
+    public void testMixParsing() {
+        assertEquals(new LoadDriver.Mix(70, 20, 5, 5), LoadDriver.Mix.parse("search=70,book=20,cancel=5,login=5"));
+        assertEquals(new LoadDriver.Mix(0, 1, 0, 0), LoadDriver.Mix.parse("BOOK=1"));
+        try {
+            LoadDriver.Mix.parse("refund=3");
+            fail("unknown action accepted");
+        } catch (IllegalArgumentException expected) {
+        }
+    }
+
+    private static DatasetGenerator.Spec spec(int users) {
+        return new DatasetGenerator.Spec(300, 40, users, 4, 1.0, 30, 10, TODAY, "password", 99);
+    }
+}
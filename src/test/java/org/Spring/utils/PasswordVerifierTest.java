@@ -0,0 +1,86 @@
+package org.Spring.utils;
+
+import at.favre.lib.crypto.bcrypt.BCrypt;
+import junit.framework.TestCase;
+import org.Spring.entities.User;
+import org.Spring.service.BookingStore;
+import org.Spring.service.UserBookingService;
+
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.RejectedExecutionException;
+
+public class PasswordVerifierTest extends TestCase {
+
+    public void testCostIsReadFromTheHash() {
+        assertEquals(10, UserServiceUtil.costOf("$2a$10$MqonEcizso4Re9iFEMajHOIHCUd5O3Q.XZX779C50ZnC/Hb6mirwW"));
+        assertEquals(-1, UserServiceUtil.costOf("plain"));
+    }
+
+    public void testCalibrationStaysWithinBounds() {
+        int previous = UserServiceUtil.getCost();
+        try {
+            int cost = UserServiceUtil.calibrateCost(1);
+            assertEquals(10, cost);
+            assertEquals(10, UserServiceUtil.getCost());
+        } finally {
+            UserServiceUtil.setCost(previous);
+        }
+    }
+
+    public void testSaturatedPoolRefusesInsteadOfQueueingForever() throws Exception {
+        String slowHash = BCrypt.withDefaults().hashToString(13, "pw".toCharArray());
+        PasswordVerifier verifier = new PasswordVerifier(1, 1, 10_000);
+        CountDownLatch started = new CountDownLatch(2);
+
+        for (int i = 0; i < 2; i++) {
+            Thread caller = new Thread(() -> {
+                started.countDown();
+                verifier.verify("pw", slowHash);
+            });
+            caller.setDaemon(true);
+            caller.start();
+        }
+        started.await();
+        // One check running, one queued: the third is refused
+        while (verifier.queued() == 0) {
+            Thread.sleep(5);
+        }
+
+        try {
+            verifier.verify("pw", slowHash);
+            fail("expected the saturated pool to refuse");
+        } catch (RejectedExecutionException expected) {
+            // ok
+        } finally {
+            verifier.shutdown();
+        }
+    }
+
+    public void testOldHashIsUpgradedAfterLogin() throws Exception {
+        int previous = UserServiceUtil.getCost();
+        Path dir = Files.createTempDirectory("rehash");
+        BookingStore store = BookingStore.open(dir, false);
+        try {
+            UserServiceUtil.setCost(11);
+            String oldHash = BCrypt.withDefaults().hashToString(10, "12345".toCharArray());
+            store.userRepository().add(new User("vivek", null, oldHash, null, "u-1"));
+
+            UserBookingService service = new UserBookingService(store, new PasswordVerifier(1, 4, 5_000));
+            assertTrue(service.login("vivek", "12345").isPresent());
+
+            long deadline = System.currentTimeMillis() + 5_000;
+            String hash = oldHash;
+            while (UserServiceUtil.costOf(hash) != 11 && System.currentTimeMillis() < deadline) {
+                Thread.sleep(20);
+                hash = store.userRepository().findByName("vivek").orElseThrow().getHashedPassword();
+            }
+            assertEquals(11, UserServiceUtil.costOf(hash));
+            assertTrue(service.login("vivek", "12345").isPresent());
+        } finally {
+            UserServiceUtil.setCost(previous);
+            store.close();
+        }
+    }
+}
@@ -0,0 +1,152 @@
+package org.Spring.web;
+
+import com.fasterxml.jackson.databind.JsonNode;
+import com.fasterxml.jackson.databind.ObjectMapper;
+import junit.framework.TestCase;
+import org.Spring.service.BookingStore;
+import org.Spring.utils.PasswordVerifier;
+import org.Spring.utils.UserServiceUtil;
+
+import java.net.InetSocketAddress;
+import java.net.URI;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+
+public class BookingHttpServerTest extends TestCase {
+
+    // 2 rows of 25 seats
+    private static final String TRAINS_JSON = """
+            [ {
+              "train_id" : "bacs_12345",
+              "train_no" : "12345",
+              "seats" : [ [ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 ],
+                          [ 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0, 0 ] ],
+              "station_times" : { "bangalore" : "08:00:00", "jaipur" : "14:00:00", "delhi" : "20:00:00" },
+              "stations" : [ "bangalore", "jaipur", "delhi" ]
+            } ]
+            """;
+
+    private static final String BOOKING = """
+            {"train_id": "bacs_12345", "source": "bangalore", "destination": "delhi",
+             "date_of_travel": "2025-12-26"}
+            """;
+
+    private final ObjectMapper mapper = new ObjectMapper();
+    private final HttpClient client = HttpClient.newBuilder().version(HttpClient.Version.HTTP_1_1).build();
+
+    private int previousCost;
+    private BookingStore store;
+    private PasswordVerifier verifier;
+    private BookingHttpServer server;
+
+    @Override
+    protected void setUp() throws Exception {
+        previousCost = UserServiceUtil.getCost();
+        UserServiceUtil.setCost(10);
+
+        Path dir = Files.createTempDirectory("http");
+        Files.writeString(dir.resolve("train.json"), TRAINS_JSON);
+        store = BookingStore.open(dir, false);
+        verifier = new PasswordVerifier(2, 16, 5_000);
+        server = BookingHttpServer.start(store, verifier, new InetSocketAddress("localhost", 0), 1_000);
+    }
+
+    @Override
+    protected void tearDown() throws Exception {
+        server.close();
+        verifier.shutdown();
+        store.close();
+        UserServiceUtil.setCost(previousCost);
+    }
+
+    public void testSignupLoginBookListAndCancel() throws Exception {
+        assertEquals(201, send("POST", "/api/signup", null, "{\"name\":\"asha\",\"password\":\"secret\"}").statusCode());
+        assertEquals(409, send("POST", "/api/signup", null, "{\"name\":\"asha\",\"password\":\"other\"}").statusCode());
+        assertEquals(401, send("POST", "/api/login", null, "{\"name\":\"asha\",\"password\":\"wrong\"}").statusCode());
+        assertEquals(401, send("GET", "/api/bookings", null, null).statusCode());
+
+        String token = login("asha", "secret");
+
+        HttpResponse<String> search = send("GET",
+                "/api/trains?source=Bangalore&destination=delhi&date=2025-12-26", null, null);
+        assertEquals(200, search.statusCode());
+        assertEquals(50, mapper.readTree(search.body()).get(0).get("available_seats").asInt());
+
+        HttpResponse<String> booked = send("POST", "/api/bookings", token,
+                "{\"train_id\":\"bacs_12345\",\"source\":\"bangalore\",\"destination\":\"jaipur\","
+                        + "\"date_of_travel\":\"2025-12-26\",\"row\":1,\"seat\":3}");
+        assertEquals(201, booked.statusCode());
+        String ticketId = mapper.readTree(booked.body()).get("ticket_id").asText();
+
+        // Same seat, overlapping segment
+        assertEquals(409, send("POST", "/api/bookings", token,
+                "{\"train_id\":\"bacs_12345\",\"source\":\"bangalore\",\"destination\":\"delhi\","
+                        + "\"date_of_travel\":\"2025-12-26\",\"row\":1,\"seat\":3}").statusCode());
+        assertEquals(400, send("POST", "/api/bookings", token, "{not json").statusCode());
+
+        JsonNode tickets = mapper.readTree(send("GET", "/api/bookings", token, null).body());
+        assertEquals(1, tickets.size());
+        assertEquals(ticketId, tickets.get(0).get("ticket_id").asText());
+
+        JsonNode pnr = mapper.readTree(send("GET", "/api/pnr/" + ticketId, null, null).body());
+        assertEquals("jaipur", pnr.get("destination").asText());
+        assertEquals(3, pnr.get("seat").asInt());
+        assertNull(pnr.get("user_id"));
+
+        assertEquals(204, send("DELETE", "/api/bookings/" + ticketId, token, null).statusCode());
+        assertEquals(404, send("DELETE", "/api/bookings/" + ticketId, token, null).statusCode());
+        assertEquals(404, send("GET", "/api/pnr/" + ticketId, null, null).statusCode());
+
+        assertEquals(204, send("POST", "/api/logout", token, null).statusCode());
+        assertEquals(401, send("GET", "/api/bookings", token, null).statusCode());
+    }
+
+    public void testConcurrentBookingsNeverOversell() throws Exception {
+        assertEquals(201, send("POST", "/api/signup", null, "{\"name\":\"ravi\",\"password\":\"secret\"}").statusCode());
+        String token = login("ravi", "secret");
+
+        List<CompletableFuture<HttpResponse<String>>> responses = new ArrayList<>();
+        for (int i = 0; i < 120; i++) {
+            responses.add(client.sendAsync(request("POST", "/api/bookings", token, BOOKING),
+                    HttpResponse.BodyHandlers.ofString()));
+        }
+
+        int booked = 0;
+        int full = 0;
+        for (CompletableFuture<HttpResponse<String>> response : responses) {
+            int status = response.join().statusCode();
+            if (status == 201) booked++;
+            else if (status == 409) full++;
+            else fail("Unexpected status " + status);
+        }
+        assertEquals(50, booked);
+        assertEquals(70, full);
+        assertEquals(50, mapper.readTree(send("GET", "/api/bookings", token, null).body()).size());
+    }
+
+    private String login(String name, String password) throws Exception {
+        HttpResponse<String> response = send("POST", "/api/login", null,
+                "{\"name\":\"" + name + "\",\"password\":\"" + password + "\"}");
+        assertEquals(200, response.statusCode());
+        return mapper.readTree(response.body()).get("token").asText();
+    }
+
+    private HttpResponse<String> send(String method, String path, String token, String body) throws Exception {
+        return client.send(request(method, path, token, body), HttpResponse.BodyHandlers.ofString());
+    }
+
+    private HttpRequest request(String method, String path, String token, String body) {
+        HttpRequest.Builder builder = HttpRequest.newBuilder(URI.create("http://localhost:" + server.port() + path))
+                .method(method, body == null
+                        ? HttpRequest.BodyPublishers.noBody()
+                        : HttpRequest.BodyPublishers.ofString(body));
+        if (token != null) builder.header("Authorization", "Bearer " + token);
+        return builder.build();
+    }
+}